@@ -0,0 +1,73 @@
+package com.chrisvdalen.contracthawk.benchmarks;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisSummary;
+import com.chrisvdalen.contracthawk.analysis.domain.BreakingChangeReport;
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares two versions of an operation index and builds the analysis summary, as
+ * {@code ContractAnalysisService} does when it completes an analysis. The current version drops every 20th
+ * operation and changes the fingerprint of every 10th.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisSummaryBenchmark {
+
+    private static final int OPERATIONS_PER_PATH = 4;
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE"};
+
+    @Param({"100", "10000", "100000"})
+    public int operations;
+
+    private List<ParsedOperation> previous;
+    private List<ParsedOperation> current;
+    private ParsedContract parsed;
+
+    @Setup
+    public void setUp() {
+        previous = new ArrayList<>(operations);
+        current = new ArrayList<>(operations);
+        for (int i = 0; i < operations; i++) {
+            String path = "/resources-" + (i / OPERATIONS_PER_PATH) + "/{id}";
+            String method = METHODS[i % OPERATIONS_PER_PATH];
+            String fingerprint = Integer.toHexString(i * 31 + 7);
+            previous.add(new ParsedOperation(path, method, fingerprint));
+            if (i % 20 == 0) {
+                continue;
+            }
+            current.add(new ParsedOperation(path, method, i % 10 == 0 ? fingerprint + "x" : fingerprint));
+        }
+        parsed = new ParsedContract(true, operations / OPERATIONS_PER_PATH, current.size(), List.of(), current, true);
+    }
+
+    @Benchmark
+    public BreakingChangeReport compare() {
+        return BreakingChangeReport.compare(1L, previous, current);
+    }
+
+    @Benchmark
+    public Map<String, Object> summary() {
+        return AnalysisSummary.of(parsed, BreakingChangeReport.compare(1L, previous, current));
+    }
+}
@@ -0,0 +1,82 @@
+package com.chrisvdalen.contracthawk.benchmarks;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisMetrics;
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.BundleDocumentCache;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.ParsedModelCache;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.SpecBundleResolver;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.SwaggerContractParser;
+import com.chrisvdalen.contracthawk.analysis.lint.InconsistentNamingRule;
+import com.chrisvdalen.contracthawk.analysis.lint.MissingOperationIdRule;
+import com.chrisvdalen.contracthawk.analysis.lint.SpecLinter;
+import com.chrisvdalen.contracthawk.analysis.lint.UndocumentedErrorResponsesRule;
+import com.chrisvdalen.contracthawk.analysis.lint.UnusedComponentsRule;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses generated specs from memory with the parse cache disabled, so every invocation scans and, up to
+ * {@link #FULL_VALIDATION_MAX_SIZE} as in production, validates the document. Run with {@code -prof gc} for the
+ * allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParserBenchmark {
+
+    private static final DataSize FULL_VALIDATION_MAX_SIZE = DataSize.ofMegabytes(25);
+
+    @Param({"10KB", "1MB", "10MB", "50MB"})
+    public String size;
+
+    @Param({"json", "yaml"})
+    public String format;
+
+    @Param({"0.0", "0.8"})
+    public double refDensity;
+
+    @Param({"1", "4"})
+    public int operationsPerPath;
+
+    private byte[] spec;
+    private SwaggerContractParser parser;
+
+    @Setup
+    public void setUp() {
+        spec = SpecCorpus.generate(size, format, refDensity, operationsPerPath);
+        AnalysisProperties properties = new AnalysisProperties(
+                new AnalysisProperties.ParseCache(false, null, null), FULL_VALIDATION_MAX_SIZE, null, null, null, null);
+        CompositeMeterRegistry meterRegistry = new CompositeMeterRegistry();
+        AnalysisMetrics metrics = new AnalysisMetrics(meterRegistry);
+        SpecLinter linter = new SpecLinter(List.of(new MissingOperationIdRule(), new UndocumentedErrorResponsesRule(),
+                new InconsistentNamingRule(), new UnusedComponentsRule()), metrics);
+        parser = new SwaggerContractParser(new ParsedModelCache(properties, meterRegistry),
+                new SpecBundleResolver(new BundleDocumentCache(properties, meterRegistry), properties), linter, properties,
+                metrics);
+    }
+
+    @Benchmark
+    public ParsedContract parse() throws IOException {
+        return parser.parse(null, () -> new ByteArrayInputStream(spec));
+    }
+}
@@ -0,0 +1,151 @@
+package com.chrisvdalen.contracthawk.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic OpenAPI 3 specs of roughly a requested size. The output is deterministic for the same
+ * arguments, so runs on different machines or commits parse the same documents.
+ */
+final class SpecCorpus {
+
+    private static final String[] METHODS = {"get", "post", "put", "delete", "patch"};
+    private static final int SCHEMA_COUNT = 50;
+    private static final int PROPERTIES_PER_SCHEMA = 8;
+
+    private SpecCorpus() {
+    }
+
+    /**
+     * @param size              target size such as {@code 10KB}, {@code 1MB} or {@code 50MB}
+     * @param format            {@code json} or {@code yaml}
+     * @param refDensity        fraction of responses and request bodies that {@code $ref} a shared component
+     *                          schema rather than declaring it inline
+     * @param operationsPerPath number of operations under each path, at most five
+     */
+    static byte[] generate(String size, String format, double refDensity, int operationsPerPath) {
+        long targetBytes = parseSize(size);
+        JsonFactory factory = switch (format) {
+            case "json" -> new JsonFactory();
+            case "yaml" -> new YAMLFactory();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, targetBytes + 64 * 1024));
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("openapi", "3.0.3");
+            generator.writeObjectFieldStart("info");
+            generator.writeStringField("title", "Benchmark corpus");
+            generator.writeStringField("version", "1.0.0");
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("paths");
+            int operations = Math.max(1, Math.min(METHODS.length, operationsPerPath));
+            for (int path = 0; out.size() < targetBytes; path++) {
+                writePath(generator, path, operations, refDensity, random);
+                generator.flush();
+            }
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("components");
+            generator.writeObjectFieldStart("schemas");
+            for (int schema = 0; schema < SCHEMA_COUNT; schema++) {
+                generator.writeFieldName("Schema" + schema);
+                writeSchema(generator, schema);
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static long parseSize(String size) {
+        String normalized = size.trim().toUpperCase(Locale.ROOT);
+        if (normalized.endsWith("MB")) {
+            return Long.parseLong(normalized.substring(0, normalized.length() - 2)) * 1024 * 1024;
+        }
+        if (normalized.endsWith("KB")) {
+            return Long.parseLong(normalized.substring(0, normalized.length() - 2)) * 1024;
+        }
+        return Long.parseLong(normalized);
+    }
+
+    private static void writePath(JsonGenerator generator, int path, int operations, double refDensity,
+                                  Random random) throws IOException {
+        generator.writeObjectFieldStart("/resources-" + path + "/{id}");
+        for (int m = 0; m < operations; m++) {
+            String method = METHODS[m];
+            generator.writeObjectFieldStart(method);
+            generator.writeStringField("operationId", method + "Resource" + path);
+            generator.writeStringField("summary", "Operation " + method + " on resource " + path);
+
+            generator.writeArrayFieldStart("parameters");
+            generator.writeStartObject();
+            generator.writeStringField("name", "id");
+            generator.writeStringField("in", "path");
+            generator.writeBooleanField("required", true);
+            generator.writeObjectFieldStart("schema");
+            generator.writeStringField("type", "string");
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndArray();
+
+            if (!method.equals("get") && !method.equals("delete")) {
+                generator.writeObjectFieldStart("requestBody");
+                writeContent(generator, path + m, refDensity, random);
+                generator.writeEndObject();
+            }
+
+            generator.writeObjectFieldStart("responses");
+            generator.writeObjectFieldStart("200");
+            generator.writeStringField("description", "OK");
+            writeContent(generator, path + m, refDensity, random);
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeContent(JsonGenerator generator, int seed, double refDensity, Random random)
+            throws IOException {
+        generator.writeObjectFieldStart("content");
+        generator.writeObjectFieldStart("application/json");
+        generator.writeFieldName("schema");
+        if (random.nextDouble() < refDensity) {
+            generator.writeStartObject();
+            generator.writeStringField("$ref", "#/components/schemas/Schema" + Math.floorMod(seed, SCHEMA_COUNT));
+            generator.writeEndObject();
+        } else {
+            writeSchema(generator, seed);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private static void writeSchema(JsonGenerator generator, int seed) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "object");
+        generator.writeObjectFieldStart("properties");
+        for (int p = 0; p < PROPERTIES_PER_SCHEMA; p++) {
+            generator.writeObjectFieldStart("field" + p);
+            generator.writeStringField("type", p % 3 == 0 ? "integer" : "string");
+            generator.writeStringField("description", "Field " + p + " of schema " + seed);
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+}
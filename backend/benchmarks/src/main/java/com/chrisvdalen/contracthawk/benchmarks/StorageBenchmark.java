@@ -0,0 +1,79 @@
+package com.chrisvdalen.contracthawk.benchmarks;
+
+import com.chrisvdalen.contracthawk.storage.domain.StoredFile;
+import com.chrisvdalen.contracthawk.storage.infrastructure.LocalFileStorageService;
+import com.chrisvdalen.contracthawk.storage.infrastructure.StorageProperties;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores and reads blobs of the generated corpus in a temporary directory. Storing the same content again
+ * still copies and digests every byte before the duplicate temp file is dropped, so {@link #store} measures
+ * the full write path without filling the disk. With {@code GZIP}, both include compressing or decompressing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Param({"10KB", "1MB", "50MB"})
+    public String size;
+
+    @Param({"NONE", "GZIP"})
+    public StorageProperties.Codec codec;
+
+    private Path baseDir;
+    private byte[] content;
+    private LocalFileStorageService storage;
+    private String storagePath;
+
+    @Setup
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("contracthawk-storage-benchmark");
+        content = SpecCorpus.generate(size, "yaml", 0.5, 4);
+        storage = new LocalFileStorageService(new StorageProperties(baseDir.toString(), List.of("yaml"),
+                new StorageProperties.Compression(codec, 6)), new CompositeMeterRegistry());
+        storagePath = storage.store(new ByteArrayInputStream(content)).storagePath();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(baseDir);
+    }
+
+    @Benchmark
+    public StoredFile store() throws IOException {
+        return storage.store(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        try (InputStream in = storage.read(storagePath)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
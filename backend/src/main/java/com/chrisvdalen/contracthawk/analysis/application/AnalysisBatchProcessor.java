@@ -0,0 +1,129 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Processes a batch of jobs with one claim before and one status write after, and parses in between on virtual
+ * threads without holding a transaction. A failure of one job never fails the others: parse errors are
+ * reported per job, and if the combined commit fails each parsed job is completed on its own instead. Failed
+ * jobs have their claim released for the retry.
+ */
+@Service
+public class AnalysisBatchProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisBatchProcessor.class);
+
+    private final ContractAnalysisService analysisService;
+    private final AnalysisClaimService claimService;
+    private final AnalysisMetrics metrics;
+
+    public AnalysisBatchProcessor(ContractAnalysisService analysisService,
+                                  AnalysisClaimService claimService,
+                                  AnalysisMetrics metrics) {
+        this.analysisService = analysisService;
+        this.claimService = claimService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Only the first job for an analysis is processed; later ones in the same batch are dropped as duplicates.
+     *
+     * @param parallelism maximum number of specs parsed at the same time
+     * @return the jobs that failed, with their cause; every other job is COMPLETED or was a duplicate
+     */
+    public Map<AnalysisJob, RuntimeException> process(List<AnalysisJob> jobs, int parallelism) {
+        Map<AnalysisJob, RuntimeException> failures = new LinkedHashMap<>();
+        jobs = distinctByAnalysis(jobs);
+        Set<Long> claimed = claimService.claimAll(jobs);
+
+        List<AnalysisJob> runnable = new ArrayList<>();
+        for (AnalysisJob job : jobs) {
+            if (claimed.contains(job.analysisId())) {
+                runnable.add(job);
+            } else {
+                log.info("Analysis {} is not PENDING; dropping duplicate job", job.analysisId());
+            }
+        }
+
+        Map<AnalysisJob, ParsedJob> parsed = parseAll(runnable, parallelism, failures);
+        if (!parsed.isEmpty()) {
+            completeAll(parsed, failures);
+        }
+        claimService.release(failures.keySet());
+        return failures;
+    }
+
+    private static List<AnalysisJob> distinctByAnalysis(List<AnalysisJob> jobs) {
+        Map<Long, AnalysisJob> distinct = new LinkedHashMap<>();
+        for (AnalysisJob job : jobs) {
+            if (distinct.putIfAbsent(job.analysisId(), job) != null) {
+                log.info("Analysis {} is in the batch twice; dropping duplicate job", job.analysisId());
+            }
+        }
+        return distinct.size() == jobs.size() ? jobs : List.copyOf(distinct.values());
+    }
+
+    private void completeAll(Map<AnalysisJob, ParsedJob> parsed, Map<AnalysisJob, RuntimeException> failures) {
+        try {
+            metrics.timePersist(true, () -> analysisService.completeAll(parsed));
+        } catch (RuntimeException batchFailure) {
+            log.warn("Completing batch of {} analyses failed; completing individually", parsed.size(), batchFailure);
+            parsed.forEach((job, parsedJob) -> {
+                try {
+                    metrics.timePersist(false, () -> analysisService.complete(job, parsedJob));
+                } catch (RuntimeException e) {
+                    failures.put(job, e);
+                }
+            });
+        }
+    }
+
+    private Map<AnalysisJob, ParsedJob> parseAll(List<AnalysisJob> jobs,
+                                                      int parallelism,
+                                                      Map<AnalysisJob, RuntimeException> failures) {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        Map<AnalysisJob, Future<ParsedJob>> futures = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (AnalysisJob job : jobs) {
+                futures.put(job, executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return analysisService.parse(job);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        // Insertion order is kept so that completeAll sees versions of a service in upload order.
+        Map<AnalysisJob, ParsedJob> parsed = new LinkedHashMap<>();
+        futures.forEach((job, future) -> {
+            try {
+                parsed.put(job, future.get());
+            } catch (ExecutionException e) {
+                failures.put(job, e.getCause() instanceof RuntimeException re
+                        ? re
+                        : new ContractProcessingException("Failed to parse contract at " + job.storagePath(), e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.put(job, new ContractProcessingException("Interrupted while parsing " + job.storagePath(), e));
+            }
+        });
+        return parsed;
+    }
+}
@@ -0,0 +1,148 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.repository.AnalysisClaimRepository;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Claims analyses for this node before any work is done on them. A claim holds a lease that this node
+ * renews while a job for it is in flight on this node; once a lease runs out, e.g. because the node crashed
+ * mid-parse or stalled past the lease, the analysis goes back to PENDING and its job is published again. Results are
+ * only written through {@link #finish}, which refuses an analysis this node no longer holds.
+ */
+@Service
+public class AnalysisClaimService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisClaimService.class);
+
+    private static final int RECLAIM_BATCH_SIZE = 100;
+
+    private final AnalysisClaimRepository claimRepository;
+    private final AnalysisJobOutbox analysisJobOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration leaseDuration;
+    private final String workerId = UUID.randomUUID().toString();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public AnalysisClaimService(AnalysisClaimRepository claimRepository,
+                                AnalysisJobOutbox analysisJobOutbox,
+                                PlatformTransactionManager transactionManager,
+                                AnalysisProperties properties) {
+        this.claimRepository = claimRepository;
+        this.analysisJobOutbox = analysisJobOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseDuration = Duration.ofMillis(properties.lease().durationMs());
+    }
+
+    /**
+     * @return {@code false} if the analysis is missing or no longer PENDING, i.e. the job is a duplicate
+     */
+    public boolean claim(AnalysisJob job) {
+        return claimAll(List.of(job)).contains(job.analysisId());
+    }
+
+    /**
+     * @return the analysis ids that were claimed
+     */
+    public Set<Long> claimAll(Collection<AnalysisJob> jobs) {
+        OffsetDateTime now = OffsetDateTime.now();
+        Set<Long> claimed = claimRepository.claim(jobs.stream().map(AnalysisJob::analysisId).toList(),
+                workerId, now, now.plus(leaseDuration));
+        inFlight.addAll(claimed);
+        return claimed;
+    }
+
+    /**
+     * Gives up the claim on jobs that failed, so that their retries are not dropped as duplicates.
+     */
+    public void release(Collection<AnalysisJob> jobs) {
+        if (!jobs.isEmpty()) {
+            List<Long> ids = jobs.stream().map(AnalysisJob::analysisId).toList();
+            ids.forEach(inFlight::remove);
+            claimRepository.release(ids, workerId);
+        }
+    }
+
+    /**
+     * Moves an analysis this node holds to COMPLETED or FAILED. Must run in the transaction that writes the
+     * results, which the row lock taken here protects from a concurrent reclaim.
+     *
+     * @return {@code false} if this node no longer holds the analysis, in which case its results must be dropped
+     */
+    public boolean finish(AnalysisJob job, AnalysisStatus status, OffsetDateTime finishedAt) {
+        inFlight.remove(job.analysisId());
+        return claimRepository.finish(job.analysisId(), workerId, status, finishedAt);
+    }
+
+    /**
+     * Extends the leases of the analyses with a job in flight on this node. A claim whose job has ended without
+     * finishing or releasing it is left to expire.
+     */
+    public void renewLeases() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        int renewed = claimRepository.renewLeases(List.copyOf(inFlight), workerId,
+                OffsetDateTime.now().plus(leaseDuration));
+        log.debug("Renewed {} analysis leases", renewed);
+    }
+
+    @Transactional
+    public int reclaimExpired() {
+        List<AnalysisJob> jobs = claimRepository.reclaimExpired(OffsetDateTime.now(), RECLAIM_BATCH_SIZE);
+        if (!jobs.isEmpty()) {
+            analysisJobOutbox.enqueueAll(jobs);
+            log.warn("Reclaimed {} analyses whose lease expired", jobs.size());
+        }
+        return jobs.size();
+    }
+
+    /**
+     * Enqueues a new job for every PENDING analysis that has none in the outbox. Only for transports that
+     * keep jobs in memory, where such analyses lost their job when the node stopped; with a broker their
+     * jobs are still queued there. Each batch commits on its own, so a large backlog neither holds one long
+     * transaction nor loses the batches already requeued when a later one fails.
+     *
+     * @return the number of analyses requeued
+     */
+    public int requeuePendingWithoutJob() {
+        OffsetDateTime now = OffsetDateTime.now();
+        int requeued = 0;
+        long afterId = 0;
+        List<AnalysisJob> jobs;
+        do {
+            long after = afterId;
+            jobs = transactionTemplate.execute(status -> {
+                List<AnalysisJob> batch = claimRepository.findPendingWithoutOutboxEntry(after, now, RECLAIM_BATCH_SIZE);
+                if (!batch.isEmpty()) {
+                    analysisJobOutbox.enqueueAll(batch);
+                }
+                return batch;
+            });
+            if (!jobs.isEmpty()) {
+                requeued += jobs.size();
+                afterId = jobs.getLast().analysisId();
+            }
+        } while (jobs.size() == RECLAIM_BATCH_SIZE);
+        if (requeued > 0) {
+            log.warn("Requeued {} PENDING analyses that had no job", requeued);
+        }
+        return requeued;
+    }
+}
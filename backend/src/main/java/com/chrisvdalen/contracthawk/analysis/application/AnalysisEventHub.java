@@ -0,0 +1,62 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In-process registry of parties waiting for the analysis of a contract to finish. Each delivery runs on
+ * its own virtual thread, so a slow subscriber never holds up the others or the publishing thread.
+ */
+@Component
+public class AnalysisEventHub {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisEventHub.class);
+
+    private final Map<Long, Set<Consumer<ContractAnalysisResponse>>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @return a callback that removes the subscription again
+     */
+    public Runnable subscribe(Long contractId, Consumer<ContractAnalysisResponse> subscriber) {
+        subscribers.compute(contractId, (id, current) -> {
+            Set<Consumer<ContractAnalysisResponse>> set = current != null ? current : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        return () -> subscribers.computeIfPresent(contractId, (id, current) -> {
+            current.remove(subscriber);
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    public void publish(ContractAnalysisResponse analysis) {
+        Set<Consumer<ContractAnalysisResponse>> targets = subscribers.get(analysis.contractId());
+        if (targets == null) {
+            return;
+        }
+        for (Consumer<ContractAnalysisResponse> subscriber : targets) {
+            executor.execute(() -> {
+                try {
+                    subscriber.accept(analysis);
+                } catch (RuntimeException e) {
+                    log.debug("Analysis event subscriber for contract {} failed", analysis.contractId(), e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,7 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+/**
+ * Published when an analysis reaches COMPLETED or FAILED; delivered to subscribers once the transaction commits.
+ */
+public record AnalysisFinishedEvent(ContractAnalysisResponse analysis) {
+}
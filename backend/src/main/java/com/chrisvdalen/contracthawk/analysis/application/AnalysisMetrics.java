@@ -0,0 +1,112 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Timers for the stages of an analysis, all published with percentile histograms:
+ * <ul>
+ *     <li>{@code contracthawk.analysis.queue.wait}: from enqueueing the job to starting on it, tagged with its
+ *     {@code lane}</li>
+ *     <li>{@code contracthawk.analysis.parse}: scanning and validating a spec that was not cached, tagged with
+ *     {@code size} (a bucket of the spec size), {@code format} and {@code validation} ({@code full} or
+ *     {@code structural})</li>
+ *     <li>{@code contracthawk.analysis.lint.rule}: time each lint rule spent on one spec, summed over its
+ *     callbacks during the shared walk, tagged with the {@code rule}</li>
+ *     <li>{@code contracthawk.analysis.persist}: writing results, including the commit, tagged {@code mode}
+ *     ({@code single} or {@code batch})</li>
+ * </ul>
+ */
+@Component
+public class AnalysisMetrics {
+
+    private static final long KB = 1024;
+    private static final long MB = 1024 * KB;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<AnalysisLane, Timer> queueWait = new EnumMap<>(AnalysisLane.class);
+    private final Timer persistSingle;
+    private final Timer persistBatch;
+
+    public AnalysisMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (AnalysisLane lane : AnalysisLane.values()) {
+            queueWait.put(lane, Timer.builder("contracthawk.analysis.queue.wait")
+                    .description("Time from enqueueing an analysis job to starting on it")
+                    .tag("lane", lane.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        this.persistSingle = persistTimer("single");
+        this.persistBatch = persistTimer("batch");
+    }
+
+    /**
+     * @return the time the job spent queued, or {@code null} if the job does not say when it was enqueued
+     */
+    public Duration recordQueueWait(AnalysisJob job, Instant startedAt) {
+        if (job.enqueuedAt() == null) {
+            return null;
+        }
+        Duration wait = Duration.between(job.enqueuedAt(), startedAt);
+        // Clocks of the uploading and the processing node may disagree slightly.
+        if (wait.isNegative()) {
+            wait = Duration.ZERO;
+        }
+        queueWait.get(job.lane() == null ? AnalysisLane.SMALL : job.lane()).record(wait);
+        return wait;
+    }
+
+    public void recordParse(Duration duration, long sizeBytes, String format, boolean fullyValidated) {
+        Timer.builder("contracthawk.analysis.parse")
+                .description("Time to scan and validate a spec that was not cached")
+                .tag("size", sizeBucket(sizeBytes))
+                .tag("format", format == null ? "unknown" : format)
+                .tag("validation", fullyValidated ? "full" : "structural")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordLintRule(String rule, Duration duration) {
+        Timer.builder("contracthawk.analysis.lint.rule")
+                .description("Time a lint rule spent on one spec")
+                .tag("rule", rule)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void timePersist(boolean batch, Runnable persist) {
+        (batch ? persistBatch : persistSingle).record(persist);
+    }
+
+    private Timer persistTimer(String mode) {
+        return Timer.builder("contracthawk.analysis.persist")
+                .description("Time to write analysis results, including the commit")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    static String sizeBucket(long sizeBytes) {
+        if (sizeBytes < 100 * KB) {
+            return "lt100kb";
+        }
+        if (sizeBytes < MB) {
+            return "lt1mb";
+        }
+        if (sizeBytes < 10 * MB) {
+            return "lt10mb";
+        }
+        return "gte10mb";
+    }
+}
@@ -0,0 +1,13 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Opens the content to parse on demand, so a cached parse result can be used without touching storage.
+ */
+@FunctionalInterface
+public interface ContentSource {
+
+    InputStream open() throws IOException;
+}
@@ -1,20 +1,41 @@
 package com.chrisvdalen.contracthawk.analysis.application;
 
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisSummary;
+import com.chrisvdalen.contracthawk.analysis.domain.BreakingChangeReport;
+import com.chrisvdalen.contracthawk.analysis.domain.BundleFile;
 import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
 import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
 import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractBundleRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractOperationRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ServiceStateRepository;
 import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.search.repository.SearchIndexRepository;
 import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 public class ContractAnalysisService {
@@ -24,56 +45,289 @@ public class ContractAnalysisService {
     private final ContractAnalysisRepository analysisRepository;
     private final FileStorageService fileStorageService;
     private final ContractParser contractParser;
+    private final ContractOperationRepository operationRepository;
+    private final SearchIndexRepository searchIndexRepository;
+    private final ServiceStateRepository serviceStateRepository;
+    private final ContractBundleRepository bundleRepository;
+    private final AnalysisClaimService claimService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AnalysisMetrics metrics;
 
     public ContractAnalysisService(ContractAnalysisRepository analysisRepository,
                                    FileStorageService fileStorageService,
-                                   ContractParser contractParser) {
+                                   ContractParser contractParser,
+                                   ContractOperationRepository operationRepository,
+                                   SearchIndexRepository searchIndexRepository,
+                                   ServiceStateRepository serviceStateRepository,
+                                   ContractBundleRepository bundleRepository,
+                                   AnalysisClaimService claimService,
+                                   PlatformTransactionManager transactionManager,
+                                   ApplicationEventPublisher eventPublisher,
+                                   AnalysisMetrics metrics) {
         this.analysisRepository = analysisRepository;
         this.fileStorageService = fileStorageService;
         this.contractParser = contractParser;
+        this.operationRepository = operationRepository;
+        this.searchIndexRepository = searchIndexRepository;
+        this.serviceStateRepository = serviceStateRepository;
+        this.bundleRepository = bundleRepository;
+        this.claimService = claimService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
     }
 
-    @Transactional
+    /**
+     * Claims the analysis, then parses without a transaction and completes in a short one. A delivery for
+     * an analysis that is no longer PENDING is dropped before the spec is read. On failure the claim is
+     * released so that the retry of the job can claim it again.
+     */
     public void process(AnalysisJob job) {
-        ContractAnalysis analysis = analysisRepository.findById(job.analysisId())
-                .orElseThrow(() -> new IllegalStateException("Analysis " + job.analysisId() + " not found"));
-
-        analysis.markProcessing(OffsetDateTime.now());
-        analysisRepository.save(analysis);
+        if (!claimService.claim(job)) {
+            log.info("Analysis {} is not PENDING; dropping duplicate job for contract {}",
+                    job.analysisId(), job.contractId());
+            return;
+        }
+        try {
+            ParsedJob parsed = parse(job);
+            metrics.timePersist(false, () -> transactionTemplate.executeWithoutResult(status -> complete(job, parsed)));
+        } catch (RuntimeException e) {
+            claimService.release(List.of(job));
+            throw e;
+        }
+    }
 
+    /**
+     * Reads and parses the job's spec, recording how long the job was queued. A contract uploaded as a bundle is
+     * parsed with all of its files. Holds no transaction, so callers can parse outside one.
+     */
+    public ParsedJob parse(AnalysisJob job) {
+        Duration queueWait = metrics.recordQueueWait(job, Instant.now());
+        long start = System.nanoTime();
         ParsedContract parsed;
-        try (InputStream content = fileStorageService.read(job.storagePath())) {
-            parsed = contractParser.parse(content);
+        try {
+            List<BundleFile> bundle = bundleRepository.findByContractId(job.contractId());
+            parsed = bundle.isEmpty()
+                    ? contractParser.parse(job.contentSha256(), () -> fileStorageService.read(job.storagePath()))
+                    : contractParser.parseBundle(job.contentSha256(),
+                            SpecBundle.of(bundle, storagePath -> () -> fileStorageService.read(storagePath)));
         } catch (IOException e) {
             throw new ContractProcessingException("Failed to read contract at " + job.storagePath(), e);
         }
+        return new ParsedJob(parsed, queueWait, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Completes already parsed jobs in one transaction. A job whose analysis this node no longer holds, e.g.
+     * because its lease ran out during a long pause, is dropped without writing anything. The analyses are loaded
+     * with one query and their
+     * updates are flushed together at commit, so with {@code hibernate.jdbc.batch_size} set they go out as
+     * JDBC batches. Jobs are applied in order, so a job can be compared against a previous version that
+     * completes earlier in the same batch.
+     */
+    @Transactional
+    public void completeAll(Map<AnalysisJob, ParsedJob> parsedJobs) {
+        Map<Long, ContractAnalysis> analyses = analysisRepository.findAllById(idsOf(parsedJobs.keySet())).stream()
+                .collect(Collectors.toMap(ContractAnalysis::getId, Function.identity()));
+
+        // Resolved up front: a JPA query between the updates would auto-flush them one by one.
+        List<Long> previousIds = parsedJobs.keySet().stream()
+                .map(AnalysisJob::previousContractId)
+                .filter(Objects::nonNull)
+                .toList();
+        Set<Long> indexed = previousIds.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(analysisRepository.findContractIdsWithStatus(previousIds, AnalysisStatus.COMPLETED));
+        Map<Long, Long> baselines = new HashMap<>();
+        if (!previousIds.isEmpty()) {
+            analysisRepository.findComparisonBaselines(previousIds).forEach(baseline ->
+                    baselines.put(baseline.getContractId(), baseline.getBaselineContractId()));
+        }
+
+        parsedJobs.forEach((job, parsed) -> {
+            ContractAnalysis analysis = analyses.get(job.analysisId());
+            if (analysis == null) {
+                throw new IllegalStateException("Analysis " + job.analysisId() + " not found");
+            }
+            OffsetDateTime finishedAt = OffsetDateTime.now();
+            if (!claimService.finish(job, AnalysisStatus.COMPLETED, finishedAt)) {
+                logLostClaim(job);
+                return;
+            }
+            Duration indexWriteTime = replaceOperations(job, parsed.contract());
+            complete(analysis, job, parsed.contract(), finishedAt, Map.of("timings", parsed.timings(indexWriteTime)),
+                    indexed::contains, baselines::get);
+            indexed.add(job.contractId());
+            baselines.put(job.contractId(), parsed.contract().valid()
+                    ? job.contractId()
+                    : baselines.get(job.previousContractId()));
+        });
+    }
 
-        Map<String, Object> summary = new LinkedHashMap<>();
-        summary.put("pathCount", parsed.pathCount());
-        summary.put("operationCount", parsed.operationCount());
-        summary.put("validSpec", parsed.valid());
-        if (!parsed.validationMessages().isEmpty()) {
-            summary.put("validationMessages", parsed.validationMessages());
+    /**
+     * Completes one already parsed job in its own transaction.
+     */
+    @Transactional
+    public void complete(AnalysisJob job, ParsedJob parsed) {
+        OffsetDateTime finishedAt = OffsetDateTime.now();
+        if (!claimService.finish(job, AnalysisStatus.COMPLETED, finishedAt)) {
+            logLostClaim(job);
+            return;
         }
+        ContractAnalysis analysis = analysisRepository.findById(job.analysisId())
+                .orElseThrow(() -> new IllegalStateException("Analysis " + job.analysisId() + " not found"));
+        Duration indexWriteTime = replaceOperations(job, parsed.contract());
+        complete(analysis, job, parsed.contract(), finishedAt, Map.of("timings", parsed.timings(indexWriteTime)),
+                this::hasCompletedAnalysis, this::comparisonBaseline);
+    }
+
+    /**
+     * Completes the analysis from an earlier COMPLETED analysis of byte-identical content, if there is one.
+     * The spec is not read or parsed; only the operation and search indexes and the lint findings are copied and the
+     * comparison with the previous version is recomputed, since that depends on the upload rather than on the
+     * content. It runs in the upload's transaction before the job is published, so no worker can hold the
+     * analysis yet and it needs no claim.
+     *
+     * @return {@code false} if no such analysis exists and the job still has to be published
+     */
+    @Transactional
+    public boolean completeFromDuplicate(AnalysisJob job, String contentSha256) {
+        Optional<ContractAnalysis> duplicate =
+                analysisRepository.findLatestCompletedByContentSha256(contentSha256, job.contractId());
+        if (duplicate.isEmpty()) {
+            return false;
+        }
+        ContractAnalysis original = duplicate.get();
+        ContractAnalysis analysis = analysisRepository.findById(job.analysisId())
+                .orElseThrow(() -> new IllegalStateException("Analysis " + job.analysisId() + " not found"));
+        analysis.markProcessing(OffsetDateTime.now());
+
+        operationRepository.copy(original.getContractId(), job.contractId());
+        searchIndexRepository.copy(original.getContractId(), job.contractId());
+        ParsedContract parsed = new ParsedContract(
+                Boolean.TRUE.equals(original.getValidSpec()),
+                original.getPathCount(),
+                original.getOperationCount(),
+                validationMessagesOf(original),
+                operationRepository.findByContractId(job.contractId()),
+                !Boolean.FALSE.equals(original.getSummary() == null ? null : original.getSummary().get("fullyValidated")));
+
+        Map<String, Object> extra = AnalysisSummary.lintOf(original.getSummary());
+        extra.put("duplicateOfAnalysisId", original.getId());
+        complete(analysis, job, parsed, OffsetDateTime.now(), extra, this::hasCompletedAnalysis,
+                this::comparisonBaseline);
+        return true;
+    }
+
+    private void complete(ContractAnalysis analysis,
+                          AnalysisJob job,
+                          ParsedContract parsed,
+                          OffsetDateTime finishedAt,
+                          Map<String, Object> extra,
+                          Predicate<Long> previousIndexed,
+                          Function<Long, Long> comparisonBaseline) {
+        BreakingChangeReport report = compareWithPrevious(job, parsed, previousIndexed, comparisonBaseline);
+
+        Map<String, Object> summary = AnalysisSummary.of(parsed, report);
+        summary.putAll(extra);
 
         analysis.markCompleted(
-                OffsetDateTime.now(),
+                finishedAt,
                 parsed.valid(),
                 parsed.pathCount(),
                 parsed.operationCount(),
-                false,
+                report.breaking(),
                 summary);
         analysisRepository.save(analysis);
+        serviceStateRepository.upsert(analysis);
+        eventPublisher.publishEvent(new AnalysisFinishedEvent(ContractAnalysisResponse.from(analysis)));
 
-        log.info("Analysis {} completed for contract {} (paths={}, operations={}, valid={})",
-                analysis.getId(), job.contractId(), parsed.pathCount(), parsed.operationCount(), parsed.valid());
+        log.info("Analysis {} completed for contract {} (paths={}, operations={}, valid={}, breaking={})",
+                analysis.getId(), job.contractId(), parsed.pathCount(), parsed.operationCount(), parsed.valid(),
+                report.breaking());
     }
 
+    private Duration replaceOperations(AnalysisJob job, ParsedContract parsed) {
+        long start = System.nanoTime();
+        operationRepository.replaceAll(job.contractId(), parsed.operations());
+        searchIndexRepository.replaceAll(job.contractId(), parsed.symbols());
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * @param comparisonBaseline the latest version up to a given contract whose spec is valid, or {@code null}
+     */
+    private BreakingChangeReport compareWithPrevious(AnalysisJob job, ParsedContract parsed,
+                                                     Predicate<Long> previousIndexed,
+                                                     Function<Long, Long> comparisonBaseline) {
+        Long previousContractId = job.previousContractId();
+        if (previousContractId == null) {
+            return BreakingChangeReport.noPreviousVersion();
+        }
+        // Only a completed analysis guarantees the previous index is present and whole.
+        if (!previousIndexed.test(previousContractId)) {
+            log.warn("Previous contract {} has no completed analysis; skipping comparison for contract {}",
+                    previousContractId, job.contractId());
+            return BreakingChangeReport.notIndexed(previousContractId);
+        }
+        // An invalid spec may have parsed to few or no operations, which would read as everything being removed.
+        if (!parsed.valid()) {
+            return BreakingChangeReport.notCompared(previousContractId, "Spec is invalid");
+        }
+        Long baselineContractId = comparisonBaseline.apply(previousContractId);
+        if (baselineContractId == null) {
+            return BreakingChangeReport.notCompared(previousContractId, "No earlier version has a valid spec");
+        }
+        return BreakingChangeReport.compare(baselineContractId,
+                operationRepository.findByContractId(baselineContractId),
+                parsed.operations());
+    }
+
+    private static void logLostClaim(AnalysisJob job) {
+        log.warn("Analysis {} for contract {} is no longer held by this node, e.g. after its lease expired; "
+                + "dropping its result", job.analysisId(), job.contractId());
+    }
+
+    private Long comparisonBaseline(Long contractId) {
+        return analysisRepository.findComparisonBaselines(List.of(contractId)).stream()
+                .findFirst()
+                .map(ContractAnalysisRepository.ComparisonBaseline::getBaselineContractId)
+                .orElse(null);
+    }
+
+    private boolean hasCompletedAnalysis(Long contractId) {
+        return analysisRepository.existsByContractIdAndStatus(contractId, AnalysisStatus.COMPLETED);
+    }
+
+    private static List<Long> idsOf(Collection<AnalysisJob> jobs) {
+        return jobs.stream().map(AnalysisJob::analysisId).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> validationMessagesOf(ContractAnalysis analysis) {
+        Object messages = analysis.getSummary() == null ? null : analysis.getSummary().get("validationMessages");
+        return messages instanceof List<?> list ? (List<String>) list : List.of();
+    }
+
+    /**
+     * Fails the analysis of a job whose retries are exhausted. The failed attempt released its claim, so the
+     * analysis is claimed again first; an analysis that another worker holds, or that has finished meanwhile, is
+     * left as it is.
+     */
     @Transactional
     public void markFailed(AnalysisJob job, String reason) {
+        claimService.claim(job);
+        OffsetDateTime finishedAt = OffsetDateTime.now();
+        if (!claimService.finish(job, AnalysisStatus.FAILED, finishedAt)) {
+            log.info("Analysis {} is no longer held by this node; not marking it FAILED", job.analysisId());
+            return;
+        }
         analysisRepository.findById(job.analysisId()).ifPresent(analysis -> {
-            analysis.markFailed(OffsetDateTime.now(), reason);
+            analysis.markFailed(finishedAt, reason);
             analysisRepository.save(analysis);
+            serviceStateRepository.upsert(analysis);
+            eventPublisher.publishEvent(new AnalysisFinishedEvent(ContractAnalysisResponse.from(analysis)));
             log.warn("Analysis {} marked FAILED for contract {}: {}", analysis.getId(), job.contractId(), reason);
         });
     }
@@ -8,4 +8,23 @@ import java.io.InputStream;
 public interface ContractParser {
 
     ParsedContract parse(InputStream content) throws IOException;
+
+    /**
+     * Parses content identified by its SHA-256. Implementations may answer repeated digests from memory
+     * without opening {@code source}; a {@code null} digest always reads the source.
+     */
+    default ParsedContract parse(String contentSha256, ContentSource source) throws IOException {
+        try (InputStream content = source.open()) {
+            return parse(content);
+        }
+    }
+
+    /**
+     * Parses a spec uploaded as a multi-file bundle, resolving relative {@code $ref}s between its documents.
+     * {@code contentSha256} is the digest of the bundle as a whole. Implementations that cannot resolve
+     * references parse the root document alone.
+     */
+    default ParsedContract parseBundle(String contentSha256, SpecBundle bundle) throws IOException {
+        return parse(contentSha256, bundle.root().source());
+    }
 }
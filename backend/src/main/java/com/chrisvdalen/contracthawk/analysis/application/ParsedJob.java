@@ -0,0 +1,28 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A parsed spec together with the time its job spent in each stage before completion. The stage timings are
+ * kept in the analysis summary under {@code timings}, so a slow individual spec can be diagnosed.
+ *
+ * @param queueWait time from enqueueing the job to starting on it; {@code null} if the job does not say when
+ *                  it was enqueued
+ * @param parseTime time to read and parse the spec, close to zero when the parse result was cached
+ */
+public record ParsedJob(ParsedContract contract, Duration queueWait, Duration parseTime) {
+
+    Map<String, Object> timings(Duration indexWriteTime) {
+        Map<String, Object> timings = new LinkedHashMap<>();
+        if (queueWait != null) {
+            timings.put("queueWaitMs", queueWait.toMillis());
+        }
+        timings.put("parseMs", parseTime.toMillis());
+        timings.put("indexWriteMs", indexWriteTime.toMillis());
+        return timings;
+    }
+}
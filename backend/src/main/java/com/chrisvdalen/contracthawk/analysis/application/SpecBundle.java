@@ -0,0 +1,50 @@
+package com.chrisvdalen.contracthawk.analysis.application;
+
+import com.chrisvdalen.contracthawk.analysis.domain.BundleFile;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A spec split over several documents that refer to each other with relative {@code $ref}s.
+ *
+ * @param rootPath  bundle path of the document the spec starts from
+ * @param documents every document of the bundle, including the root, by bundle path
+ */
+public record SpecBundle(String rootPath, Map<String, Document> documents) {
+
+    public SpecBundle {
+        documents = Collections.unmodifiableMap(new LinkedHashMap<>(documents));
+        if (!documents.containsKey(rootPath)) {
+            throw new IllegalArgumentException("Bundle has no document " + rootPath);
+        }
+    }
+
+    /**
+     * @param source the source of a stored blob, by its storage path
+     */
+    public static SpecBundle of(List<BundleFile> files, Function<String, ContentSource> source) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        String rootPath = null;
+        for (BundleFile file : files) {
+            documents.put(file.path(), new Document(file.contentSha256(), source.apply(file.storagePath())));
+            if (file.root()) {
+                rootPath = file.path();
+            }
+        }
+        return new SpecBundle(rootPath, documents);
+    }
+
+    public Document root() {
+        return documents.get(rootPath);
+    }
+
+    /**
+     * @param contentSha256 digest of the document alone, which identifies it across bundles
+     */
+    public record Document(String contentSha256, ContentSource source) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.chrisvdalen.contracthawk.analysis.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * @param fullValidationMaxSize specs above this size are only scanned structurally; {@code null} validates all
+ * @param documentCache         cache of the parsed documents of multi-file bundles, shared between analyses so a
+ *                              document that many bundles include is read once per node
+ * @param maxBundleSize         largest summed size of the documents of a multi-file bundle; larger bundles are
+ *                              rejected on upload, and not read further than that during analysis
+ */
+@ConfigurationProperties(prefix = "contracthawk.analysis")
+public record AnalysisProperties(ParseCache parseCache, DataSize fullValidationMaxSize, Lease lease, Metrics metrics,
+                                 ParseCache documentCache, DataSize maxBundleSize) {
+
+    /**
+     * @param maxWeight upper bound on the estimated heap size of the cached entries, not on the size of their
+     *                  source documents
+     */
+    public record ParseCache(boolean enabled, DataSize maxWeight, Duration expireAfterAccess) {
+    }
+
+    /**
+     * @param durationMs          how long a claim survives without a heartbeat
+     * @param heartbeatIntervalMs how often a node renews the leases it holds; well below {@code durationMs}
+     * @param reclaimIntervalMs   how often expired leases are looked for
+     */
+    public record Lease(long durationMs, long heartbeatIntervalMs, long reclaimIntervalMs) {
+    }
+
+    /**
+     * @param backlogRefreshIntervalMs how often the backlog and dead-letter gauges are re-read from the
+     *                                 database and the broker
+     */
+    public record Metrics(long backlogRefreshIntervalMs) {
+    }
+}
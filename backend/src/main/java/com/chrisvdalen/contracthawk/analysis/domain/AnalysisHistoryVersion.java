@@ -0,0 +1,19 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Aggregate over all analyses of a contract that changes whenever the history does: an analysis is added, or
+ * one is started, finished or handed back. Computed in the database so the history is not loaded to answer a
+ * conditional request.
+ */
+public record AnalysisHistoryVersion(Long count,
+                                     Long maxId,
+                                     Long startedCount,
+                                     Long finishedCount,
+                                     OffsetDateTime lastModified) {
+
+    public String key() {
+        return count + "/" + maxId + "/" + startedCount + "/" + finishedCount + "/" + lastModified;
+    }
+}
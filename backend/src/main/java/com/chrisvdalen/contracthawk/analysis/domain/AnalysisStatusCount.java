@@ -0,0 +1,4 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+public record AnalysisStatusCount(AnalysisStatus status, Long count) {
+}
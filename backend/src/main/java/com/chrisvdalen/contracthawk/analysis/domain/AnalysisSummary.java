@@ -0,0 +1,84 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the {@code summary} JSON of a completed analysis from the parse result and the comparison with the
+ * previous version.
+ */
+public final class AnalysisSummary {
+
+    /**
+     * Findings kept in the summary; the count per rule still covers all of them.
+     */
+    public static final int MAX_LINT_FINDINGS = 200;
+
+    private static final List<String> LINT_KEYS = List.of("lintFindingCount", "lintFindingsByRule", "lintFindings");
+
+    private AnalysisSummary() {
+    }
+
+    /**
+     * @return a mutable, insertion-ordered map, so callers can add their own entries
+     */
+    public static Map<String, Object> of(ParsedContract parsed, BreakingChangeReport report) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("pathCount", parsed.pathCount());
+        summary.put("operationCount", parsed.operationCount());
+        summary.put("validSpec", parsed.valid());
+        summary.put("fullyValidated", parsed.fullyValidated());
+        if (!parsed.validationMessages().isEmpty()) {
+            summary.put("validationMessages", parsed.validationMessages());
+        }
+        if (!parsed.lintFindings().isEmpty()) {
+            putLintFindings(summary, parsed.lintFindings());
+        }
+        summary.put("previousVersionExists", report.previousVersionExists());
+        if (report.previousVersionExists()) {
+            summary.put("previousContractId", report.previousContractId());
+            summary.put("previousVersionIndexed", report.previousVersionIndexed());
+            summary.put("compared", report.compared());
+            if (!report.compared()) {
+                summary.put("notComparedReason", report.notComparedReason());
+            }
+            summary.put("removedPaths", report.removedPaths());
+            summary.put("removedMethods", report.removedMethods());
+            summary.put("changedOperations", report.changedOperations());
+        }
+        return summary;
+    }
+
+    /**
+     * @return the lint entries of an existing summary, for an analysis that reuses another one's results
+     */
+    public static Map<String, Object> lintOf(Map<String, Object> summary) {
+        Map<String, Object> lint = new LinkedHashMap<>();
+        if (summary != null) {
+            LINT_KEYS.stream().filter(summary::containsKey).forEach(key -> lint.put(key, summary.get(key)));
+        }
+        return lint;
+    }
+
+    private static void putLintFindings(Map<String, Object> summary, List<LintFinding> findings) {
+        Map<String, Integer> byRule = new TreeMap<>();
+        findings.forEach(finding -> byRule.merge(finding.rule(), 1, Integer::sum));
+        summary.put("lintFindingCount", findings.size());
+        summary.put("lintFindingsByRule", byRule);
+        summary.put("lintFindings", findings.stream()
+                .limit(MAX_LINT_FINDINGS)
+                .map(AnalysisSummary::toMap)
+                .toList());
+    }
+
+    private static Map<String, Object> toMap(LintFinding finding) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rule", finding.rule());
+        map.put("severity", finding.severity().name());
+        map.put("location", finding.location());
+        map.put("message", finding.message());
+        return map;
+    }
+}
@@ -0,0 +1,18 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The columns of an analysis that change whenever its representation does; enough to answer a conditional
+ * request without loading the summary.
+ */
+public record AnalysisVersion(Long id,
+                              AnalysisStatus status,
+                              OffsetDateTime createdAt,
+                              OffsetDateTime startedAt,
+                              OffsetDateTime finishedAt) {
+
+    public String key() {
+        return id + "/" + status + "/" + startedAt + "/" + finishedAt;
+    }
+}
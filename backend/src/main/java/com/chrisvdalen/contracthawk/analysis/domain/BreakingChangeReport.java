@@ -0,0 +1,87 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Outcome of comparing a contract against the previous version of the same service.
+ * A removed path or a removed method on a path that still exists is breaking; additions are not.
+ *
+ * @param previousContractId the version compared against, which is the latest earlier one with a valid spec
+ * @param notComparedReason  why there was no comparison although a previous version exists, or {@code null}
+ */
+public record BreakingChangeReport(Long previousContractId,
+                                   boolean previousVersionIndexed,
+                                   String notComparedReason,
+                                   List<String> removedPaths,
+                                   List<String> removedMethods,
+                                   int changedOperations) {
+
+    public static BreakingChangeReport noPreviousVersion() {
+        return new BreakingChangeReport(null, false, null, List.of(), List.of(), 0);
+    }
+
+    public static BreakingChangeReport notIndexed(Long previousContractId) {
+        return new BreakingChangeReport(previousContractId, false, "Previous version has no completed analysis",
+                List.of(), List.of(), 0);
+    }
+
+    /**
+     * The previous version is analyzed, but comparing against it would be meaningless, e.g. because this spec is
+     * invalid and its operation index says nothing about what it removes.
+     */
+    public static BreakingChangeReport notCompared(Long previousContractId, String reason) {
+        return new BreakingChangeReport(previousContractId, true, reason, List.of(), List.of(), 0);
+    }
+
+    /**
+     * Set difference of the previous operation index against the current one: O(previous + current) and
+     * independent of the size of the underlying documents.
+     */
+    public static BreakingChangeReport compare(Long previousContractId,
+                                               Collection<ParsedOperation> previous,
+                                               Collection<ParsedOperation> current) {
+        Map<String, String> currentFingerprints = new HashMap<>(current.size() * 2);
+        Set<String> currentPaths = new HashSet<>();
+        for (ParsedOperation operation : current) {
+            currentFingerprints.put(operation.key(), operation.fingerprint());
+            currentPaths.add(operation.path());
+        }
+
+        Set<String> removedPaths = new TreeSet<>();
+        Set<String> removedMethods = new TreeSet<>();
+        int changed = 0;
+        for (ParsedOperation operation : previous) {
+            String fingerprint = currentFingerprints.get(operation.key());
+            if (fingerprint == null) {
+                if (currentPaths.contains(operation.path())) {
+                    removedMethods.add(operation.key());
+                } else {
+                    removedPaths.add(operation.path());
+                }
+            } else if (!fingerprint.equals(operation.fingerprint())) {
+                changed++;
+            }
+        }
+        return new BreakingChangeReport(previousContractId, true, null,
+                new ArrayList<>(removedPaths), new ArrayList<>(removedMethods), changed);
+    }
+
+    public boolean previousVersionExists() {
+        return previousContractId != null;
+    }
+
+    public boolean compared() {
+        return previousContractId != null && notComparedReason == null;
+    }
+
+    public boolean breaking() {
+        return !removedPaths.isEmpty() || !removedMethods.isEmpty();
+    }
+}
@@ -0,0 +1,10 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+/**
+ * One file of a multi-file spec bundle.
+ *
+ * @param path location inside the bundle, with {@code /} separators; relative {@code $ref}s resolve against it
+ * @param root whether this is the document the spec starts from
+ */
+public record BundleFile(String path, String storagePath, String contentSha256, boolean root) {
+}
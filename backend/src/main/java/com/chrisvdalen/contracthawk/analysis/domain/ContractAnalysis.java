@@ -1,5 +1,6 @@
 package com.chrisvdalen.contracthawk.analysis.domain;
 
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -7,6 +8,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -19,7 +21,8 @@ import java.util.Map;
 public class ContractAnalysis {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contract_analysis_seq")
+    @SequenceGenerator(name = "contract_analysis_seq", sequenceName = "contract_analysis_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "contract_id", nullable = false)
@@ -57,17 +60,35 @@ public class ContractAnalysis {
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "lane", nullable = false)
+    private AnalysisLane lane;
+
+    @Column(name = "reanalysis_run_id")
+    private Long reanalysisRunId;
+
     protected ContractAnalysis() {
     }
 
-    public static ContractAnalysis pending(Long contractId, OffsetDateTime createdAt) {
+    public static ContractAnalysis pending(Long contractId, AnalysisLane lane, OffsetDateTime createdAt) {
         ContractAnalysis analysis = new ContractAnalysis();
         analysis.contractId = contractId;
         analysis.status = AnalysisStatus.PENDING;
+        analysis.lane = lane;
         analysis.createdAt = createdAt;
         return analysis;
     }
 
+    /**
+     * A PENDING analysis of an already analyzed contract, created by the given re-analysis run.
+     */
+    public static ContractAnalysis pendingReanalysis(Long contractId, AnalysisLane lane, OffsetDateTime createdAt,
+                                                     Long reanalysisRunId) {
+        ContractAnalysis analysis = pending(contractId, lane, createdAt);
+        analysis.reanalysisRunId = reanalysisRunId;
+        return analysis;
+    }
+
     public void markProcessing(OffsetDateTime startedAt) {
         this.status = AnalysisStatus.PROCESSING;
         this.startedAt = startedAt;
@@ -106,4 +127,6 @@ public class ContractAnalysis {
     public String getFailureReason() { return failureReason; }
     public Map<String, Object> getSummary() { return summary; }
     public OffsetDateTime getCreatedAt() { return createdAt; }
+    public AnalysisLane getLane() { return lane; }
+    public Long getReanalysisRunId() { return reanalysisRunId; }
 }
@@ -0,0 +1,16 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+/**
+ * A problem a lint rule found in a spec.
+ *
+ * @param rule     id of the rule that reported it
+ * @param location JSON pointer into the spec, such as {@code #/paths/~1orders/get}
+ */
+public record LintFinding(String rule, Severity severity, String location, String message) {
+
+    public enum Severity {
+        ERROR,
+        WARNING,
+        INFO
+    }
+}
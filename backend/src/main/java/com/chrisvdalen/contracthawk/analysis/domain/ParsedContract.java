@@ -1,6 +1,52 @@
 package com.chrisvdalen.contracthawk.analysis.domain;
 
+import com.chrisvdalen.contracthawk.search.domain.SpecSymbol;
+
 import java.util.List;
 
-public record ParsedContract(boolean valid, int pathCount, int operationCount, List<String> validationMessages) {
+/**
+ * @param fullyValidated {@code false} when only the structural scan ran, e.g. because the spec exceeded
+ *                       the full-validation size limit; {@code valid} then reflects structure only
+ * @param symbols        operations and component schemas for the search index
+ * @param lintFindings   what the lint rules reported; empty when only the structural scan ran
+ */
+public record ParsedContract(boolean valid,
+                             int pathCount,
+                             int operationCount,
+                             List<String> validationMessages,
+                             List<ParsedOperation> operations,
+                             boolean fullyValidated,
+                             List<SpecSymbol> symbols,
+                             List<LintFinding> lintFindings) {
+
+    public ParsedContract(boolean valid, int pathCount, int operationCount, List<String> validationMessages) {
+        this(valid, pathCount, operationCount, validationMessages, List.of(), true, List.of());
+    }
+
+    public ParsedContract(boolean valid,
+                          int pathCount,
+                          int operationCount,
+                          List<String> validationMessages,
+                          List<ParsedOperation> operations) {
+        this(valid, pathCount, operationCount, validationMessages, operations, true, List.of());
+    }
+
+    public ParsedContract(boolean valid,
+                          int pathCount,
+                          int operationCount,
+                          List<String> validationMessages,
+                          List<ParsedOperation> operations,
+                          boolean fullyValidated) {
+        this(valid, pathCount, operationCount, validationMessages, operations, fullyValidated, List.of());
+    }
+
+    public ParsedContract(boolean valid,
+                          int pathCount,
+                          int operationCount,
+                          List<String> validationMessages,
+                          List<ParsedOperation> operations,
+                          boolean fullyValidated,
+                          List<SpecSymbol> symbols) {
+        this(valid, pathCount, operationCount, validationMessages, operations, fullyValidated, symbols, List.of());
+    }
 }
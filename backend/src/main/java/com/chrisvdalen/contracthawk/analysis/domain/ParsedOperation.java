@@ -0,0 +1,12 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+/**
+ * One operation of a parsed spec. The fingerprint is a digest of the serialized operation, so two versions
+ * can be compared per operation without keeping either model around.
+ */
+public record ParsedOperation(String path, String method, String fingerprint) {
+
+    public String key() {
+        return method + " " + path;
+    }
+}
@@ -0,0 +1,21 @@
+package com.chrisvdalen.contracthawk.analysis.domain;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The current state of a service: the latest finished analysis of its most recently uploaded version that has
+ * one. A newer version whose analysis has not finished yet does not replace it.
+ */
+public record ServiceState(
+        String serviceName,
+        Long contractId,
+        String version,
+        OffsetDateTime uploadedAt,
+        Long analysisId,
+        AnalysisStatus status,
+        Boolean validSpec,
+        Integer pathCount,
+        Integer operationCount,
+        Boolean breakingChangesDetected,
+        OffsetDateTime finishedAt) {
+}
@@ -0,0 +1,83 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatusCount;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gauges {@code contracthawk.analysis.backlog}, tagged with {@code status} PENDING or PROCESSING, and
+ * {@code contracthawk.analysis.dlq.depth}, which only exists with the RabbitMQ transport. The values are
+ * refreshed on a schedule rather than on every scrape, so scraping never queries the database or the broker;
+ * a refresh that fails keeps the last known value.
+ */
+@Component
+public class AnalysisBacklogMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisBacklogMetrics.class);
+
+    private final ContractAnalysisRepository analysisRepository;
+    private final AmqpAdmin amqpAdmin;
+    private final String deadLetterQueue;
+    private final Map<AnalysisStatus, AtomicLong> backlog = new EnumMap<>(AnalysisStatus.class);
+    private final AtomicLong deadLetterDepth = new AtomicLong();
+
+    public AnalysisBacklogMetrics(ContractAnalysisRepository analysisRepository,
+                                  ObjectProvider<AmqpAdmin> amqpAdmin,
+                                  MessagingProperties messagingProperties,
+                                  MeterRegistry meterRegistry) {
+        this.analysisRepository = analysisRepository;
+        this.amqpAdmin = amqpAdmin.getIfAvailable();
+        this.deadLetterQueue = messagingProperties.deadLetterQueue();
+        for (AnalysisStatus status : new AnalysisStatus[]{AnalysisStatus.PENDING, AnalysisStatus.PROCESSING}) {
+            AtomicLong value = new AtomicLong();
+            backlog.put(status, value);
+            Gauge.builder("contracthawk.analysis.backlog", value, AtomicLong::get)
+                    .description("Analyses waiting for or undergoing processing")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        if (this.amqpAdmin != null) {
+            Gauge.builder("contracthawk.analysis.dlq.depth", deadLetterDepth, AtomicLong::get)
+                    .description("Analysis jobs in the dead-letter queue")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${contracthawk.analysis.metrics.backlog-refresh-interval-ms}")
+    public void refresh() {
+        try {
+            Map<AnalysisStatus, Long> counts = new EnumMap<>(AnalysisStatus.class);
+            for (AnalysisStatusCount count : analysisRepository.countByStatusIn(backlog.keySet())) {
+                counts.put(count.status(), count.count());
+            }
+            backlog.forEach((status, value) -> value.set(counts.getOrDefault(status, 0L)));
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the analysis backlog gauges", e);
+        }
+        if (amqpAdmin == null) {
+            return;
+        }
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(deadLetterQueue);
+            if (info != null) {
+                deadLetterDepth.set(info.getMessageCount());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not read the depth of {}", deadLetterQueue, e);
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.chrisvdalen.contracthawk.analysis.infrastructure;
 
 import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
 import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.config.ConditionalOnRabbitTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
 @Component
+@ConditionalOnRabbitTransport
 public class AnalysisDeadLetterListener {
 
     private static final Logger log = LoggerFactory.getLogger(AnalysisDeadLetterListener.class);
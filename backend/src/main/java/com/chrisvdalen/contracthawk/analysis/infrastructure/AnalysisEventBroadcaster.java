@@ -0,0 +1,53 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisEventHub;
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisFinishedEvent;
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisResponse;
+import com.chrisvdalen.contracthawk.messaging.config.ConditionalOnRabbitTransport;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Fans finished analyses out to every node through the events exchange, so that a client streaming from one
+ * node hears about an analysis completed on another. Each node consumes from its own auto-delete queue and
+ * hands the event to its local {@link AnalysisEventHub}.
+ */
+@Component
+@ConditionalOnRabbitTransport
+public class AnalysisEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisEventBroadcaster.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final AnalysisEventHub eventHub;
+    private final MessagingProperties properties;
+
+    public AnalysisEventBroadcaster(RabbitTemplate rabbitTemplate,
+                                    AnalysisEventHub eventHub,
+                                    MessagingProperties properties) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.eventHub = eventHub;
+        this.properties = properties;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFinished(AnalysisFinishedEvent event) {
+        try {
+            rabbitTemplate.convertAndSend(properties.eventsExchange(), "", event.analysis());
+        } catch (AmqpException e) {
+            log.warn("Could not broadcast analysis {}; notifying local subscribers only", event.analysis().id(), e);
+            eventHub.publish(event.analysis());
+        }
+    }
+
+    @RabbitListener(queues = "#{analysisEventsQueue.name}", containerFactory = "analysisEventsListenerContainerFactory")
+    public void relay(ContractAnalysisResponse analysis) {
+        eventHub.publish(analysis);
+    }
+}
@@ -0,0 +1,109 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisBatchProcessor;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.config.ConditionalOnRabbitTransport;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.infrastructure.DelayedRetryRecoverer;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch counterpart of {@link AnalysisJobListener}, active when {@code contracthawk.messaging.batch.enabled}
+ * is set. Deliveries are acknowledged one by one: a failed job goes to the delay queues on its own, and once
+ * its retries are used up it is rejected to the dead-letter queue exactly as in single-message mode. A failed job
+ * whose retry the broker did not confirm is requeued. A second delivery for an analysis already in the batch is
+ * acknowledged right away, so the analysis is claimed and parsed once.
+ */
+@Component
+@ConditionalOnRabbitTransport
+@ConditionalOnProperty(prefix = "contracthawk.messaging.batch", name = "enabled", havingValue = "true")
+public class AnalysisJobBatchListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobBatchListener.class);
+
+    private final AnalysisBatchProcessor batchProcessor;
+    private final DelayedRetryRecoverer retryRecoverer;
+    private final MessageConverter messageConverter;
+    private final int parallelism;
+
+    public AnalysisJobBatchListener(AnalysisBatchProcessor batchProcessor,
+                                    DelayedRetryRecoverer retryRecoverer,
+                                    MessageConverter messageConverter,
+                                    MessagingProperties properties) {
+        this.batchProcessor = batchProcessor;
+        this.retryRecoverer = retryRecoverer;
+        this.messageConverter = messageConverter;
+        this.parallelism = properties.batch().parallelism();
+    }
+
+    @RabbitListener(queues = "${contracthawk.messaging.lanes.small.queue}", containerFactory = "smallLaneBatchListenerContainerFactory")
+    @RabbitListener(queues = "${contracthawk.messaging.lanes.large.queue}", containerFactory = "largeLaneBatchListenerContainerFactory")
+    public void handle(List<Message> messages, Channel channel) throws IOException {
+        Map<AnalysisJob, Message> deliveries = new IdentityHashMap<>();
+        List<AnalysisJob> jobs = new ArrayList<>(messages.size());
+        Set<Long> analysisIds = new HashSet<>();
+        for (Message message : messages) {
+            try {
+                AnalysisJob job = (AnalysisJob) messageConverter.fromMessage(message);
+                if (!analysisIds.add(job.analysisId())) {
+                    log.info("Analysis {} is in the batch twice; acknowledging duplicate delivery", job.analysisId());
+                    channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+                    continue;
+                }
+                deliveries.put(job, message);
+                jobs.add(job);
+            } catch (RuntimeException e) {
+                log.warn("Rejecting unreadable analysis message", e);
+                reject(channel, message);
+            }
+        }
+        log.debug("Received batch of {} analysis jobs", jobs.size());
+
+        Map<AnalysisJob, RuntimeException> failures = batchProcessor.process(jobs, parallelism);
+
+        for (AnalysisJob job : jobs) {
+            Message message = deliveries.get(job);
+            RuntimeException failure = failures.get(job);
+            if (failure != null) {
+                log.warn("Analysis job analysisId={} failed in batch", job.analysisId(), failure);
+            }
+            if (failure == null) {
+                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+                continue;
+            }
+            boolean scheduled;
+            try {
+                scheduled = retryRecoverer.scheduleRetry(message, failure);
+            } catch (AmqpException e) {
+                log.warn("Could not schedule a retry of analysisId={}; requeueing it", job.analysisId(), e);
+                channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, true);
+                continue;
+            }
+            if (scheduled) {
+                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+            } else {
+                reject(channel, message);
+            }
+        }
+    }
+
+    private static void reject(Channel channel, Message message) throws IOException {
+        channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
+    }
+}
@@ -2,12 +2,16 @@ package com.chrisvdalen.contracthawk.analysis.infrastructure;
 
 import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
 import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.config.ConditionalOnRabbitTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
+@ConditionalOnRabbitTransport
+@ConditionalOnProperty(prefix = "contracthawk.messaging.batch", name = "enabled", havingValue = "false", matchIfMissing = true)
 public class AnalysisJobListener {
 
     private static final Logger log = LoggerFactory.getLogger(AnalysisJobListener.class);
@@ -18,7 +22,8 @@ public class AnalysisJobListener {
         this.analysisService = analysisService;
     }
 
-    @RabbitListener(queues = "${contracthawk.messaging.queue}")
+    @RabbitListener(queues = "${contracthawk.messaging.lanes.small.queue}", containerFactory = "smallLaneListenerContainerFactory")
+    @RabbitListener(queues = "${contracthawk.messaging.lanes.large.queue}", containerFactory = "largeLaneListenerContainerFactory")
     public void handle(AnalysisJob job) {
         log.debug("Received analysis job contractId={} analysisId={}", job.contractId(), job.analysisId());
         analysisService.process(job);
@@ -0,0 +1,28 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisClaimService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AnalysisLeaseScheduler {
+
+    private final AnalysisClaimService claimService;
+
+    public AnalysisLeaseScheduler(AnalysisClaimService claimService) {
+        this.claimService = claimService;
+    }
+
+    @Scheduled(fixedDelayString = "${contracthawk.analysis.lease.heartbeat-interval-ms}")
+    public void heartbeat() {
+        claimService.renewLeases();
+    }
+
+    @Scheduled(fixedDelayString = "${contracthawk.analysis.lease.reclaim-interval-ms}")
+    public void reclaim() {
+        int reclaimed;
+        do {
+            reclaimed = claimService.reclaimExpired();
+        } while (reclaimed > 0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Size-bounded cache of the parsed documents of multi-file bundles, keyed by the SHA-256 of each document, so a
+ * shared document such as a common error schema is parsed once per node rather than once per bundle that
+ * includes it. Entries are weighted by an estimate of their heap size: a Jackson tree counts as
+ * {@value #TREE_BYTES_PER_SOURCE_BYTE} times the length of its source document, about what trees of generated
+ * YAML specs from 30 KB to 300 KB measured. Hit, miss and eviction counts are exported as {@code cache.*} meters
+ * tagged {@code cache=contracthawk.bundle.documents}.
+ *
+ * <p>Cached trees are shared between threads and must be treated as read-only; copy before changing them.
+ */
+@Component
+public class BundleDocumentCache {
+
+    private static final String CACHE_NAME = "contracthawk.bundle.documents";
+    static final int TREE_BYTES_PER_SOURCE_BYTE = 10;
+
+    private final Cache<String, Entry> cache;
+
+    public BundleDocumentCache(AnalysisProperties properties, MeterRegistry meterRegistry) {
+        AnalysisProperties.ParseCache config = properties.documentCache();
+        if (config == null || !config.enabled()) {
+            this.cache = null;
+            return;
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumWeight(config.maxWeight().toBytes())
+                .recordStats();
+        if (config.expireAfterAccess() != null) {
+            builder.expireAfterAccess(config.expireAfterAccess());
+        }
+        this.cache = builder
+                .<String, Entry>weigher((key, entry) -> entry.weight())
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<Entry> get(String contentSha256) {
+        if (cache == null || contentSha256 == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(contentSha256));
+    }
+
+    public void put(String contentSha256, JsonNode document, long sourceLength) {
+        if (cache == null || contentSha256 == null) {
+            return;
+        }
+        cache.put(contentSha256, new Entry(document, sourceLength));
+    }
+
+    /**
+     * @param sourceLength length of the document the tree was parsed from
+     */
+    public record Entry(JsonNode document, long sourceLength) {
+
+        int weight() {
+            long weight = sourceLength * TREE_BYTES_PER_SOURCE_BYTE;
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, weight));
+        }
+    }
+}
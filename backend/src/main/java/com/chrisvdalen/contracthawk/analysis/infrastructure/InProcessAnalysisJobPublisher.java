@@ -0,0 +1,164 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisClaimService;
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobPublisher;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs analysis jobs in this JVM instead of publishing them to RabbitMQ, for single-node installations and
+ * local development ({@code contracthawk.messaging.transport=in-process}). The outbox relay hands jobs to a
+ * bounded queue per lane, each drained by the lane's number of virtual-thread workers; when a queue stays
+ * full, publishing fails and the jobs wait in the outbox. Failed jobs are retried after the same backoff as with
+ * the broker, and marked FAILED once the retries are used up, which is what the dead-letter listener does.
+ *
+ * <p>Queued jobs do not survive a restart, so on startup every PENDING analysis without an outbox entry gets
+ * a new job.
+ *
+ * <p>The transport is set by the {@code in-process} profile, which also leaves out the RabbitMQ auto-configuration.
+ * Startup fails if the property is set on its own and a RabbitMQ connection factory is still configured.
+ */
+@Component
+@ConditionalOnProperty(prefix = "contracthawk.messaging", name = "transport", havingValue = "in-process")
+public class InProcessAnalysisJobPublisher implements AnalysisJobPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessAnalysisJobPublisher.class);
+
+    private final ContractAnalysisService analysisService;
+    private final AnalysisClaimService claimService;
+    private final MessagingProperties.Retry retry;
+    private final MessagingProperties.InProcess config;
+    private final MessagingProperties.Lanes lanes;
+    private final Map<AnalysisLane, BlockingQueue<Delivery>> queues = new EnumMap<>(AnalysisLane.class);
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService retryScheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("analysis-retry").factory());
+
+    public InProcessAnalysisJobPublisher(ContractAnalysisService analysisService,
+                                         AnalysisClaimService claimService,
+                                         MessagingProperties properties,
+                                         ObjectProvider<ConnectionFactory> rabbitConnectionFactory) {
+        if (rabbitConnectionFactory.getIfAvailable() != null) {
+            throw new IllegalStateException("contracthawk.messaging.transport=in-process needs the in-process profile, "
+                    + "which also turns off RabbitMQ; activate the profile instead of setting the property");
+        }
+        this.analysisService = analysisService;
+        this.claimService = claimService;
+        this.retry = properties.retry();
+        this.config = properties.inProcess();
+        this.lanes = properties.lanes();
+        for (AnalysisLane lane : AnalysisLane.values()) {
+            queues.put(lane, new ArrayBlockingQueue<>(config.queueCapacity()));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        queues.forEach((lane, queue) -> {
+            for (int i = 0; i < lanes.get(lane).concurrency(); i++) {
+                workers.execute(() -> work(queue));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void requeueLostJobs() {
+        claimService.requeuePendingWithoutJob();
+    }
+
+    @Override
+    public void publish(AnalysisJob job) {
+        enqueue(new Delivery(job, 0));
+    }
+
+    private void enqueue(Delivery delivery) {
+        boolean accepted;
+        try {
+            accepted = queueOf(delivery).offer(delivery, config.offerTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queueing analysis " + delivery.job().analysisId(), e);
+        }
+        if (!accepted) {
+            throw new RejectedExecutionException("In-process analysis queue of lane " + laneOf(delivery)
+                    + " is full (capacity " + config.queueCapacity() + ")");
+        }
+    }
+
+    private void work(BlockingQueue<Delivery> queue) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Delivery delivery;
+            try {
+                delivery = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                analysisService.process(delivery.job());
+            } catch (RuntimeException e) {
+                retryOrFail(delivery, e);
+            }
+        }
+    }
+
+    private void retryOrFail(Delivery delivery, RuntimeException failure) {
+        AnalysisJob job = delivery.job();
+        int next = delivery.attempt() + 1;
+        if (next > retry.maxAttempts()) {
+            log.warn("Analysis job exhausted its retries contractId={} analysisId={}",
+                    job.contractId(), job.analysisId(), failure);
+            analysisService.markFailed(job, "Analysis failed after all retry attempts were exhausted");
+            return;
+        }
+        long delayMs = retry.delayMs(next);
+        log.warn("Analysis {} failed; retry {} of {} in {} ms", job.analysisId(), next, retry.maxAttempts(),
+                delayMs, failure);
+        // Retries were accepted once already, so they wait for room rather than being rejected.
+        retryScheduler.schedule(() -> Thread.ofVirtual().name("analysis-retry-" + job.analysisId()).start(() -> {
+            try {
+                queueOf(delivery).put(new Delivery(job, next));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private BlockingQueue<Delivery> queueOf(Delivery delivery) {
+        return queues.get(laneOf(delivery));
+    }
+
+    private static AnalysisLane laneOf(Delivery delivery) {
+        return delivery.job().lane() == null ? AnalysisLane.SMALL : delivery.job().lane();
+    }
+
+    private record Delivery(AnalysisJob job, int attempt) {
+    }
+}
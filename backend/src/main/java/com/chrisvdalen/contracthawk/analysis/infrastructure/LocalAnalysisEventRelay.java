@@ -0,0 +1,27 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisEventHub;
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisFinishedEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Without a broker every analysis runs on this node, so finished analyses go straight to the local
+ * {@link AnalysisEventHub} instead of through the events exchange.
+ */
+@Component
+@ConditionalOnProperty(prefix = "contracthawk.messaging", name = "transport", havingValue = "in-process")
+public class LocalAnalysisEventRelay {
+
+    private final AnalysisEventHub eventHub;
+
+    public LocalAnalysisEventRelay(AnalysisEventHub eventHub) {
+        this.eventHub = eventHub;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFinished(AnalysisFinishedEvent event) {
+        eventHub.publish(event.analysis());
+    }
+}
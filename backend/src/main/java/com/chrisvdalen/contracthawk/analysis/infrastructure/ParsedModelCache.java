@@ -0,0 +1,75 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Size-bounded cache of parse results keyed by content SHA-256. Only the {@link ParsedContract} is kept, not the
+ * swagger-parser model it was derived from, and entries are weighted by an estimate of their heap size in bytes: a
+ * fixed amount per operation, search symbol, validation message and lint finding. Eviction is Caffeine's
+ * W-TinyLFU. Hit, miss and eviction counts are exported as {@code cache.*} meters tagged
+ * {@code cache=contracthawk.parse}.
+ */
+@Component
+public class ParsedModelCache {
+
+    private static final String CACHE_NAME = "contracthawk.parse";
+    private static final int ITEM_WEIGHT = 128;
+
+    private final Cache<String, Entry> cache;
+
+    public ParsedModelCache(AnalysisProperties properties, MeterRegistry meterRegistry) {
+        AnalysisProperties.ParseCache config = properties.parseCache();
+        if (config == null || !config.enabled()) {
+            this.cache = null;
+            return;
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumWeight(config.maxWeight().toBytes())
+                .recordStats();
+        if (config.expireAfterAccess() != null) {
+            builder.expireAfterAccess(config.expireAfterAccess());
+        }
+        this.cache = builder
+                .<String, Entry>weigher((key, entry) -> entry.weight())
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<Entry> get(String contentSha256) {
+        if (cache == null || contentSha256 == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(contentSha256));
+    }
+
+    /**
+     * Stores a result computed outside the cache. Parsing is deliberately not done inside a Caffeine
+     * compute call, which would hold a hash-bin lock for the duration of a multi-second parse.
+     */
+    public void put(String contentSha256, Entry entry) {
+        if (cache == null || contentSha256 == null) {
+            return;
+        }
+        cache.put(contentSha256, entry);
+    }
+
+    /**
+     * @param sourceLength length of the parsed document, which bundle resolution charges against its size limit
+     */
+    public record Entry(ParsedContract contract, long sourceLength) {
+
+        int weight() {
+            long items = (long) contract.operations().size() + contract.symbols().size()
+                    + contract.validationMessages().size() + contract.lintFindings().size();
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, items * ITEM_WEIGHT));
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.application.SpecBundle;
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.springframework.stereotype.Component;
+import org.yaml.snakeyaml.LoaderOptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns a multi-file bundle into one self-contained document, so the rest of the analysis sees a single spec.
+ * A relative {@code $ref} to {@code /components/<type>/<name>} in another document is replaced by a reference
+ * to a component of the same name that is added to the root document, once per target; any other external
+ * target, such as a path item in its own file, is copied in place of the reference. Documents are taken from
+ * the {@link BundleDocumentCache} by their digest where possible. References that leave the bundle, point to a
+ * missing document or form a cycle of copies are left as they are and reported, and so are references to
+ * documents that would take the bundle past {@code contracthawk.analysis.max-bundle-size}, which are not read.
+ */
+@Component
+public class SpecBundleResolver {
+
+    private static final String REF = "$ref";
+    private static final int SNIFF_LIMIT = 1024;
+
+    private final BundleDocumentCache documentCache;
+    private final long maxBundleBytes;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper yamlMapper;
+
+    public SpecBundleResolver(BundleDocumentCache documentCache, AnalysisProperties properties) {
+        this.documentCache = documentCache;
+        this.maxBundleBytes = properties.maxBundleSize() == null ? Long.MAX_VALUE : properties.maxBundleSize().toBytes();
+        LoaderOptions loaderOptions = new LoaderOptions();
+        // SnakeYAML caps documents at 3M code points by default; the scanner lifts the cap the same way.
+        loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+        this.yamlMapper = new ObjectMapper(YAMLFactory.builder().loaderOptions(loaderOptions).build());
+    }
+
+    /**
+     * @param document the bundle as one JSON document, or the root document unchanged if it cannot be parsed,
+     *                 which leaves reporting that to the scan
+     * @param messages references that could not be resolved
+     */
+    record Result(byte[] document, List<String> messages) {
+    }
+
+    Result resolve(SpecBundle bundle) throws IOException {
+        SpecBundle.Document rootDocument = bundle.root();
+        BundleDocumentCache.Entry cached = documentCache.get(rootDocument.contentSha256())
+                .filter(entry -> entry.document() instanceof ObjectNode)
+                .orElse(null);
+        JsonNode root;
+        long rootLength;
+        if (cached == null) {
+            byte[] rootBytes;
+            try (InputStream in = rootDocument.source().open()) {
+                rootBytes = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBundleBytes + 1));
+            }
+            if (rootBytes.length > maxBundleBytes) {
+                return new Result(new byte[0], List.of(tooLarge(bundle.rootPath())));
+            }
+            try {
+                root = parse(rootBytes);
+            } catch (JsonProcessingException e) {
+                return new Result(rootBytes, List.of());
+            }
+            if (!(root instanceof ObjectNode)) {
+                return new Result(rootBytes, List.of());
+            }
+            rootLength = rootBytes.length;
+            documentCache.put(rootDocument.contentSha256(), root, rootLength);
+        } else {
+            root = cached.document();
+            rootLength = cached.sourceLength();
+        }
+
+        Resolution resolution = new Resolution(bundle, (ObjectNode) root.deepCopy(), maxBundleBytes - rootLength);
+        JsonNode resolved = resolution.resolveChildren(resolution.root, bundle.rootPath());
+        return new Result(jsonMapper.writeValueAsBytes(resolved), List.copyOf(resolution.messages));
+    }
+
+    private String tooLarge(String path) {
+        return "Bundle is larger than " + maxBundleBytes + " bytes; " + path + " was not read";
+    }
+
+    private JsonNode parse(byte[] bytes) throws IOException {
+        return (looksLikeJson(bytes) ? jsonMapper : yamlMapper).readTree(bytes);
+    }
+
+    private static boolean looksLikeJson(byte[] bytes) {
+        for (int i = 0; i < Math.min(bytes.length, SNIFF_LIMIT); i++) {
+            if (!Character.isWhitespace(bytes[i])) {
+                return bytes[i] == '{' || bytes[i] == '[';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State of resolving one bundle.
+     */
+    private final class Resolution {
+
+        private final SpecBundle bundle;
+        private final ObjectNode root;
+        private final Map<String, JsonNode> documents = new HashMap<>();
+        // Target ("path#pointer") to the local reference of the component it became.
+        private final Map<String, String> imported = new HashMap<>();
+        private final Set<String> copying = new HashSet<>();
+        private final Set<String> messages = new LinkedHashSet<>();
+        // Source bytes the bundle may still read, cached documents included.
+        private long remainingBytes;
+
+        Resolution(SpecBundle bundle, ObjectNode root, long remainingBytes) {
+            this.bundle = bundle;
+            this.root = root;
+            this.remainingBytes = remainingBytes;
+        }
+
+        /**
+         * Resolves the references below {@code node}, which belongs to document {@code path}, in place.
+         */
+        JsonNode resolveChildren(JsonNode node, String path) {
+            if (node instanceof ObjectNode object) {
+                List<String> fields = new ArrayList<>();
+                object.fieldNames().forEachRemaining(fields::add);
+                for (String field : fields) {
+                    object.set(field, resolve(object.get(field), path));
+                }
+            } else if (node instanceof ArrayNode array) {
+                for (int i = 0; i < array.size(); i++) {
+                    array.set(i, resolve(array.get(i), path));
+                }
+            }
+            return node;
+        }
+
+        private JsonNode resolve(JsonNode node, String path) {
+            JsonNode ref = node.get(REF);
+            if (ref == null || !ref.isTextual()) {
+                return resolveChildren(node, path);
+            }
+            JsonNode replacement = resolveRef(ref.asText(), path);
+            return replacement == null ? node : replacement;
+        }
+
+        /**
+         * @return the node to put in place of the reference, or {@code null} to keep it
+         */
+        private JsonNode resolveRef(String ref, String fromPath) {
+            if (ref.contains("://")) {
+                return null;
+            }
+            int hash = ref.indexOf('#');
+            String file = hash < 0 ? ref : ref.substring(0, hash);
+            String pointer = hash < 0 ? "" : ref.substring(hash + 1);
+            String targetPath = file.isEmpty() ? fromPath : resolvePath(fromPath, decode(file));
+            if (targetPath == null || !bundle.documents().containsKey(targetPath)) {
+                messages.add("Unresolved reference " + ref + " in " + fromPath + ": not in the bundle");
+                return null;
+            }
+            if (targetPath.equals(bundle.rootPath())) {
+                return file.isEmpty() ? null : refNode("#" + pointer);
+            }
+
+            String key = targetPath + "#" + pointer;
+            String local = imported.get(key);
+            if (local != null) {
+                return refNode(local);
+            }
+            JsonNode document = load(targetPath);
+            List<String> segments = segments(pointer);
+            JsonNode target = document == null ? null : at(document, segments);
+            if (target == null) {
+                messages.add("Unresolved reference " + ref + " in " + fromPath + ": no such target");
+                return null;
+            }
+
+            if (segments.size() == 3 && segments.getFirst().equals("components")) {
+                String type = segments.get(1);
+                ObjectNode components = object(object(root, "components"), type);
+                String name = uniqueName(components, segments.get(2));
+                local = "#/components/" + escape(type) + "/" + escape(name);
+                // Registered before its own references are resolved, so a component that refers to itself
+                // ends up referring to its copy.
+                imported.put(key, local);
+                components.set(name, target.deepCopy());
+                components.set(name, resolve(components.get(name), targetPath));
+                return refNode(local);
+            }
+
+            if (!copying.add(key)) {
+                messages.add("Circular reference " + ref + " in " + fromPath + " cannot be inlined");
+                return null;
+            }
+            try {
+                return resolve(target.deepCopy(), targetPath);
+            } finally {
+                copying.remove(key);
+            }
+        }
+
+        private JsonNode load(String path) {
+            if (documents.containsKey(path)) {
+                return documents.get(path);
+            }
+            SpecBundle.Document source = bundle.documents().get(path);
+            JsonNode document = null;
+            BundleDocumentCache.Entry cached = documentCache.get(source.contentSha256()).orElse(null);
+            if (cached != null) {
+                if (charge(path, cached.sourceLength())) {
+                    document = cached.document();
+                }
+            } else {
+                try (InputStream in = source.source().open()) {
+                    byte[] bytes = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, Math.max(0, remainingBytes) + 1));
+                    if (charge(path, bytes.length)) {
+                        document = parse(bytes);
+                        documentCache.put(source.contentSha256(), document, bytes.length);
+                    }
+                } catch (IOException e) {
+                    messages.add("Could not read " + path + ": " + e.getMessage());
+                }
+            }
+            documents.put(path, document);
+            return document;
+        }
+
+        private boolean charge(String path, long length) {
+            if (length > remainingBytes) {
+                messages.add(tooLarge(path));
+                return false;
+            }
+            remainingBytes -= length;
+            return true;
+        }
+
+        private ObjectNode refNode(String ref) {
+            return jsonMapper.createObjectNode().put(REF, ref);
+        }
+    }
+
+    /**
+     * @return {@code ref} resolved against the directory of {@code fromPath}, or {@code null} if it leaves the
+     * bundle
+     */
+    static String resolvePath(String fromPath, String ref) {
+        Deque<String> parts = new ArrayDeque<>();
+        if (!ref.startsWith("/")) {
+            String[] from = fromPath.split("/");
+            for (int i = 0; i < from.length - 1; i++) {
+                parts.addLast(from[i]);
+            }
+        }
+        for (String part : ref.split("/")) {
+            if (part.isEmpty() || part.equals(".")) {
+                continue;
+            }
+            if (part.equals("..")) {
+                if (parts.isEmpty()) {
+                    return null;
+                }
+                parts.removeLast();
+            } else {
+                parts.addLast(part);
+            }
+        }
+        return String.join("/", parts);
+    }
+
+    private static List<String> segments(String pointer) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pointer.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(decode(segment).replace("~1", "/").replace("~0", "~"));
+            }
+        }
+        return segments;
+    }
+
+    private static JsonNode at(JsonNode node, List<String> segments) {
+        JsonNode current = node;
+        for (String segment : segments) {
+            current = current.isArray() && segment.chars().allMatch(Character::isDigit)
+                    ? current.get(Integer.parseInt(segment))
+                    : current.get(segment);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private static ObjectNode object(ObjectNode parent, String field) {
+        JsonNode child = parent.get(field);
+        return child instanceof ObjectNode object ? object : parent.putObject(field);
+    }
+
+    private static String uniqueName(ObjectNode components, String name) {
+        String candidate = name;
+        for (int i = 2; components.has(candidate); i++) {
+            candidate = name + "_" + i;
+        }
+        return candidate;
+    }
+
+    private static String escape(String segment) {
+        return segment.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+}
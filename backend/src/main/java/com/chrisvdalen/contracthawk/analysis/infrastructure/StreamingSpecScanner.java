@@ -0,0 +1,267 @@
+package com.chrisvdalen.contracthawk.analysis.infrastructure;
+
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedOperation;
+import com.chrisvdalen.contracthawk.search.domain.SpecSymbol;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.yaml.snakeyaml.LoaderOptions;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Single-pass token scan of a JSON or YAML spec that extracts the path and operation inventory, and the
+ * symbols for the search index, without building a document tree. Memory use is bounded by the inventory
+ * itself, independent of document size, so this is the stage that always runs; full swagger-parser validation
+ * is a separate, optional stage.
+ *
+ * <p>Operation fingerprints are digests of the operation's token stream, which makes them stable across
+ * both stages and across re-analysis.
+ */
+class StreamingSpecScanner {
+
+    private static final Set<String> HTTP_METHODS =
+            Set.of("get", "put", "post", "delete", "options", "head", "patch", "trace");
+    private static final int FINGERPRINT_BYTES = 16;
+    private static final int SNIFF_LIMIT = 1024;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final YAMLFactory yamlFactory;
+
+    StreamingSpecScanner() {
+        LoaderOptions loaderOptions = new LoaderOptions();
+        // SnakeYAML caps documents at 3M code points by default, far below the specs this scanner is for.
+        loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+        this.yamlFactory = YAMLFactory.builder().loaderOptions(loaderOptions).build();
+    }
+
+    record ScanResult(String specVersion,
+                      boolean hasPaths,
+                      int pathCount,
+                      List<ParsedOperation> operations,
+                      List<SpecSymbol> symbols,
+                      long sizeBytes,
+                      String format,
+                      String error) {
+
+        boolean structurallyValid() {
+            return error == null && specVersion != null && hasPaths;
+        }
+    }
+
+    ScanResult scan(InputStream content) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(content);
+        JsonFactory factory = looksLikeJson(buffered) ? jsonFactory : yamlFactory;
+        String format = factory.getFormatName().toLowerCase(Locale.ROOT);
+        CountingInputStream counted = new CountingInputStream(buffered);
+
+        String specVersion = null;
+        boolean hasPaths = false;
+        int pathCount = 0;
+        List<ParsedOperation> operations = new ArrayList<>();
+        List<SpecSymbol> symbols = new ArrayList<>();
+        try (JsonParser parser = factory.createParser(counted)) {
+            // The caller owns the stream; it is drained below on early exit so the size is still known.
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                drain(counted);
+                return new ScanResult(null, false, 0, List.of(), List.of(), counted.count, format,
+                        "Document is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("openapi".equals(field) || "swagger".equals(field)) {
+                    specVersion = parser.getValueAsString();
+                } else if ("paths".equals(field) && value == JsonToken.START_OBJECT) {
+                    hasPaths = true;
+                    pathCount = scanPaths(parser, operations, symbols);
+                } else if ("components".equals(field) && value == JsonToken.START_OBJECT) {
+                    scanComponents(parser, symbols);
+                } else if ("definitions".equals(field) && value == JsonToken.START_OBJECT) {
+                    scanSchemaNames(parser, symbols);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            drain(counted);
+            return new ScanResult(specVersion, hasPaths, pathCount, operations, symbols, counted.count, format,
+                    "Parse error: " + e.getOriginalMessage());
+        }
+        return new ScanResult(specVersion, hasPaths, pathCount, operations, symbols, counted.count, format, null);
+    }
+
+    private static int scanPaths(JsonParser parser, List<ParsedOperation> operations, List<SpecSymbol> symbols)
+            throws IOException {
+        int pathCount = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (path.startsWith("x-") || value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            pathCount++;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.currentName().toLowerCase(Locale.ROOT);
+                parser.nextToken();
+                if (HTTP_METHODS.contains(key)) {
+                    String method = key.toUpperCase(Locale.ROOT);
+                    OperationFields fields = new OperationFields();
+                    operations.add(new ParsedOperation(path, method, fingerprint(parser, fields)));
+                    symbols.add(SpecSymbol.operation(path, method, fields.operationId, fields.tags));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return pathCount;
+    }
+
+    private static void scanComponents(JsonParser parser, List<SpecSymbol> symbols) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && "schemas".equals(field)) {
+                scanSchemaNames(parser, symbols);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void scanSchemaNames(JsonParser parser, List<SpecSymbol> symbols) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            parser.skipChildren();
+            if (!name.startsWith("x-")) {
+                symbols.add(SpecSymbol.schema(name));
+            }
+        }
+    }
+
+    /**
+     * Digests the value the parser is positioned on, consuming it entirely. The operationId and tags are picked
+     * up on the way into {@code fields}.
+     */
+    private static String fingerprint(JsonParser parser, OperationFields fields) throws IOException {
+        MessageDigest digest = sha256();
+        int depth = 0;
+        String field = null;
+        JsonToken token = parser.currentToken();
+        do {
+            digest.update((byte) token.id());
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> depth--;
+                case FIELD_NAME -> {
+                    digest.update(parser.currentName().getBytes(StandardCharsets.UTF_8));
+                    if (depth == 1) {
+                        field = parser.currentName();
+                    }
+                }
+                default -> {
+                    String text = parser.getText();
+                    digest.update(text.getBytes(StandardCharsets.UTF_8));
+                    if (depth == 1 && "operationId".equals(field)) {
+                        fields.operationId = text;
+                    } else if (depth == 2 && "tags".equals(field) && token == JsonToken.VALUE_STRING) {
+                        fields.tags.add(text);
+                    }
+                }
+            }
+            if (depth == 0) {
+                break;
+            }
+            token = parser.nextToken();
+        } while (token != null);
+        return HexFormat.of().formatHex(digest.digest(), 0, FINGERPRINT_BYTES);
+    }
+
+    private static boolean looksLikeJson(InputStream in) throws IOException {
+        in.mark(SNIFF_LIMIT);
+        try {
+            for (int i = 0; i < SNIFF_LIMIT; i++) {
+                int b = in.read();
+                if (b < 0) {
+                    return false;
+                }
+                // Skip whitespace and a UTF-8 byte order mark.
+                if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == 0xEF || b == 0xBB || b == 0xBF) {
+                    continue;
+                }
+                return b == '{';
+            }
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        in.transferTo(OutputStream.nullOutputStream());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class OperationFields {
+
+        private String operationId;
+        private final List<String> tags = new ArrayList<>();
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -1,39 +1,145 @@
 package com.chrisvdalen.contracthawk.analysis.infrastructure;
 
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisMetrics;
+import com.chrisvdalen.contracthawk.analysis.application.ContentSource;
 import com.chrisvdalen.contracthawk.analysis.application.ContractParser;
+import com.chrisvdalen.contracthawk.analysis.application.SpecBundle;
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
 import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+import com.chrisvdalen.contracthawk.analysis.lint.SpecLinter;
 import io.swagger.v3.oas.models.OpenAPI;
-import io.swagger.v3.oas.models.PathItem;
 import io.swagger.v3.parser.OpenAPIV3Parser;
 import io.swagger.v3.parser.core.models.SwaggerParseResult;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * Two-stage parser. The streaming scan always runs and supplies counts and the operation inventory;
+ * swagger-parser validation runs afterwards for specs up to {@code contracthawk.analysis.full-validation-max-size}.
+ * The source is opened and read once: a spec within that size is buffered and both stages read the buffer, a larger
+ * one is streamed through the scan after the buffered head. Parses that are not answered from the
+ * cache are timed by size bucket and format. A spec that swagger-parser could read is also run through the
+ * {@link SpecLinter}; specs that only get the structural scan are not linted.
+ *
+ * <p>A multi-file bundle is first resolved into one document by the {@link SpecBundleResolver} and then parsed
+ * like a single file; references it could not resolve become validation messages.
+ */
 @Component
 public class SwaggerContractParser implements ContractParser {
 
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final ParsedModelCache modelCache;
+    private final SpecBundleResolver bundleResolver;
+    private final SpecLinter linter;
+    private final AnalysisMetrics metrics;
+    private final StreamingSpecScanner scanner = new StreamingSpecScanner();
+    private final long fullValidationMaxBytes;
+    private final int bufferLimit;
+
+    public SwaggerContractParser(ParsedModelCache modelCache,
+                                 SpecBundleResolver bundleResolver,
+                                 SpecLinter linter,
+                                 AnalysisProperties properties,
+                                 AnalysisMetrics metrics) {
+        this.modelCache = modelCache;
+        this.bundleResolver = bundleResolver;
+        this.linter = linter;
+        this.metrics = metrics;
+        this.fullValidationMaxBytes = properties.fullValidationMaxSize() == null
+                ? Long.MAX_VALUE
+                : properties.fullValidationMaxSize().toBytes();
+        this.bufferLimit = (int) Math.min(fullValidationMaxBytes, MAX_ARRAY_LENGTH - 1) + 1;
+    }
+
     @Override
     public ParsedContract parse(InputStream content) throws IOException {
-        String body;
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8))) {
-            body = reader.lines().collect(Collectors.joining("\n"));
+        byte[] bytes = content.readAllBytes();
+        return parse(null, () -> new ByteArrayInputStream(bytes));
+    }
+
+    @Override
+    public ParsedContract parse(String contentSha256, ContentSource source) throws IOException {
+        Optional<ParsedModelCache.Entry> cached = modelCache.get(contentSha256);
+        if (cached.isPresent()) {
+            return cached.get().contract();
         }
+        return parseUncached(contentSha256, source, List.of(), System.nanoTime());
+    }
+
+    @Override
+    public ParsedContract parseBundle(String contentSha256, SpecBundle bundle) throws IOException {
+        Optional<ParsedModelCache.Entry> cached = modelCache.get(contentSha256);
+        if (cached.isPresent()) {
+            return cached.get().contract();
+        }
+        long start = System.nanoTime();
+        SpecBundleResolver.Result resolved = bundleResolver.resolve(bundle);
+        return parseUncached(contentSha256, () -> new ByteArrayInputStream(resolved.document()), resolved.messages(),
+                start);
+    }
 
-        SwaggerParseResult result;
+    /**
+     * @param bundleMessages problems found while resolving a bundle, which make the spec invalid
+     */
+    private ParsedContract parseUncached(String contentSha256, ContentSource source, List<String> bundleMessages,
+                                         long start) throws IOException {
+        StreamingSpecScanner.ScanResult scan;
+        byte[] body;
+        try (InputStream content = source.open()) {
+            // A short read means the whole spec is in the buffer; the extra byte tells a spec at the limit from a
+            // larger one.
+            byte[] head = content.readNBytes(bufferLimit);
+            if (head.length < bufferLimit) {
+                body = head;
+                scan = scanner.scan(new ByteArrayInputStream(body));
+            } else {
+                body = null;
+                scan = scanner.scan(new SequenceInputStream(new ByteArrayInputStream(head), content));
+            }
+        }
+
+        ParsedContract parsed;
+        SwaggerParseResult model = null;
+        if (body != null) {
+            model = readModel(new String(body, StandardCharsets.UTF_8));
+            parsed = validated(scan, model, lint(model));
+        } else {
+            parsed = structural(scan);
+        }
+        if (!bundleMessages.isEmpty()) {
+            parsed = withMessages(parsed, bundleMessages);
+        }
+
+        metrics.recordParse(Duration.ofNanos(System.nanoTime() - start), scan.sizeBytes(), scan.format(), model != null);
+        modelCache.put(contentSha256, new ParsedModelCache.Entry(parsed, scan.sizeBytes()));
+        return parsed;
+    }
+
+    private static SwaggerParseResult readModel(String body) {
         try {
-            result = new OpenAPIV3Parser().readContents(body, null, null);
+            return new OpenAPIV3Parser().readContents(body, null, null);
         } catch (RuntimeException e) {
-            return new ParsedContract(false, 0, 0, List.of("Parse error: " + e.getMessage()));
+            return new SwaggerParseResult().messages(List.of("Parse error: " + e.getMessage()));
         }
+    }
+
+    private List<LintFinding> lint(SwaggerParseResult model) {
+        return model.getOpenAPI() == null ? List.of() : linter.lint(model.getOpenAPI());
+    }
 
+    private static ParsedContract validated(StreamingSpecScanner.ScanResult scan, SwaggerParseResult result,
+                                            List<LintFinding> lintFindings) {
         List<String> messages = Optional.ofNullable(result.getMessages()).orElse(List.of());
         OpenAPI openApi = result.getOpenAPI();
 
@@ -41,28 +147,26 @@ public class SwaggerContractParser implements ContractParser {
             return new ParsedContract(false, 0, 0, messages);
         }
 
-        int pathCount = openApi.getPaths().size();
-        int operationCount = openApi.getPaths().values().stream()
-                .mapToInt(SwaggerContractParser::countOperations)
-                .sum();
-
         boolean valid = messages.isEmpty();
-        return new ParsedContract(valid, pathCount, operationCount, messages);
+        return new ParsedContract(valid, scan.pathCount(), scan.operations().size(), messages, scan.operations(), true,
+                scan.symbols(), lintFindings);
+    }
+
+    private static ParsedContract withMessages(ParsedContract parsed, List<String> messages) {
+        List<String> all = new ArrayList<>(messages);
+        all.addAll(parsed.validationMessages());
+        return new ParsedContract(false, parsed.pathCount(), parsed.operationCount(), all, parsed.operations(),
+                parsed.fullyValidated(), parsed.symbols(), parsed.lintFindings());
     }
 
-    private static int countOperations(PathItem item) {
-        if (item == null) {
-            return 0;
+    private static ParsedContract structural(StreamingSpecScanner.ScanResult scan) {
+        if (!scan.structurallyValid()) {
+            List<String> messages = scan.error() != null
+                    ? List.of(scan.error())
+                    : List.of("Document has no openapi version or paths object");
+            return new ParsedContract(false, 0, 0, messages, List.of(), false);
         }
-        int count = 0;
-        if (item.getGet() != null) count++;
-        if (item.getPost() != null) count++;
-        if (item.getPut() != null) count++;
-        if (item.getDelete() != null) count++;
-        if (item.getPatch() != null) count++;
-        if (item.getHead() != null) count++;
-        if (item.getOptions() != null) count++;
-        if (item.getTrace() != null) count++;
-        return count;
+        return new ParsedContract(true, scan.pathCount(), scan.operations().size(), List.of(), scan.operations(), false,
+                scan.symbols());
     }
 }
@@ -0,0 +1,160 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names that do not follow the case style most names of their kind in the spec use. Path segments, path and query
+ * parameters and schema properties are each judged on their own, since styles commonly differ between them.
+ * Single-word names fit any style and are ignored.
+ */
+@Component
+public class InconsistentNamingRule implements LintRule {
+
+    enum Style {
+        CAMEL_CASE("camelCase"),
+        PASCAL_CASE("PascalCase"),
+        SNAKE_CASE("snake_case"),
+        KEBAB_CASE("kebab-case");
+
+        private final String label;
+
+        Style(String label) {
+            this.label = label;
+        }
+    }
+
+    @Override
+    public String id() {
+        return "inconsistent-naming";
+    }
+
+    @Override
+    public LintVisitor start(LintContext context) {
+        Kind pathSegments = new Kind("path segment");
+        Kind parameters = new Kind("parameter");
+        Kind properties = new Kind("property");
+        return new LintVisitor() {
+            private final Set<String> seenPaths = new HashSet<>();
+
+            @Override
+            public void visitOperation(String location, String path, PathItem.HttpMethod method, Operation operation) {
+                if (!seenPaths.add(path)) {
+                    return;
+                }
+                String pathLocation = location.substring(0, location.lastIndexOf('/'));
+                for (String segment : path.split("/")) {
+                    if (!segment.startsWith("{")) {
+                        pathSegments.add(pathLocation, segment);
+                    }
+                }
+            }
+
+            @Override
+            public void visitParameter(String location, Parameter parameter) {
+                if ("path".equals(parameter.getIn()) || "query".equals(parameter.getIn())) {
+                    parameters.add(location, parameter.getName());
+                }
+            }
+
+            @Override
+            public void visitSchema(String location, Schema<?> schema) {
+                if (schema.getProperties() != null) {
+                    schema.getProperties().keySet().forEach(name ->
+                            properties.add(location + "/properties/" + RefResolver.escape(name), name));
+                }
+            }
+
+            @Override
+            public void finish() {
+                pathSegments.report(context);
+                parameters.report(context);
+                properties.report(context);
+            }
+        };
+    }
+
+    /**
+     * @return the style of a name of more than one word, or {@code null} if it has none or mixes them
+     */
+    static Style styleOf(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        boolean dash = name.indexOf('-') >= 0;
+        boolean underscore = name.indexOf('_') >= 0;
+        boolean upper = name.chars().anyMatch(Character::isUpperCase);
+        boolean laterUpper = name.chars().skip(1).anyMatch(Character::isUpperCase);
+        if (dash && !underscore && !upper) {
+            return Style.KEBAB_CASE;
+        }
+        if (underscore && !dash && !upper) {
+            return Style.SNAKE_CASE;
+        }
+        if (dash || underscore || !laterUpper) {
+            return null;
+        }
+        return Character.isUpperCase(name.charAt(0)) ? Style.PASCAL_CASE : Style.CAMEL_CASE;
+    }
+
+    /**
+     * The names of one kind seen in the spec, by style.
+     */
+    private static final class Kind {
+
+        private final String label;
+        private final Map<Style, List<Name>> byStyle = new EnumMap<>(Style.class);
+        private Style first;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        void add(String location, String name) {
+            Style style = styleOf(name);
+            if (style == null) {
+                return;
+            }
+            if (first == null) {
+                first = style;
+            }
+            byStyle.computeIfAbsent(style, s -> new ArrayList<>()).add(new Name(location, name));
+        }
+
+        void report(LintContext context) {
+            if (byStyle.size() < 2) {
+                return;
+            }
+            // The most common style wins; on a tie, the one seen first.
+            Style dominant = first;
+            for (Map.Entry<Style, List<Name>> entry : byStyle.entrySet()) {
+                if (entry.getValue().size() > byStyle.get(dominant).size()) {
+                    dominant = entry.getKey();
+                }
+            }
+            for (Map.Entry<Style, List<Name>> entry : byStyle.entrySet()) {
+                if (entry.getKey() == dominant) {
+                    continue;
+                }
+                for (Name name : entry.getValue()) {
+                    context.report(LintFinding.Severity.INFO, name.location(), "The " + label + " " + name.name()
+                            + " is " + entry.getKey().label + ", while most in this spec are " + dominant.label);
+                }
+            }
+        }
+    }
+
+    private record Name(String location, String name) {
+    }
+}
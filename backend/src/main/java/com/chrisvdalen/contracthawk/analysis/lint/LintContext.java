@@ -0,0 +1,42 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
+import io.swagger.v3.oas.models.OpenAPI;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * What a rule's visitor sees of the spec besides the walk: the model, memoized {@code $ref} resolution shared by
+ * all rules, and a place to report findings.
+ */
+public final class LintContext {
+
+    private final String rule;
+    private final OpenAPI openApi;
+    private final RefResolver resolver;
+    private final List<LintFinding> findings;
+
+    LintContext(String rule, OpenAPI openApi, RefResolver resolver, List<LintFinding> findings) {
+        this.rule = rule;
+        this.openApi = openApi;
+        this.resolver = resolver;
+        this.findings = findings;
+    }
+
+    public OpenAPI openApi() {
+        return openApi;
+    }
+
+    /**
+     * @return the component a local reference such as {@code #/components/schemas/Order} points to, if it exists
+     * and is of the given type
+     */
+    public <T> Optional<T> resolve(String ref, Class<T> type) {
+        return resolver.resolve(ref, type);
+    }
+
+    public void report(LintFinding.Severity severity, String location, String message) {
+        findings.add(new LintFinding(rule, severity, location, message));
+    }
+}
@@ -0,0 +1,18 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+/**
+ * A lint rule. Rules are Spring beans collected by the {@link SpecLinter}, which walks each spec once and hands
+ * every node to the visitors of all rules, so adding a rule does not add a traversal.
+ */
+public interface LintRule {
+
+    /**
+     * @return a stable id, used in findings and as the {@code rule} tag of the timing metric
+     */
+    String id();
+
+    /**
+     * @return the visitor for one spec; it may keep state, since it is used for that spec only
+     */
+    LintVisitor start(LintContext context);
+}
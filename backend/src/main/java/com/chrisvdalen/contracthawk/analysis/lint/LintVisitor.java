@@ -0,0 +1,44 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+
+/**
+ * Callbacks of the walk over one spec. Locations are JSON pointers into the spec; a node reached through a
+ * {@code $ref} is located at the component it refers to. Each node is visited once, however often it is
+ * referenced.
+ */
+public interface LintVisitor {
+
+    /**
+     * Called first, once for every declared component of a type the walk follows references to: {@code schemas},
+     * {@code responses}, {@code parameters}, {@code requestBodies}, {@code headers}, {@code callbacks},
+     * {@code links} and {@code pathItems}.
+     */
+    default void visitComponent(String type, String name) {
+    }
+
+    default void visitOperation(String location, String path, PathItem.HttpMethod method, Operation operation) {
+    }
+
+    default void visitParameter(String location, Parameter parameter) {
+    }
+
+    default void visitSchema(String location, Schema<?> schema) {
+    }
+
+    /**
+     * Called for every {@code $ref} met on the way from the paths and webhooks, including references between
+     * components reached that way; references inside components nothing refers to are not reported.
+     */
+    default void visitRef(String ref) {
+    }
+
+    /**
+     * Called after the walk, for rules that report on the spec as a whole.
+     */
+    default void finish() {
+    }
+}
@@ -0,0 +1,31 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import org.springframework.stereotype.Component;
+
+/**
+ * Operations without an {@code operationId}, which client generators then have to name themselves.
+ */
+@Component
+public class MissingOperationIdRule implements LintRule {
+
+    @Override
+    public String id() {
+        return "missing-operation-id";
+    }
+
+    @Override
+    public LintVisitor start(LintContext context) {
+        return new LintVisitor() {
+            @Override
+            public void visitOperation(String location, String path, PathItem.HttpMethod method, Operation operation) {
+                if (operation.getOperationId() == null || operation.getOperationId().isBlank()) {
+                    context.report(LintFinding.Severity.WARNING, location,
+                            method + " " + path + " has no operationId");
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves local {@code #/components/<type>/<name>} references of one spec, each at most once.
+ */
+final class RefResolver {
+
+    private static final String PREFIX = "#/components/";
+
+    private final Components components;
+    private final Map<String, Object> resolved = new HashMap<>();
+
+    RefResolver(OpenAPI openApi) {
+        this.components = openApi.getComponents();
+    }
+
+    <T> Optional<T> resolve(String ref, Class<T> type) {
+        // Misses are remembered too, so a dangling reference is not looked up again either.
+        if (!resolved.containsKey(ref)) {
+            resolved.put(ref, lookup(ref));
+        }
+        Object target = resolved.get(ref);
+        return type.isInstance(target) ? Optional.of(type.cast(target)) : Optional.empty();
+    }
+
+    private Object lookup(String ref) {
+        if (components == null || !ref.startsWith(PREFIX)) {
+            return null;
+        }
+        String[] segments = ref.substring(PREFIX.length()).split("/", -1);
+        if (segments.length != 2) {
+            return null;
+        }
+        Map<String, ?> declared = declared(components, segments[0]);
+        return declared == null ? null : declared.get(unescape(segments[1]));
+    }
+
+    /**
+     * @return the components of that type, or {@code null} if there are none or the type is unknown
+     */
+    static Map<String, ?> declared(Components components, String type) {
+        return switch (type) {
+            case "schemas" -> components.getSchemas();
+            case "responses" -> components.getResponses();
+            case "parameters" -> components.getParameters();
+            case "requestBodies" -> components.getRequestBodies();
+            case "headers" -> components.getHeaders();
+            case "examples" -> components.getExamples();
+            case "links" -> components.getLinks();
+            case "callbacks" -> components.getCallbacks();
+            case "securitySchemes" -> components.getSecuritySchemes();
+            case "pathItems" -> components.getPathItems();
+            default -> null;
+        };
+    }
+
+    static String escape(String segment) {
+        return segment.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static String unescape(String segment) {
+        return segment.replace("~1", "/").replace("~0", "~");
+    }
+}
@@ -0,0 +1,336 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisMetrics;
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.callbacks.Callback;
+import io.swagger.v3.oas.models.headers.Header;
+import io.swagger.v3.oas.models.links.Link;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs all {@link LintRule}s over a spec in a single walk of its model. The walk starts at the paths and webhooks,
+ * goes into the callbacks of operations and the links of responses, and follows {@code $ref}s into the components,
+ * visiting every target once; components that nothing refers to are walked
+ * afterwards, so every node is still seen exactly once. The time each rule spends in its callbacks is recorded per
+ * spec in {@code contracthawk.analysis.lint.rule}. A rule that throws is skipped for the rest of that spec rather
+ * than failing the analysis.
+ */
+@Component
+public class SpecLinter {
+
+    private static final Logger log = LoggerFactory.getLogger(SpecLinter.class);
+
+    /**
+     * Component types whose references the walk follows, and so the ones it can tell are unused.
+     */
+    static final List<String> WALKED_COMPONENT_TYPES =
+            List.of("schemas", "responses", "parameters", "requestBodies", "headers", "callbacks", "links", "pathItems");
+
+    private final List<LintRule> rules;
+    private final AnalysisMetrics metrics;
+
+    public SpecLinter(List<LintRule> rules, AnalysisMetrics metrics) {
+        this.rules = List.copyOf(rules);
+        this.metrics = metrics;
+    }
+
+    public List<LintFinding> lint(OpenAPI openApi) {
+        if (rules.isEmpty()) {
+            return List.of();
+        }
+        Walk walk = new Walk(openApi);
+        walk.run();
+        for (int i = 0; i < rules.size(); i++) {
+            metrics.recordLintRule(rules.get(i).id(), Duration.ofNanos(walk.nanos[i]));
+        }
+        return List.copyOf(walk.findings);
+    }
+
+    /**
+     * State of linting one spec.
+     */
+    private final class Walk {
+
+        private final OpenAPI openApi;
+        private final RefResolver resolver;
+        private final List<LintFinding> findings = new ArrayList<>();
+        private final LintVisitor[] visitors = new LintVisitor[rules.size()];
+        private final long[] nanos = new long[rules.size()];
+        // By identity: the model's equals and hashCode compare whole subtrees.
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private boolean fromPaths = true;
+
+        Walk(OpenAPI openApi) {
+            this.openApi = openApi;
+            this.resolver = new RefResolver(openApi);
+        }
+
+        void run() {
+            for (int i = 0; i < rules.size(); i++) {
+                LintContext context = new LintContext(rules.get(i).id(), openApi, resolver, findings);
+                int rule = i;
+                time(i, () -> visitors[rule] = rules.get(rule).start(context));
+            }
+
+            Components components = openApi.getComponents();
+            if (components != null) {
+                for (String type : WALKED_COMPONENT_TYPES) {
+                    Map<String, ?> declared = RefResolver.declared(components, type);
+                    if (declared != null) {
+                        declared.keySet().forEach(name -> dispatch(visitor -> visitor.visitComponent(type, name)));
+                    }
+                }
+            }
+
+            if (openApi.getPaths() != null) {
+                openApi.getPaths().forEach((path, item) ->
+                        walkPathItem("#/paths/" + RefResolver.escape(path), path, item));
+            }
+            if (openApi.getWebhooks() != null) {
+                openApi.getWebhooks().forEach((name, item) ->
+                        walkPathItem("#/webhooks/" + RefResolver.escape(name), name, item));
+            }
+
+            fromPaths = false;
+            if (components != null) {
+                walkComponents(components.getSchemas(), "schemas", this::walkSchema);
+                walkComponents(components.getResponses(), "responses", this::walkResponse);
+                walkComponents(components.getParameters(), "parameters", this::walkParameter);
+                walkComponents(components.getRequestBodies(), "requestBodies", this::walkRequestBody);
+                walkComponents(components.getHeaders(), "headers", this::walkHeader);
+                walkComponents(components.getCallbacks(), "callbacks", this::walkCallback);
+                walkComponents(components.getLinks(), "links", this::walkLink);
+                if (components.getPathItems() != null) {
+                    components.getPathItems().forEach((name, item) ->
+                            walkPathItem("#/components/pathItems/" + RefResolver.escape(name), name, item));
+                }
+            }
+
+            dispatch(LintVisitor::finish);
+        }
+
+        private <T> void walkComponents(Map<String, T> declared, String type, BiConsumer<String, T> walker) {
+            if (declared != null) {
+                declared.forEach((name, node) ->
+                        walker.accept("#/components/" + type + "/" + RefResolver.escape(name), node));
+            }
+        }
+
+        private void walkPathItem(String location, String path, PathItem item) {
+            if (!enter(item)) {
+                return;
+            }
+            if (item.get$ref() != null) {
+                follow(item.get$ref(), PathItem.class, (ref, target) -> walkPathItem(ref, path, target));
+            }
+            walkParameters(location, item.getParameters());
+            item.readOperationsMap().forEach((method, operation) -> {
+                String operationLocation = location + "/" + method.name().toLowerCase(Locale.ROOT);
+                walkOperation(operationLocation, path, method, operation);
+            });
+        }
+
+        private void walkOperation(String location, String path, PathItem.HttpMethod method, Operation operation) {
+            if (!enter(operation)) {
+                return;
+            }
+            dispatch(visitor -> visitor.visitOperation(location, path, method, operation));
+            walkParameters(location, operation.getParameters());
+            walkRequestBody(location + "/requestBody", operation.getRequestBody());
+            if (operation.getResponses() != null) {
+                operation.getResponses().forEach((status, response) ->
+                        walkResponse(location + "/responses/" + RefResolver.escape(status), response));
+            }
+            if (operation.getCallbacks() != null) {
+                operation.getCallbacks().forEach((name, callback) ->
+                        walkCallback(location + "/callbacks/" + RefResolver.escape(name), callback));
+            }
+        }
+
+        /**
+         * A callback maps runtime expressions to path items, whose operations are walked like those of the paths.
+         */
+        private void walkCallback(String location, Callback callback) {
+            if (!enter(callback)) {
+                return;
+            }
+            if (callback.get$ref() != null) {
+                follow(callback.get$ref(), Callback.class, this::walkCallback);
+                return;
+            }
+            callback.forEach((expression, item) ->
+                    walkPathItem(location + "/" + RefResolver.escape(expression), expression, item));
+        }
+
+        private void walkParameters(String location, List<Parameter> parameters) {
+            if (parameters != null) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    walkParameter(location + "/parameters/" + i, parameters.get(i));
+                }
+            }
+        }
+
+        private void walkParameter(String location, Parameter parameter) {
+            if (!enter(parameter)) {
+                return;
+            }
+            if (parameter.get$ref() != null) {
+                follow(parameter.get$ref(), Parameter.class, this::walkParameter);
+                return;
+            }
+            dispatch(visitor -> visitor.visitParameter(location, parameter));
+            walkSchema(location + "/schema", parameter.getSchema());
+            walkContent(location + "/content", parameter.getContent());
+        }
+
+        private void walkRequestBody(String location, RequestBody requestBody) {
+            if (!enter(requestBody)) {
+                return;
+            }
+            if (requestBody.get$ref() != null) {
+                follow(requestBody.get$ref(), RequestBody.class, this::walkRequestBody);
+                return;
+            }
+            walkContent(location + "/content", requestBody.getContent());
+        }
+
+        private void walkResponse(String location, ApiResponse response) {
+            if (!enter(response)) {
+                return;
+            }
+            if (response.get$ref() != null) {
+                follow(response.get$ref(), ApiResponse.class, this::walkResponse);
+                return;
+            }
+            if (response.getHeaders() != null) {
+                response.getHeaders().forEach((name, header) ->
+                        walkHeader(location + "/headers/" + RefResolver.escape(name), header));
+            }
+            if (response.getLinks() != null) {
+                response.getLinks().forEach((name, link) ->
+                        walkLink(location + "/links/" + RefResolver.escape(name), link));
+            }
+            walkContent(location + "/content", response.getContent());
+        }
+
+        private void walkLink(String location, Link link) {
+            if (enter(link) && link.get$ref() != null) {
+                follow(link.get$ref(), Link.class, this::walkLink);
+            }
+        }
+
+        private void walkHeader(String location, Header header) {
+            if (!enter(header)) {
+                return;
+            }
+            if (header.get$ref() != null) {
+                follow(header.get$ref(), Header.class, this::walkHeader);
+                return;
+            }
+            walkSchema(location + "/schema", header.getSchema());
+            walkContent(location + "/content", header.getContent());
+        }
+
+        private void walkContent(String location, Content content) {
+            if (content != null) {
+                content.forEach((mediaType, media) ->
+                        walkSchema(location + "/" + RefResolver.escape(mediaType) + "/schema", media.getSchema()));
+            }
+        }
+
+        @SuppressWarnings("rawtypes")
+        private void walkSchema(String location, Schema<?> schema) {
+            if (!enter(schema)) {
+                return;
+            }
+            if (schema.get$ref() != null) {
+                follow(schema.get$ref(), Schema.class, (ref, target) -> walkSchema(ref, (Schema<?>) target));
+                return;
+            }
+            dispatch(visitor -> visitor.visitSchema(location, schema));
+            if (schema.getProperties() != null) {
+                schema.getProperties().forEach((name, property) ->
+                        walkSchema(location + "/properties/" + RefResolver.escape(name), property));
+            }
+            walkSchema(location + "/items", schema.getItems());
+            if (schema.getAdditionalProperties() instanceof Schema additional) {
+                walkSchema(location + "/additionalProperties", (Schema<?>) additional);
+            }
+            walkSchemas(location + "/allOf", schema.getAllOf());
+            walkSchemas(location + "/anyOf", schema.getAnyOf());
+            walkSchemas(location + "/oneOf", schema.getOneOf());
+            walkSchema(location + "/not", schema.getNot());
+            if (schema.getDiscriminator() != null && schema.getDiscriminator().getMapping() != null) {
+                // Mapping values are references too, either full or just the schema name.
+                schema.getDiscriminator().getMapping().values().forEach(value -> follow(
+                        value.startsWith("#") ? value : "#/components/schemas/" + value, Schema.class,
+                        (ref, target) -> walkSchema(ref, (Schema<?>) target)));
+            }
+        }
+
+        private void walkSchemas(String location, List<Schema> schemas) {
+            if (schemas != null) {
+                for (int i = 0; i < schemas.size(); i++) {
+                    walkSchema(location + "/" + i, schemas.get(i));
+                }
+            }
+        }
+
+        private <T> void follow(String ref, Class<T> type, BiConsumer<String, T> walker) {
+            if (fromPaths) {
+                dispatch(visitor -> visitor.visitRef(ref));
+            }
+            resolver.resolve(ref, type).ifPresent(target -> walker.accept(ref, target));
+        }
+
+        /**
+         * @return {@code false} if there is no node or it has been walked already
+         */
+        private boolean enter(Object node) {
+            return node != null && visited.add(node);
+        }
+
+        private void dispatch(Consumer<LintVisitor> callback) {
+            for (int i = 0; i < visitors.length; i++) {
+                LintVisitor visitor = visitors[i];
+                if (visitor != null) {
+                    time(i, () -> callback.accept(visitor));
+                }
+            }
+        }
+
+        private void time(int rule, Runnable callback) {
+            long start = System.nanoTime();
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.warn("Lint rule {} failed; skipping it for the rest of this spec", rules.get(rule).id(), e);
+                visitors[rule] = null;
+            } finally {
+                nanos[rule] += System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Operations that document no client error (4xx) or no server error (5xx) response. A {@code default} response
+ * covers both.
+ */
+@Component
+public class UndocumentedErrorResponsesRule implements LintRule {
+
+    private static final List<String> ERROR_CLASSES = List.of("4", "5");
+
+    @Override
+    public String id() {
+        return "undocumented-error-responses";
+    }
+
+    @Override
+    public LintVisitor start(LintContext context) {
+        return new LintVisitor() {
+            @Override
+            public void visitOperation(String location, String path, PathItem.HttpMethod method, Operation operation) {
+                Set<String> statuses = operation.getResponses() == null ? Set.of() : operation.getResponses().keySet();
+                if (statuses.contains("default")) {
+                    return;
+                }
+                for (String errorClass : ERROR_CLASSES) {
+                    if (statuses.stream().noneMatch(status -> status.startsWith(errorClass))) {
+                        context.report(LintFinding.Severity.WARNING, location + "/responses",
+                                method + " " + path + " documents no " + errorClass + "xx response");
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.chrisvdalen.contracthawk.analysis.lint;
+
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Components that no operation uses, directly or through other components. A component referred to only by other
+ * unused components is unused as well.
+ */
+@Component
+public class UnusedComponentsRule implements LintRule {
+
+    @Override
+    public String id() {
+        return "unused-component";
+    }
+
+    @Override
+    public LintVisitor start(LintContext context) {
+        return new LintVisitor() {
+            private final Set<String> declared = new LinkedHashSet<>();
+            private final Set<String> referenced = new HashSet<>();
+
+            @Override
+            public void visitComponent(String type, String name) {
+                declared.add("#/components/" + type + "/" + RefResolver.escape(name));
+            }
+
+            @Override
+            public void visitRef(String ref) {
+                referenced.add(ref);
+            }
+
+            @Override
+            public void finish() {
+                for (String component : declared) {
+                    if (!referenced.contains(component)) {
+                        context.report(LintFinding.Severity.WARNING, component,
+                                "Component " + component + " is not used by any operation");
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package com.chrisvdalen.contracthawk.analysis.repository;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ownership of analyses while they are processed. Every transition is a single conditional UPDATE, so
+ * concurrent workers and duplicate deliveries race on the row rather than on application state.
+ */
+@Repository
+public class AnalysisClaimRepository {
+
+    // Latest earlier upload of the same service as contract c, ordered as the upload path does.
+    private static final String PREVIOUS_CONTRACT_ID = """
+            (SELECT p.id
+             FROM contract p
+             WHERE p.service_name = c.service_name
+               AND (p.uploaded_at, p.id) < (c.uploaded_at, c.id)
+             ORDER BY p.uploaded_at DESC, p.id DESC
+             LIMIT 1) AS previous_contract_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnalysisClaimRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Moves the PENDING analyses among {@code analysisIds} to PROCESSING under {@code workerId}.
+     *
+     * @return the ids that were claimed; any other id is missing, already claimed or finished
+     */
+    public Set<Long> claim(Collection<Long> analysisIds, String workerId, OffsetDateTime now, OffsetDateTime leaseExpiresAt) {
+        return new HashSet<>(jdbcTemplate.query(
+                """
+                UPDATE contract_analysis
+                SET status = 'PROCESSING', started_at = ?, claimed_by = ?, lease_expires_at = ?
+                WHERE id = ANY (?) AND status = 'PENDING'
+                RETURNING id
+                """,
+                ps -> {
+                    ps.setTimestamp(1, Timestamp.from(now.toInstant()));
+                    ps.setString(2, workerId);
+                    ps.setTimestamp(3, Timestamp.from(leaseExpiresAt.toInstant()));
+                    ps.setArray(4, bigintArray(ps.getConnection(), analysisIds));
+                },
+                (rs, rowNum) -> rs.getLong("id")));
+    }
+
+    /**
+     * Hands analyses claimed by {@code workerId} back as PENDING, so that a retry of the job can claim them again.
+     */
+    public void release(Collection<Long> analysisIds, String workerId) {
+        jdbcTemplate.update(
+                """
+                UPDATE contract_analysis
+                SET status = 'PENDING', started_at = NULL, claimed_by = NULL, lease_expires_at = NULL
+                WHERE id = ANY (?) AND status = 'PROCESSING' AND claimed_by = ?
+                """,
+                ps -> {
+                    ps.setArray(1, bigintArray(ps.getConnection(), analysisIds));
+                    ps.setString(2, workerId);
+                });
+    }
+
+    /**
+     * Extends the lease of those of {@code analysisIds} that {@code workerId} still holds.
+     */
+    public int renewLeases(Collection<Long> analysisIds, String workerId, OffsetDateTime leaseExpiresAt) {
+        return jdbcTemplate.update(
+                """
+                UPDATE contract_analysis
+                SET lease_expires_at = ?
+                WHERE id = ANY (?) AND claimed_by = ? AND status = 'PROCESSING'
+                """,
+                ps -> {
+                    ps.setTimestamp(1, Timestamp.from(leaseExpiresAt.toInstant()));
+                    ps.setArray(2, bigintArray(ps.getConnection(), analysisIds));
+                    ps.setString(3, workerId);
+                });
+    }
+
+    /**
+     * Moves an analysis that {@code workerId} holds to its final {@code status} and gives up the claim. The row
+     * stays locked until the transaction ends, so the results written after it in the same transaction cannot
+     * race a reclaim.
+     *
+     * @return {@code false} if the analysis is no longer PROCESSING under {@code workerId}, e.g. because its
+     * lease ran out and another worker claimed it; nothing is written then
+     */
+    public boolean finish(long analysisId, String workerId, AnalysisStatus status, OffsetDateTime finishedAt) {
+        return jdbcTemplate.update(
+                """
+                UPDATE contract_analysis
+                SET status = ?, finished_at = ?, claimed_by = NULL, lease_expires_at = NULL
+                WHERE id = ? AND status = 'PROCESSING' AND claimed_by = ?
+                """,
+                status.name(), Timestamp.from(finishedAt.toInstant()), analysisId, workerId) == 1;
+    }
+
+    /**
+     * Resets up to {@code limit} PROCESSING analyses whose lease ran out to PENDING and returns the jobs to
+     * publish for them again. Rows locked by a concurrent reclaim on another node are skipped.
+     */
+    public List<AnalysisJob> reclaimExpired(OffsetDateTime now, int limit) {
+        return jdbcTemplate.query(
+                """
+                WITH expired AS (
+                    SELECT id
+                    FROM contract_analysis
+                    WHERE status = 'PROCESSING' AND lease_expires_at < ?
+                    ORDER BY lease_expires_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                UPDATE contract_analysis a
+                SET status = 'PENDING', started_at = NULL, claimed_by = NULL, lease_expires_at = NULL
+                FROM expired e, contract c
+                WHERE a.id = e.id AND c.id = a.contract_id
+                RETURNING a.id, a.contract_id, a.lane, c.storage_path, c.content_sha256,
+                """ + PREVIOUS_CONTRACT_ID,
+                jobMapper(now),
+                Timestamp.from(now.toInstant()), limit);
+    }
+
+    /**
+     * Pages through PENDING analyses that have no job in the outbox, in id order after {@code afterId}. With
+     * jobs held only in memory, these are the ones whose job was lost when the node stopped.
+     */
+    public List<AnalysisJob> findPendingWithoutOutboxEntry(long afterId, OffsetDateTime now, int limit) {
+        return jdbcTemplate.query(
+                """
+                SELECT a.id, a.contract_id, a.lane, c.storage_path, c.content_sha256,
+                """ + PREVIOUS_CONTRACT_ID + """
+                FROM contract_analysis a
+                JOIN contract c ON c.id = a.contract_id
+                WHERE a.status = 'PENDING' AND a.id > ?
+                  AND NOT EXISTS (SELECT 1 FROM analysis_outbox o WHERE o.analysis_id = a.id)
+                ORDER BY a.id
+                LIMIT ?
+                """,
+                jobMapper(now),
+                afterId, limit);
+    }
+
+    private static RowMapper<AnalysisJob> jobMapper(OffsetDateTime enqueuedAt) {
+        return (rs, rowNum) -> new AnalysisJob(
+                rs.getLong("contract_id"),
+                rs.getLong("id"),
+                rs.getString("storage_path"),
+                rs.getString("content_sha256"),
+                rs.getObject("previous_contract_id", Long.class),
+                enqueuedAt.toInstant(),
+                AnalysisLane.parse(rs.getString("lane")));
+    }
+
+    private static Array bigintArray(Connection connection, Collection<Long> ids) throws SQLException {
+        return connection.createArrayOf("bigint", ids.toArray());
+    }
+}
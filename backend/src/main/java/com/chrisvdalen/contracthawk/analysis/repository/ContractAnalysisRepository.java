@@ -1,8 +1,15 @@
 package com.chrisvdalen.contracthawk.analysis.repository;
 
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisHistoryVersion;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatusCount;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisVersion;
 import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +18,86 @@ public interface ContractAnalysisRepository extends JpaRepository<ContractAnalys
     List<ContractAnalysis> findByContractIdOrderByCreatedAtDesc(Long contractId);
 
     Optional<ContractAnalysis> findTopByContractIdOrderByCreatedAtDesc(Long contractId);
+
+    @Query("""
+            SELECT new com.chrisvdalen.contracthawk.analysis.domain.AnalysisVersion(
+                a.id, a.status, a.createdAt, a.startedAt, a.finishedAt)
+            FROM ContractAnalysis a
+            WHERE a.contractId = :contractId
+            ORDER BY a.createdAt DESC
+            """)
+    List<AnalysisVersion> findVersionsByContractId(Long contractId, Pageable pageable);
+
+    @Query("""
+            SELECT new com.chrisvdalen.contracthawk.analysis.domain.AnalysisHistoryVersion(
+                COUNT(a), MAX(a.id), COUNT(a.startedAt), COUNT(a.finishedAt),
+                MAX(COALESCE(a.finishedAt, a.startedAt, a.createdAt)))
+            FROM ContractAnalysis a
+            WHERE a.contractId = :contractId
+            """)
+    AnalysisHistoryVersion findHistoryVersionByContractId(Long contractId);
+
+    @Query("""
+            SELECT new com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatusCount(a.status, COUNT(a))
+            FROM ContractAnalysis a
+            WHERE a.status IN :statuses
+            GROUP BY a.status
+            """)
+    List<AnalysisStatusCount> countByStatusIn(Collection<AnalysisStatus> statuses);
+
+    @Query("""
+            SELECT new com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatusCount(a.status, COUNT(a))
+            FROM ContractAnalysis a
+            WHERE a.reanalysisRunId = :reanalysisRunId
+            GROUP BY a.status
+            """)
+    List<AnalysisStatusCount> countByReanalysisRunId(Long reanalysisRunId);
+
+    boolean existsByContractIdAndStatus(Long contractId, AnalysisStatus status);
+
+    @Query("SELECT DISTINCT a.contractId FROM ContractAnalysis a WHERE a.contractId IN :contractIds AND a.status = :status")
+    List<Long> findContractIdsWithStatus(Collection<Long> contractIds, AnalysisStatus status);
+
+    @Query(value = """
+            SELECT a.*
+            FROM contract_analysis a
+            JOIN contract c ON c.id = a.contract_id
+            WHERE c.content_sha256 = :contentSha256
+              AND c.id <> :excludeContractId
+              AND a.status = 'COMPLETED'
+            ORDER BY a.finished_at DESC
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<ContractAnalysis> findLatestCompletedByContentSha256(String contentSha256, Long excludeContractId);
+
+    /**
+     * For each of {@code contractIds}, the latest contract of the same service, up to and including itself, whose
+     * spec was analyzed as valid. An upload whose spec did not parse has an empty operation index, so later
+     * versions are compared against this one instead.
+     */
+    @Query(value = """
+            SELECT p.id AS "contractId",
+                   (SELECT c.id
+                    FROM contract c
+                    JOIN contract_analysis a ON a.contract_id = c.id
+                    WHERE c.service_name = p.service_name
+                      AND (c.uploaded_at, c.id) <= (p.uploaded_at, p.id)
+                      AND a.status = 'COMPLETED'
+                      AND a.valid_spec
+                    ORDER BY c.uploaded_at DESC, c.id DESC
+                    LIMIT 1) AS "baselineContractId"
+            FROM contract p
+            WHERE p.id IN (:contractIds)
+            """, nativeQuery = true)
+    List<ComparisonBaseline> findComparisonBaselines(Collection<Long> contractIds);
+
+    interface ComparisonBaseline {
+
+        Long getContractId();
+
+        /**
+         * @return {@code null} if no version up to the contract has a valid spec
+         */
+        Long getBaselineContractId();
+    }
 }
@@ -0,0 +1,54 @@
+package com.chrisvdalen.contracthawk.analysis.repository;
+
+import com.chrisvdalen.contracthawk.analysis.domain.BundleFile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * The files of contracts uploaded as multi-file bundles.
+ */
+@Repository
+public class ContractBundleRepository {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ContractBundleRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(Long contractId, List<BundleFile> files) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO contract_bundle_file (contract_id, path, storage_path, content_sha256, root)
+                        VALUES (?, ?, ?, ?, ?)
+                        """,
+                files, BATCH_SIZE, (ps, file) -> {
+                    ps.setLong(1, contractId);
+                    ps.setString(2, file.path());
+                    ps.setString(3, file.storagePath());
+                    ps.setString(4, file.contentSha256());
+                    ps.setBoolean(5, file.root());
+                });
+    }
+
+    /**
+     * @return the contract's bundle files, or an empty list if it was uploaded as a single file
+     */
+    public List<BundleFile> findByContractId(Long contractId) {
+        return jdbcTemplate.query("""
+                        SELECT path, storage_path, content_sha256, root
+                        FROM contract_bundle_file
+                        WHERE contract_id = ?
+                        ORDER BY path
+                        """,
+                (rs, rowNum) -> new BundleFile(
+                        rs.getString("path"),
+                        rs.getString("storage_path"),
+                        rs.getString("content_sha256"),
+                        rs.getBoolean("root")),
+                contractId);
+    }
+}
@@ -0,0 +1,56 @@
+package com.chrisvdalen.contracthawk.analysis.repository;
+
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedOperation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Per-contract operation index used for version comparison. Plain JDBC so that large specs are written
+ * as batched inserts rather than one entity merge per operation.
+ */
+@Repository
+public class ContractOperationRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ContractOperationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void replaceAll(Long contractId, Collection<ParsedOperation> operations) {
+        jdbcTemplate.update("DELETE FROM contract_operation WHERE contract_id = ?", contractId);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO contract_operation (contract_id, path, method, fingerprint) VALUES (?, ?, ?, ?)",
+                operations,
+                BATCH_SIZE,
+                (ps, operation) -> {
+                    ps.setLong(1, contractId);
+                    ps.setString(2, operation.path());
+                    ps.setString(3, operation.method());
+                    ps.setString(4, operation.fingerprint());
+                });
+    }
+
+    /**
+     * Replaces the index of {@code targetContractId} with that of {@code sourceContractId} in one statement.
+     */
+    public void copy(Long sourceContractId, Long targetContractId) {
+        jdbcTemplate.update("DELETE FROM contract_operation WHERE contract_id = ?", targetContractId);
+        jdbcTemplate.update("""
+                INSERT INTO contract_operation (contract_id, path, method, fingerprint)
+                SELECT ?, path, method, fingerprint FROM contract_operation WHERE contract_id = ?
+                """, targetContractId, sourceContractId);
+    }
+
+    public List<ParsedOperation> findByContractId(Long contractId) {
+        return jdbcTemplate.query(
+                "SELECT path, method, fingerprint FROM contract_operation WHERE contract_id = ?",
+                (rs, rowNum) -> new ParsedOperation(rs.getString("path"), rs.getString("method"), rs.getString("fingerprint")),
+                contractId);
+    }
+}
@@ -0,0 +1,110 @@
+package com.chrisvdalen.contracthawk.analysis.repository;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
+import com.chrisvdalen.contracthawk.analysis.domain.ServiceState;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * One row per service in {@code service_state}, so the current state of all services is read without sorting
+ * their version history. Writes are upserts guarded by {@code (uploaded_at, contract_id, finished_at)}: an
+ * analysis only replaces the row if its version was uploaded later, or it is of the same version and finished
+ * later. Completions that arrive out of order therefore never move a service back to an older version, and the
+ * guard is evaluated against the latest committed row, so concurrent writers need no further locking.
+ */
+@Repository
+public class ServiceStateRepository {
+
+    private static final String COLUMNS = """
+            service_name, contract_id, version, uploaded_at, analysis_id, status, valid_spec, path_count,
+            operation_count, breaking_changes_detected, finished_at""";
+
+    private static final String UPSERT_GUARD = """
+            ON CONFLICT (service_name) DO UPDATE SET
+                contract_id = EXCLUDED.contract_id,
+                version = EXCLUDED.version,
+                uploaded_at = EXCLUDED.uploaded_at,
+                analysis_id = EXCLUDED.analysis_id,
+                status = EXCLUDED.status,
+                valid_spec = EXCLUDED.valid_spec,
+                path_count = EXCLUDED.path_count,
+                operation_count = EXCLUDED.operation_count,
+                breaking_changes_detected = EXCLUDED.breaking_changes_detected,
+                finished_at = EXCLUDED.finished_at
+            WHERE (service_state.uploaded_at, service_state.contract_id, service_state.finished_at)
+                  <= (EXCLUDED.uploaded_at, EXCLUDED.contract_id, EXCLUDED.finished_at)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ServiceStateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records a finished analysis. Takes the values from the entity rather than from {@code contract_analysis},
+     * since the entity's own update is only flushed at commit.
+     */
+    public void upsert(ContractAnalysis analysis) {
+        jdbcTemplate.update("INSERT INTO service_state (" + COLUMNS + """
+                        )
+                        SELECT c.service_name, c.id, c.version, c.uploaded_at,
+                               ?::bigint, ?, ?::boolean, ?::integer, ?::integer, ?::boolean, ?::timestamptz
+                        FROM contract c
+                        WHERE c.id = ?
+                        """ + UPSERT_GUARD,
+                analysis.getId(),
+                analysis.getStatus().name(),
+                analysis.getValidSpec(),
+                analysis.getPathCount(),
+                analysis.getOperationCount(),
+                analysis.getBreakingChangesDetected(),
+                analysis.getFinishedAt(),
+                analysis.getContractId());
+    }
+
+    /**
+     * Backfills every service from the analysis history in one statement, through the same guarded upsert, so
+     * it can run while analyses complete.
+     *
+     * @return the number of services written
+     */
+    public int rebuild() {
+        return jdbcTemplate.update("INSERT INTO service_state (" + COLUMNS + """
+                )
+                SELECT DISTINCT ON (c.service_name)
+                       c.service_name, c.id, c.version, c.uploaded_at, a.id, a.status, a.valid_spec, a.path_count,
+                       a.operation_count, a.breaking_changes_detected, a.finished_at
+                FROM contract c
+                JOIN LATERAL (
+                    SELECT a.id, a.status, a.valid_spec, a.path_count, a.operation_count,
+                           a.breaking_changes_detected, a.finished_at
+                    FROM contract_analysis a
+                    WHERE a.contract_id = c.id AND a.status IN ('COMPLETED', 'FAILED')
+                    ORDER BY a.finished_at DESC
+                    LIMIT 1
+                ) a ON TRUE
+                ORDER BY c.service_name, c.uploaded_at DESC, c.id DESC
+                """ + UPSERT_GUARD);
+    }
+
+    public List<ServiceState> findAll() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM service_state ORDER BY service_name",
+                (rs, rowNum) -> new ServiceState(
+                        rs.getString("service_name"),
+                        rs.getLong("contract_id"),
+                        rs.getString("version"),
+                        rs.getObject("uploaded_at", OffsetDateTime.class),
+                        rs.getLong("analysis_id"),
+                        AnalysisStatus.valueOf(rs.getString("status")),
+                        rs.getObject("valid_spec", Boolean.class),
+                        rs.getObject("path_count", Integer.class),
+                        rs.getObject("operation_count", Integer.class),
+                        rs.getObject("breaking_changes_detected", Boolean.class),
+                        rs.getObject("finished_at", OffsetDateTime.class)));
+    }
+}
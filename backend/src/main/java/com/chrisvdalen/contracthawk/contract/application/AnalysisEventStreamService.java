@@ -0,0 +1,70 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisEventHub;
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisResponse;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
+import com.chrisvdalen.contracthawk.shared.exception.NotFoundException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Streams the analysis state of a contract as Server-Sent Events: the current state right away, then every
+ * finished analysis, and the stream ends once the analysis is COMPLETED or FAILED. The emitter is
+ * asynchronous, so an open stream holds no request thread while it waits.
+ */
+@Service
+public class AnalysisEventStreamService {
+
+    private static final String EVENT_NAME = "analysis";
+    private static final Duration TIMEOUT = Duration.ofMinutes(10);
+
+    private final ContractRepository contractRepository;
+    private final ContractAnalysisRepository analysisRepository;
+    private final AnalysisEventHub eventHub;
+
+    public AnalysisEventStreamService(ContractRepository contractRepository,
+                                      ContractAnalysisRepository analysisRepository,
+                                      AnalysisEventHub eventHub) {
+        this.contractRepository = contractRepository;
+        this.analysisRepository = analysisRepository;
+        this.eventHub = eventHub;
+    }
+
+    public SseEmitter open(Long contractId) {
+        if (!contractRepository.existsById(contractId)) {
+            throw new NotFoundException("CONTRACT_NOT_FOUND", "Contract " + contractId + " not found");
+        }
+        SseEmitter emitter = new SseEmitter(TIMEOUT.toMillis());
+        Runnable unsubscribe = eventHub.subscribe(contractId, analysis -> send(emitter, analysis));
+        emitter.onCompletion(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        emitter.onTimeout(emitter::complete);
+
+        // Subscribed before reading the current state, so a completion in between is not missed.
+        analysisRepository.findTopByContractIdOrderByCreatedAtDesc(contractId)
+                .map(ContractAnalysisResponse::from)
+                .ifPresent(analysis -> send(emitter, analysis));
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, ContractAnalysisResponse analysis) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .id(String.valueOf(analysis.id()))
+                    .data(analysis, MediaType.APPLICATION_JSON));
+            if (analysis.status() == AnalysisStatus.COMPLETED || analysis.status() == AnalysisStatus.FAILED) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream already ended.
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+/**
+ * Lane requested on upload in place of the one chosen by spec size: {@code HIGH} for a large spec that a
+ * pipeline is waiting on, {@code LOW} for small specs that nobody is waiting on, such as a backfill.
+ */
+public enum AnalysisPriority {
+    HIGH,
+    LOW
+}
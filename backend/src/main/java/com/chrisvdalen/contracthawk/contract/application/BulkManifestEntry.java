@@ -0,0 +1,7 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+/**
+ * @param path location of the spec inside the uploaded archive
+ */
+public record BulkManifestEntry(String path, String serviceName, String version) {
+}
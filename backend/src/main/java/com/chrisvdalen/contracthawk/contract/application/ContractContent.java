@@ -0,0 +1,22 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.storage.domain.BlobFile;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+
+/**
+ * The stored spec of a contract, ready to be sent.
+ *
+ * @param decoded the content itself, to be sent instead of {@code file} when the file is gzip-compressed but
+ *                the client does not accept gzip; {@code null} otherwise
+ */
+public record ContractContent(BlobFile file,
+                              InputStreamSource decoded,
+                              ResourceVersion version,
+                              MediaType mediaType,
+                              String filename) {
+
+    public boolean gzipEncoded() {
+        return file.gzip() && decoded == null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.contract.domain.Contract;
+import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
+import com.chrisvdalen.contracthawk.shared.exception.NotFoundException;
+import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
+import com.chrisvdalen.contracthawk.storage.domain.BlobFile;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Locates the stored spec of a contract for download. Runs without a transaction, since writing the gzip copy
+ * of a large spec on its first download takes a while.
+ */
+@Service
+public class ContractContentService {
+
+    // Stored content never changes, so it may be cached for as long as HTTP allows.
+    private static final Duration CONTENT_MAX_AGE = Duration.ofDays(365);
+    private static final MediaType APPLICATION_YAML = MediaType.parseMediaType("application/yaml");
+
+    private final ContractRepository contractRepository;
+    private final FileStorageService fileStorageService;
+
+    public ContractContentService(ContractRepository contractRepository, FileStorageService fileStorageService) {
+        this.contractRepository = contractRepository;
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * @param gzip whether the client accepts gzip; the content is only sent compressed if that makes it smaller
+     */
+    public ContractContent getContent(Long id, boolean gzip) {
+        Contract contract = contractRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("CONTRACT_NOT_FOUND", "Contract " + id + " not found"));
+        BlobFile file;
+        try {
+            file = fileStorageService.file(contract.getStoragePath(), gzip);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open stored content of contract " + id, e);
+        }
+        // A blob stored compressed can only be sent as it is to clients that accept gzip.
+        InputStreamSource decoded = file.gzip() && !gzip
+                ? () -> fileStorageService.read(contract.getStoragePath())
+                : null;
+        boolean gzipEncoded = file.gzip() && decoded == null;
+        // Each encoding is a representation of its own, with its own validator.
+        ResourceVersion version = ResourceVersion.of("content/" + id + (gzipEncoded ? "/gzip" : ""),
+                contract.getUploadedAt(), CONTENT_MAX_AGE);
+        return new ContractContent(file, decoded, version, mediaTypeOf(contract.getOriginalFilename()),
+                contract.getOriginalFilename());
+    }
+
+    private static MediaType mediaTypeOf(String filename) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".json")) {
+            return MediaType.APPLICATION_JSON;
+        }
+        if (name.endsWith(".yaml") || name.endsWith(".yml")) {
+            return APPLICATION_YAML;
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+}
@@ -0,0 +1,8 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.contract.domain.ContractListItem;
+
+import java.util.List;
+
+public record ContractPage(List<ContractListItem> items, String nextCursor) {
+}
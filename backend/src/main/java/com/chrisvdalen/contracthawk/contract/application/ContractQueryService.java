@@ -1,21 +1,33 @@
 package com.chrisvdalen.contracthawk.contract.application;
 
 import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisResponse;
-import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisHistoryVersion;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisVersion;
 import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
 import com.chrisvdalen.contracthawk.contract.domain.Contract;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListCursor;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListFilter;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListItem;
 import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
 import com.chrisvdalen.contracthawk.shared.exception.NotFoundException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 @Transactional(readOnly = true)
 public class ContractQueryService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final Duration CONTRACT_MAX_AGE = Duration.ofDays(1);
+
     private final ContractRepository contractRepository;
     private final ContractAnalysisRepository analysisRepository;
 
@@ -24,10 +36,51 @@ public class ContractQueryService {
         this.analysisRepository = analysisRepository;
     }
 
-    public List<ContractListItem> listAll() {
-        return contractRepository.findAll().stream()
-                .map(this::toListItem)
-                .toList();
+    public ContractPage list(ContractListFilter filter, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("INVALID_LIMIT", "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        ContractListCursor after = cursor == null || cursor.isBlank() ? null : ContractListCursor.decode(cursor);
+
+        List<ContractListItem> rows = contractRepository.findListItems(filter, after, limit + 1);
+        if (rows.size() <= limit) {
+            return new ContractPage(rows, null);
+        }
+        List<ContractListItem> items = rows.subList(0, limit);
+        return new ContractPage(List.copyOf(items), ContractListCursor.after(items.get(limit - 1)).encode());
+    }
+
+    /**
+     * Contracts never change after upload, so the version only depends on the id.
+     */
+    public ResourceVersion getContractVersion(Long id) {
+        OffsetDateTime uploadedAt = contractRepository.findUploadedAtById(id)
+                .orElseThrow(() -> new NotFoundException("CONTRACT_NOT_FOUND", "Contract " + id + " not found"));
+        return ResourceVersion.of("contract/" + id, uploadedAt, CONTRACT_MAX_AGE);
+    }
+
+    public ResourceVersion getAnalysesVersion(Long contractId) {
+        AnalysisHistoryVersion version = analysisRepository.findHistoryVersionByContractId(contractId);
+        if (version.count() == 0) {
+            ensureContractExists(contractId);
+        }
+        // A new analysis can be added at any time, so the list is always revalidated. An analysis handed back to
+        // PENDING loses its start time, so no timestamp moves with every change: the ETag is the only validator.
+        return ResourceVersion.of("analyses/" + contractId + "/" + version.key(), null, null);
+    }
+
+    /**
+     * A finished analysis never changes, but a newer one can replace it as the latest at any time, so the latest
+     * analysis is always revalidated, by ETag only for the same reason as the history.
+     */
+    public ResourceVersion getLatestAnalysisVersion(Long contractId) {
+        AnalysisVersion latest = analysisRepository.findVersionsByContractId(contractId, PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .orElseGet(() -> {
+                    ensureContractExists(contractId);
+                    throw new NotFoundException("ANALYSIS_NOT_FOUND", "No analysis exists for contract " + contractId);
+                });
+        return ResourceVersion.of("latest-analysis/" + contractId + "/" + latest.key(), null, null);
     }
 
     public ContractDetailsResponse getById(Long id) {
@@ -60,16 +113,4 @@ public class ContractQueryService {
             throw new NotFoundException("CONTRACT_NOT_FOUND", "Contract " + id + " not found");
         }
     }
-
-    private ContractListItem toListItem(Contract contract) {
-        Optional<ContractAnalysis> latest = analysisRepository.findTopByContractIdOrderByCreatedAtDesc(contract.getId());
-        return new ContractListItem(
-                contract.getId(),
-                contract.getServiceName(),
-                contract.getVersion(),
-                contract.getOriginalFilename(),
-                contract.getUploadedAt(),
-                latest.map(ContractAnalysis::getStatus).orElse(null),
-                latest.map(ContractAnalysis::getBreakingChangesDetected).orElse(null));
-    }
 }
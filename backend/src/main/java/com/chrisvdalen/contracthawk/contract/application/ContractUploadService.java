@@ -1,92 +1,529 @@
 package com.chrisvdalen.contracthawk.contract.application;
 
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.domain.BundleFile;
 import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
 import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractBundleRepository;
+import com.chrisvdalen.contracthawk.contract.config.ArchiveProperties;
 import com.chrisvdalen.contracthawk.contract.domain.Contract;
+import com.chrisvdalen.contracthawk.contract.repository.BlobReferenceRepository;
 import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
 import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
-import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobPublisher;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobOutbox;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
 import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+import com.chrisvdalen.contracthawk.shared.exception.ConflictException;
 import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
 import com.chrisvdalen.contracthawk.storage.domain.StoredFile;
 import com.chrisvdalen.contracthawk.storage.infrastructure.StorageProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class ContractUploadService {
 
     private static final Logger log = LoggerFactory.getLogger(ContractUploadService.class);
 
+    private static final int MAX_BULK_ENTRIES = 1000;
+
     private final ContractRepository contractRepository;
     private final ContractAnalysisRepository analysisRepository;
+    private final ContractBundleRepository bundleRepository;
+    private final BlobReferenceRepository blobReferenceRepository;
     private final FileStorageService fileStorageService;
-    private final AnalysisJobPublisher analysisJobPublisher;
+    private final AnalysisJobOutbox analysisJobOutbox;
+    private final ContractAnalysisService analysisService;
+    private final TransactionTemplate transactionTemplate;
     private final Set<String> allowedExtensions;
+    private final MessagingProperties.Lanes lanes;
+    private final ArchiveProperties archiveLimits;
+    private final long maxBundleBytes;
+    private final MeterRegistry meterRegistry;
+    private final Timer persistTimer;
 
     public ContractUploadService(ContractRepository contractRepository,
                                  ContractAnalysisRepository analysisRepository,
+                                 ContractBundleRepository bundleRepository,
+                                 BlobReferenceRepository blobReferenceRepository,
                                  FileStorageService fileStorageService,
-                                 AnalysisJobPublisher analysisJobPublisher,
-                                 StorageProperties storageProperties) {
+                                 AnalysisJobOutbox analysisJobOutbox,
+                                 ContractAnalysisService analysisService,
+                                 PlatformTransactionManager transactionManager,
+                                 StorageProperties storageProperties,
+                                 ArchiveProperties archiveProperties,
+                                 AnalysisProperties analysisProperties,
+                                 MessagingProperties messagingProperties,
+                                 MeterRegistry meterRegistry) {
         this.contractRepository = contractRepository;
         this.analysisRepository = analysisRepository;
+        this.bundleRepository = bundleRepository;
+        this.blobReferenceRepository = blobReferenceRepository;
         this.fileStorageService = fileStorageService;
-        this.analysisJobPublisher = analysisJobPublisher;
+        this.analysisJobOutbox = analysisJobOutbox;
+        this.analysisService = analysisService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.allowedExtensions = storageProperties.allowedExtensions().stream()
                 .map(s -> s.toLowerCase(Locale.ROOT))
                 .collect(Collectors.toUnmodifiableSet());
+        this.archiveLimits = archiveProperties;
+        this.maxBundleBytes = analysisProperties.maxBundleSize() == null
+                ? Long.MAX_VALUE : analysisProperties.maxBundleSize().toBytes();
+        this.lanes = messagingProperties.lanes();
+        this.meterRegistry = meterRegistry;
+        this.persistTimer = Timer.builder("contracthawk.upload.persist")
+                .description("Time to register uploaded contracts, including the commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Validates and stores the file before opening a transaction, so a database connection is only held for
+     * the metadata inserts and not while a large upload streams to disk. If those inserts fail, a blob that
+     * this upload created and nothing references is removed again.
+     *
+     * @param priority lane to analyze in regardless of the spec's size, or {@code null} to choose by size
+     */
+    public ContractResponse upload(String serviceName, String version, MultipartFile file, AnalysisPriority priority) {
+        return timed("single", () -> storeAndRegister(serviceName, version, file, priority));
     }
 
-    @Transactional
-    public ContractResponse upload(String serviceName, String version, MultipartFile file) {
+    private ContractResponse storeAndRegister(String serviceName, String version, MultipartFile file,
+                                              AnalysisPriority priority) {
         validate(serviceName, version, file);
 
         StoredFile stored;
         try {
-            stored = fileStorageService.store(serviceName, version, file.getOriginalFilename(), file.getInputStream());
+            stored = fileStorageService.store(file.getInputStream());
         } catch (IOException e) {
             throw new IllegalStateException("Failed to store uploaded contract", e);
         }
 
+        try {
+            return persistTimer.record(() -> transactionTemplate.execute(status ->
+                    register(serviceName, version, file.getOriginalFilename(), stored, priority)));
+        } catch (RuntimeException e) {
+            discardIfOrphaned(stored);
+            throw e;
+        }
+    }
+
+    /**
+     * Registers every spec listed in the manifest from a single zip or tar.gz archive. Entries are streamed
+     * into storage as the archive is read, then all contracts and analyses are inserted in one transaction
+     * as JDBC batches, and the jobs go to the outbox as one batch. Archive entries not named in the manifest
+     * are ignored. Each entry is routed to a lane by its own size unless {@code priority} is given.
+     */
+    public List<ContractResponse> uploadBulk(List<BulkManifestEntry> manifest, MultipartFile archive,
+                                             AnalysisPriority priority) {
+        return timed("bulk", () -> storeAndRegisterAll(manifest, archive, priority));
+    }
+
+    private List<ContractResponse> storeAndRegisterAll(List<BulkManifestEntry> manifest, MultipartFile archive,
+                                                       AnalysisPriority priority) {
+        Map<String, BulkManifestEntry> entriesByPath = validateManifest(manifest);
+        if (archive == null || archive.isEmpty()) {
+            throw new BadRequestException("EMPTY_FILE", "Uploaded archive must not be empty");
+        }
+
+        Map<String, StoredFile> stored = new HashMap<>();
+        try {
+            try (InputStream in = archive.getInputStream()) {
+                SpecArchiveReader.read(in, archiveLimits, (path, content) -> {
+                    if (entriesByPath.containsKey(path)) {
+                        storeEntry(path, content, stored);
+                    }
+                });
+            } catch (IOException e) {
+                throw unreadableArchive(e);
+            }
+            Set<String> missing = new TreeSet<>(entriesByPath.keySet());
+            missing.removeAll(stored.keySet());
+            if (!missing.isEmpty()) {
+                throw new BadRequestException("MISSING_ARCHIVE_ENTRY", "Archive has no entries " + missing);
+            }
+
+            return persistTimer.record(() -> transactionTemplate.execute(status -> registerAll(entriesByPath, stored, priority)));
+        } catch (RuntimeException e) {
+            stored.values().forEach(this::discardIfOrphaned);
+            throw e;
+        }
+    }
+
+    private static BadRequestException unreadableArchive(IOException e) {
+        if (e instanceof SpecArchiveReader.ArchiveLimitException) {
+            return new BadRequestException("ARCHIVE_TOO_LARGE", e.getMessage());
+        }
+        return new BadRequestException("INVALID_ARCHIVE", "Archive could not be read: " + e.getMessage());
+    }
+
+    private void storeEntry(String path, InputStream content, Map<String, StoredFile> stored) {
+        if (stored.containsKey(path)) {
+            throw new BadRequestException("DUPLICATE_ARCHIVE_ENTRY", "Archive contains " + path + " more than once");
+        }
+        StoredFile file;
+        try {
+            file = fileStorageService.store(content);
+        } catch (SpecArchiveReader.ArchiveLimitException e) {
+            throw unreadableArchive(e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to store archive entry " + path, e);
+        }
+        stored.put(path, file);
+        if (file.sizeBytes() == 0) {
+            throw new BadRequestException("EMPTY_FILE", "Archive entry " + path + " must not be empty");
+        }
+    }
+
+    private List<ContractResponse> registerAll(Map<String, BulkManifestEntry> entriesByPath,
+                                               Map<String, StoredFile> stored,
+                                               AnalysisPriority priority) {
+        lockBlobs(stored.values());
+        OffsetDateTime now = OffsetDateTime.now();
+        List<String> paths = List.copyOf(entriesByPath.keySet());
+        Set<String> serviceNames = entriesByPath.values().stream()
+                .map(BulkManifestEntry::serviceName)
+                .collect(Collectors.toSet());
+        // Queried before the inserts; afterwards each entry becomes the previous version of the next one of its
+        // service.
+        Map<String, Long> latestByService = contractRepository.findLatestByServiceNames(serviceNames).stream()
+                .collect(Collectors.toMap(Contract::getServiceName, Contract::getId));
+
+        List<Contract> contracts = contractRepository.saveAllAndFlush(paths.stream()
+                .map(path -> {
+                    BulkManifestEntry entry = entriesByPath.get(path);
+                    StoredFile file = stored.get(path);
+                    return new Contract(entry.serviceName(), entry.version(), fileNameOf(path),
+                            file.storagePath(), file.sha256(), now);
+                })
+                .toList());
+        List<AnalysisLane> jobLanes = paths.stream()
+                .map(path -> laneFor(priority, stored.get(path).sizeBytes()))
+                .toList();
+        List<ContractAnalysis> analyses = analysisRepository.saveAll(IntStream.range(0, contracts.size())
+                .mapToObj(i -> ContractAnalysis.pending(contracts.get(i).getId(), jobLanes.get(i), now))
+                .toList());
+
+        List<AnalysisJob> jobs = new ArrayList<>();
+        for (int i = 0; i < contracts.size(); i++) {
+            Contract contract = contracts.get(i);
+            AnalysisJob job = new AnalysisJob(contract.getId(), analyses.get(i).getId(), contract.getStoragePath(),
+                    contract.getContentSha256(), latestByService.put(contract.getServiceName(), contract.getId()),
+                    now.toInstant(), jobLanes.get(i));
+            // Content whose blob was new cannot have been analyzed before, so the lookup is skipped for it.
+            boolean seenBefore = !stored.get(paths.get(i)).created();
+            if (!seenBefore || !analysisService.completeFromDuplicate(job, contract.getContentSha256())) {
+                jobs.add(job);
+            }
+        }
+        analysisJobOutbox.enqueueAll(jobs);
+
+        log.info("Bulk upload registered {} contracts, {} queued for analysis", contracts.size(), jobs.size());
+        return contracts.stream().map(ContractResponse::from).toList();
+    }
+
+    /**
+     * Registers one spec that is split over several files, uploaded together as a zip or tar.gz archive.
+     * Every {@code json}, {@code yaml} or {@code yml} entry of the archive is stored, and relative {@code $ref}s
+     * between them are resolved during analysis; together the files may not exceed
+     * {@code contracthawk.analysis.max-bundle-size}. The contract's digest covers every file and its path, so a
+     * bundle is only treated as already analyzed if all of its files are identical.
+     *
+     * @param root path of the document the spec starts from inside the archive
+     */
+    public ContractResponse uploadBundle(String serviceName, String version, String root, MultipartFile archive,
+                                         AnalysisPriority priority) {
+        return timed("bundle", () -> storeAndRegisterBundle(serviceName, version, root, archive, priority));
+    }
+
+    private ContractResponse storeAndRegisterBundle(String serviceName, String version, String root,
+                                                    MultipartFile archive, AnalysisPriority priority) {
+        validateMetadata(serviceName, version);
+        if (root == null || root.isBlank()) {
+            throw new BadRequestException("INVALID_BUNDLE_ROOT", "root must name the bundle's root document");
+        }
+        validateExtension(root);
+        String rootPath = SpecArchiveReader.normalize(root);
+        if (archive == null || archive.isEmpty()) {
+            throw new BadRequestException("EMPTY_FILE", "Uploaded archive must not be empty");
+        }
+
+        Map<String, StoredFile> stored = new TreeMap<>();
+        try {
+            try (InputStream in = archive.getInputStream()) {
+                SpecArchiveReader.read(in, archiveLimits, (path, content) -> {
+                    if (!allowedExtensions.contains(extensionOf(path))) {
+                        return;
+                    }
+                    if (stored.size() == MAX_BULK_ENTRIES && !stored.containsKey(path)) {
+                        throw new BadRequestException("INVALID_ARCHIVE",
+                                "Bundle must not contain more than " + MAX_BULK_ENTRIES + " files");
+                    }
+                    storeEntry(path, content, stored);
+                    long bundleBytes = stored.values().stream().mapToLong(StoredFile::sizeBytes).sum();
+                    if (bundleBytes > maxBundleBytes) {
+                        throw new BadRequestException("BUNDLE_TOO_LARGE",
+                                "Bundle files must not exceed " + maxBundleBytes + " bytes together");
+                    }
+                });
+            } catch (IOException e) {
+                throw unreadableArchive(e);
+            }
+            if (!stored.containsKey(rootPath)) {
+                throw new BadRequestException("MISSING_ARCHIVE_ENTRY", "Archive has no entry " + rootPath);
+            }
+
+            return persistTimer.record(() -> transactionTemplate.execute(status ->
+                    registerBundle(serviceName, version, rootPath, stored, priority)));
+        } catch (RuntimeException e) {
+            stored.values().forEach(this::discardIfOrphaned);
+            throw e;
+        }
+    }
+
+    private ContractResponse registerBundle(String serviceName, String version, String rootPath,
+                                            Map<String, StoredFile> stored, AnalysisPriority priority) {
+        lockBlobs(stored.values());
+        OffsetDateTime now = OffsetDateTime.now();
+        String digest = bundleDigest(stored);
+        Contract contract = contractRepository.save(new Contract(serviceName, version, fileNameOf(rootPath),
+                stored.get(rootPath).storagePath(), digest, now));
+        bundleRepository.insertAll(contract.getId(), stored.entrySet().stream()
+                .map(e -> new BundleFile(e.getKey(), e.getValue().storagePath(), e.getValue().sha256(),
+                        e.getKey().equals(rootPath)))
+                .toList());
+
+        AnalysisLane lane = laneFor(priority, stored.values().stream().mapToLong(StoredFile::sizeBytes).sum());
+        ContractAnalysis analysis = analysisRepository.save(ContractAnalysis.pending(contract.getId(), lane, now));
+
+        Long previousContractId = contractRepository
+                .findTopByServiceNameAndIdNotOrderByUploadedAtDescIdDesc(serviceName, contract.getId())
+                .map(Contract::getId)
+                .orElse(null);
+
+        AnalysisJob job = new AnalysisJob(contract.getId(), analysis.getId(), contract.getStoragePath(), digest,
+                previousContractId, now.toInstant(), lane);
+        // A bundle with a file whose blob is new cannot have been analyzed before.
+        boolean seenBefore = stored.values().stream().noneMatch(StoredFile::created);
+        if (seenBefore && analysisService.completeFromDuplicate(job, digest)) {
+            log.info("Uploaded bundle contract id={} service={} version={} matches already analyzed content {}",
+                    contract.getId(), serviceName, version, digest);
+        } else {
+            analysisJobOutbox.enqueue(job);
+            log.info("Uploaded bundle contract id={} service={} version={} with {} files",
+                    contract.getId(), serviceName, version, stored.size());
+        }
+        return ContractResponse.from(contract);
+    }
+
+    /**
+     * Digest of the bundle's paths and contents, independent of the order of the archive's entries.
+     */
+    private static String bundleDigest(Map<String, StoredFile> stored) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        new TreeMap<>(stored).forEach((path, file) -> {
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(file.sha256().getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) '\n');
+        });
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Records the upload's latency as {@code contracthawk.upload}, tagged with its {@code type} and with an
+     * {@code outcome} of {@code success}, {@code rejected} for invalid input, or {@code error}.
+     */
+    private <T> T timed(String type, Supplier<T> upload) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = upload.get();
+            outcome = "success";
+            return result;
+        } catch (BadRequestException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("contracthawk.upload")
+                    .description("Latency of contract uploads, from receiving the request to the commit")
+                    .tag("type", type)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private ContractResponse register(String serviceName, String version, String originalFilename, StoredFile stored,
+                                      AnalysisPriority priority) {
+        lockBlobs(List.of(stored));
         OffsetDateTime now = OffsetDateTime.now();
         Contract contract = contractRepository.save(
-                new Contract(serviceName, version, file.getOriginalFilename(), stored.storagePath(), now));
+                new Contract(serviceName, version, originalFilename, stored.storagePath(), stored.sha256(), now));
 
-        ContractAnalysis analysis = analysisRepository.save(ContractAnalysis.pending(contract.getId(), now));
+        AnalysisLane lane = laneFor(priority, stored.sizeBytes());
+        ContractAnalysis analysis = analysisRepository.save(ContractAnalysis.pending(contract.getId(), lane, now));
 
-        analysisJobPublisher.publish(new AnalysisJob(contract.getId(), analysis.getId(), contract.getStoragePath()));
+        Long previousContractId = contractRepository
+                .findTopByServiceNameAndIdNotOrderByUploadedAtDescIdDesc(serviceName, contract.getId())
+                .map(Contract::getId)
+                .orElse(null);
 
-        log.info("Uploaded contract id={} service={} version={}", contract.getId(), serviceName, version);
+        AnalysisJob job = new AnalysisJob(contract.getId(), analysis.getId(), contract.getStoragePath(),
+                contract.getContentSha256(), previousContractId, now.toInstant(), lane);
+        if (analysisService.completeFromDuplicate(job, stored.sha256())) {
+            log.info("Uploaded contract id={} service={} version={} matches already analyzed content {}",
+                    contract.getId(), serviceName, version, stored.sha256());
+        } else {
+            analysisJobOutbox.enqueue(job);
+            log.info("Uploaded contract id={} service={} version={}", contract.getId(), serviceName, version);
+        }
         return ContractResponse.from(contract);
     }
 
+    /**
+     * Locks the blobs the upload is about to refer to until it commits, so retention cannot remove them before the
+     * new references are visible, and makes sure that they were not removed in the meantime. That includes blobs
+     * this upload created: a concurrent upload of the same new content may also have seen itself as their creator
+     * and discarded them after failing.
+     */
+    private void lockBlobs(Collection<StoredFile> files) {
+        blobReferenceRepository.lock(files.stream().map(StoredFile::storagePath).toList());
+        for (StoredFile file : files) {
+            if (!blobExists(file.storagePath())) {
+                throw new ConflictException("CONTENT_REMOVED",
+                        "Stored content was removed during the upload; upload again");
+            }
+        }
+    }
+
+    private boolean blobExists(String storagePath) {
+        try {
+            return fileStorageService.exists(storagePath);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to look up blob " + storagePath, e);
+        }
+    }
+
+    private AnalysisLane laneFor(AnalysisPriority priority, long sizeBytes) {
+        if (priority == null) {
+            return lanes.laneFor(sizeBytes);
+        }
+        return priority == AnalysisPriority.HIGH ? AnalysisLane.SMALL : AnalysisLane.LARGE;
+    }
+
+    /**
+     * Removes a blob this upload created if nothing refers to it. It holds the blob's lock while it checks and
+     * removes it, so a concurrent identical upload that found the blob either commits first and keeps it, or is
+     * rejected afterwards instead of referring to a removed blob.
+     */
+    private void discardIfOrphaned(StoredFile stored) {
+        if (!stored.created()) {
+            return;
+        }
+        List<String> storagePath = List.of(stored.storagePath());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                blobReferenceRepository.lock(storagePath);
+                if (!blobReferenceRepository.findReferenced(storagePath).isEmpty()) {
+                    return;
+                }
+                try {
+                    fileStorageService.delete(stored.storagePath());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to remove blob " + stored.storagePath(), e);
+                }
+                log.info("Removed orphaned blob {} after failed upload", stored.storagePath());
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove orphaned blob {}", stored.storagePath(), e);
+        }
+    }
+
     private void validate(String serviceName, String version, MultipartFile file) {
+        validateMetadata(serviceName, version);
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("EMPTY_FILE", "Uploaded file must not be empty");
+        }
+        validateExtension(file.getOriginalFilename());
+    }
+
+    private Map<String, BulkManifestEntry> validateManifest(List<BulkManifestEntry> manifest) {
+        if (manifest == null || manifest.isEmpty()) {
+            throw new BadRequestException("INVALID_MANIFEST", "Manifest must list at least one entry");
+        }
+        if (manifest.size() > MAX_BULK_ENTRIES) {
+            throw new BadRequestException("INVALID_MANIFEST", "Manifest must not list more than " + MAX_BULK_ENTRIES + " entries");
+        }
+        Map<String, BulkManifestEntry> entriesByPath = new LinkedHashMap<>();
+        for (BulkManifestEntry entry : manifest) {
+            if (entry.path() == null || entry.path().isBlank()) {
+                throw new BadRequestException("INVALID_MANIFEST", "Manifest entry path must not be blank");
+            }
+            validateMetadata(entry.serviceName(), entry.version());
+            validateExtension(entry.path());
+            if (entriesByPath.put(SpecArchiveReader.normalize(entry.path()), entry) != null) {
+                throw new BadRequestException("INVALID_MANIFEST", "Manifest lists " + entry.path() + " more than once");
+            }
+        }
+        return entriesByPath;
+    }
+
+    private static void validateMetadata(String serviceName, String version) {
         if (serviceName == null || serviceName.isBlank()) {
             throw new BadRequestException("INVALID_SERVICE_NAME", "serviceName must not be blank");
         }
         if (version == null || version.isBlank()) {
             throw new BadRequestException("INVALID_VERSION", "version must not be blank");
         }
-        if (file == null || file.isEmpty()) {
-            throw new BadRequestException("EMPTY_FILE", "Uploaded file must not be empty");
-        }
-        String extension = extensionOf(file.getOriginalFilename());
+    }
+
+    private void validateExtension(String filename) {
+        String extension = extensionOf(filename);
         if (extension.isEmpty() || !allowedExtensions.contains(extension)) {
             throw new BadRequestException("UNSUPPORTED_FILE_EXTENSION",
                     "Only " + allowedExtensions + " files are allowed");
         }
     }
 
+    private static String fileNameOf(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
     private static String extensionOf(String filename) {
         if (filename == null) {
             return "";
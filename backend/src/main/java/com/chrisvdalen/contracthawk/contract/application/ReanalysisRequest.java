@@ -0,0 +1,7 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+/**
+ * @param serviceName only re-analyze this service, or {@code null} for every stored contract
+ */
+public record ReanalysisRequest(String serviceName) {
+}
@@ -0,0 +1,51 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisRun;
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisStatus;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Progress of a re-analysis run. {@code queued} counts contracts for which an analysis was created; the
+ * remaining counts are of those analyses by their current status.
+ *
+ * @param estimatedCompletionAt extrapolated from the rate at which the run's analyses have finished so far;
+ *                              {@code null} while nothing has finished, while paused, or once done
+ */
+public record ReanalysisRunResponse(
+        Long id,
+        ReanalysisStatus status,
+        String serviceName,
+        int total,
+        int queued,
+        long completed,
+        long failed,
+        long inProgress,
+        int batchFailures,
+        String lastError,
+        OffsetDateTime createdAt,
+        OffsetDateTime updatedAt,
+        OffsetDateTime finishedAt,
+        OffsetDateTime estimatedCompletionAt) {
+
+    public static ReanalysisRunResponse from(ReanalysisRun run, Map<AnalysisStatus, Long> counts, OffsetDateTime now) {
+        long completed = counts.getOrDefault(AnalysisStatus.COMPLETED, 0L);
+        long failed = counts.getOrDefault(AnalysisStatus.FAILED, 0L);
+        long inProgress = counts.getOrDefault(AnalysisStatus.PENDING, 0L) + counts.getOrDefault(AnalysisStatus.PROCESSING, 0L);
+        return new ReanalysisRunResponse(run.id(), run.status(), run.serviceName(), run.total(), run.queued(),
+                completed, failed, inProgress, run.batchFailures(), run.lastError(), run.createdAt(), run.updatedAt(),
+                run.finishedAt(), estimateCompletion(run, completed + failed, now));
+    }
+
+    static OffsetDateTime estimateCompletion(ReanalysisRun run, long done, OffsetDateTime now) {
+        long remaining = run.total() - done;
+        if (run.status() == ReanalysisStatus.PAUSED || done == 0 || remaining <= 0) {
+            return null;
+        }
+        Duration elapsed = Duration.between(run.createdAt(), now);
+        return now.plus(elapsed.multipliedBy(remaining).dividedBy(done));
+    }
+}
@@ -0,0 +1,178 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatusCount;
+import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.contract.config.ReanalysisProperties;
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisRun;
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisStatus;
+import com.chrisvdalen.contracthawk.contract.repository.ReanalysisRunRepository;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobOutbox;
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+import com.chrisvdalen.contracthawk.shared.exception.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Re-analyzes stored contracts in bulk, e.g. after a parser or rule upgrade. A run creates a new PENDING
+ * analysis per contract and sends its job through the outbox, like an upload does but without reusing earlier
+ * results for identical content. Contracts are queued in keyset batches by the scheduler; each batch, together
+ * with the run's cursor and counts, commits in one transaction, so a run resumes exactly where it stopped.
+ */
+@Service
+public class ReanalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReanalysisService.class);
+
+    private static final int RECENT_RUNS = 20;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final ReanalysisRunRepository runRepository;
+    private final ContractAnalysisRepository analysisRepository;
+    private final AnalysisJobOutbox analysisJobOutbox;
+    private final ReanalysisProperties properties;
+
+    public ReanalysisService(ReanalysisRunRepository runRepository,
+                             ContractAnalysisRepository analysisRepository,
+                             AnalysisJobOutbox analysisJobOutbox,
+                             ReanalysisProperties properties) {
+        this.runRepository = runRepository;
+        this.analysisRepository = analysisRepository;
+        this.analysisJobOutbox = analysisJobOutbox;
+        this.properties = properties;
+    }
+
+    @Transactional
+    public ReanalysisRunResponse start(ReanalysisRequest request) {
+        String serviceName = request == null || request.serviceName() == null || request.serviceName().isBlank()
+                ? null
+                : request.serviceName();
+        ReanalysisRun run;
+        try {
+            run = runRepository.start(serviceName, OffsetDateTime.now());
+        } catch (DuplicateKeyException e) {
+            throw new BadRequestException("REANALYSIS_ALREADY_ACTIVE",
+                    "A re-analysis run is already running or paused; resume or wait for it first");
+        }
+        log.info("Started re-analysis run {} over {} contracts{}", run.id(), run.total(),
+                serviceName == null ? "" : " of " + serviceName);
+        return progress(run);
+    }
+
+    @Transactional(readOnly = true)
+    public ReanalysisRunResponse get(Long id) {
+        return progress(findRun(id));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReanalysisRunResponse> listRecent() {
+        return runRepository.findRecent(RECENT_RUNS).stream().map(this::progress).toList();
+    }
+
+    @Transactional
+    public ReanalysisRunResponse pause(Long id) {
+        return transition(id, ReanalysisStatus.RUNNING, ReanalysisStatus.PAUSED);
+    }
+
+    @Transactional
+    public ReanalysisRunResponse resume(Long id) {
+        return transition(id, ReanalysisStatus.PAUSED, ReanalysisStatus.RUNNING);
+    }
+
+    public Optional<Long> findRunningId() {
+        return runRepository.findRunningId();
+    }
+
+    /**
+     * Queues the next batch of the run if it is RUNNING and no other node is queuing for it, keeping the
+     * number of unfinished analyses of the run below {@code max-in-flight}. Finishes the run once every
+     * contract has been queued.
+     *
+     * @return the number of contracts queued
+     */
+    @Transactional
+    public int queueNextBatch(Long runId) {
+        Optional<ReanalysisRun> locked = runRepository.lockRunning(runId);
+        if (locked.isEmpty()) {
+            return 0;
+        }
+        ReanalysisRun run = locked.get();
+        Map<AnalysisStatus, Long> counts = countAnalyses(run.id());
+        long inFlight = counts.getOrDefault(AnalysisStatus.PENDING, 0L) + counts.getOrDefault(AnalysisStatus.PROCESSING, 0L);
+        int limit = (int) Math.min(properties.batchSize(), properties.maxInFlight() - inFlight);
+        if (limit <= 0) {
+            return 0;
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        List<ReanalysisRunRepository.Candidate> candidates = runRepository.nextCandidates(run, limit);
+        if (candidates.isEmpty()) {
+            runRepository.finish(run.id(), now);
+            log.info("Re-analysis run {} finished queuing {} contracts", run.id(), run.queued());
+            return 0;
+        }
+
+        List<ContractAnalysis> analyses = analysisRepository.saveAllAndFlush(candidates.stream()
+                .map(c -> ContractAnalysis.pendingReanalysis(c.contractId(), properties.lane(), now, run.id()))
+                .toList());
+        List<AnalysisJob> jobs = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            ReanalysisRunRepository.Candidate candidate = candidates.get(i);
+            jobs.add(new AnalysisJob(candidate.contractId(), analyses.get(i).getId(), candidate.storagePath(),
+                    candidate.contentSha256(), candidate.previousContractId(), now.toInstant(), properties.lane()));
+        }
+        analysisJobOutbox.enqueueAll(jobs);
+        runRepository.advance(run.id(), candidates.getLast().contractId(), candidates.size(), now);
+        return candidates.size();
+    }
+
+    /**
+     * Records a batch that failed; its transaction was rolled back, so the same contracts are retried.
+     */
+    @Transactional
+    public void recordFailure(Long runId, RuntimeException failure) {
+        String message = String.valueOf(failure.getMessage());
+        runRepository.recordFailure(runId,
+                message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message,
+                OffsetDateTime.now());
+    }
+
+    private ReanalysisRunResponse transition(Long id, ReanalysisStatus from, ReanalysisStatus to) {
+        if (!runRepository.transition(id, from, to, OffsetDateTime.now())) {
+            ReanalysisRun run = findRun(id);
+            throw new BadRequestException("INVALID_REANALYSIS_STATE",
+                    "Re-analysis run " + id + " is " + run.status() + ", not " + from);
+        }
+        log.info("Re-analysis run {} is now {}", id, to);
+        return progress(findRun(id));
+    }
+
+    private ReanalysisRun findRun(Long id) {
+        return runRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("REANALYSIS_NOT_FOUND", "Re-analysis run " + id + " not found"));
+    }
+
+    private ReanalysisRunResponse progress(ReanalysisRun run) {
+        return ReanalysisRunResponse.from(run, countAnalyses(run.id()), OffsetDateTime.now());
+    }
+
+    private Map<AnalysisStatus, Long> countAnalyses(Long runId) {
+        Map<AnalysisStatus, Long> counts = new EnumMap<>(AnalysisStatus.class);
+        for (AnalysisStatusCount count : analysisRepository.countByReanalysisRunId(runId)) {
+            counts.put(count.status(), count.count());
+        }
+        return counts;
+    }
+}
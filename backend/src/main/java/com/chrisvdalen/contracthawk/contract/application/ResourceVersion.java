@@ -0,0 +1,28 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Validators for a read endpoint, computed without loading the resource itself.
+ *
+ * @param etag         strong, quoted entity tag
+ * @param lastModified {@code null} for representations that can change without it moving forward, which are then
+ *                     validated by their ETag only
+ * @param maxAge       how long caches may serve the representation without revalidating; {@code null} to always
+ *                     revalidate
+ */
+public record ResourceVersion(String etag, OffsetDateTime lastModified, Duration maxAge) {
+
+    static ResourceVersion of(String key, OffsetDateTime lastModified, Duration maxAge) {
+        String hash = DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+        return new ResourceVersion("\"" + hash + "\"", lastModified, maxAge);
+    }
+
+    public long lastModifiedEpochMillis() {
+        return lastModified == null ? -1 : lastModified.toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,145 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.contract.config.RetentionProperties;
+import com.chrisvdalen.contracthawk.contract.domain.RetentionPolicy;
+import com.chrisvdalen.contracthawk.contract.repository.BlobReferenceRepository;
+import com.chrisvdalen.contracthawk.contract.repository.ContractRetentionRepository;
+import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Removes uploads that the retention policy no longer keeps, one small batch per call, so that no transaction
+ * holds many locks or runs long next to uploads and analyses. Blobs are removed after the batch commits, in a
+ * second transaction that holds the {@link BlobReferenceRepository} lock of each blob while it checks that no
+ * upload refers to it any more and removes it, so an identical upload that found the blob in storage meanwhile
+ * either commits first and keeps it, or waits and finds it gone.
+ *
+ * <p>Reclaimed space is counted in {@code contracthawk.retention.rows}, tagged with the {@code table}, and in
+ * {@code contracthawk.retention.bytes}, the size of the blobs removed from disk.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionService.class);
+
+    private final ContractRetentionRepository retentionRepository;
+    private final BlobReferenceRepository blobReferenceRepository;
+    private final FileStorageService fileStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final RetentionProperties properties;
+    private final Counter contractRows;
+    private final Counter analysisRows;
+    private final Counter operationRows;
+    private final Counter searchEntryRows;
+    private final Counter blobBytes;
+
+    public RetentionService(ContractRetentionRepository retentionRepository,
+                            BlobReferenceRepository blobReferenceRepository,
+                            FileStorageService fileStorageService,
+                            PlatformTransactionManager transactionManager,
+                            RetentionProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.retentionRepository = retentionRepository;
+        this.blobReferenceRepository = blobReferenceRepository;
+        this.fileStorageService = fileStorageService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.contractRows = rows("contract", meterRegistry);
+        this.analysisRows = rows("contract_analysis", meterRegistry);
+        this.operationRows = rows("contract_operation", meterRegistry);
+        this.searchEntryRows = rows("contract_search_entry", meterRegistry);
+        this.blobBytes = Counter.builder("contracthawk.retention.bytes")
+                .description("Bytes of blobs removed by retention")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.policy().isActive();
+    }
+
+    /**
+     * Removes the next batch under the configured policy.
+     *
+     * @return the number of uploads removed; fewer than the batch size once nothing more has expired
+     */
+    public int purgeNextBatch() {
+        return purge(properties.policy(), properties.batchSize());
+    }
+
+    public int purge(RetentionPolicy policy, int batchSize) {
+        if (!policy.isActive()) {
+            return 0;
+        }
+        Batch batch = transactionTemplate.execute(status -> {
+            List<ContractRetentionRepository.Expired> expired =
+                    retentionRepository.lockExpired(policy, OffsetDateTime.now(), batchSize);
+            if (expired.isEmpty()) {
+                return new Batch(new ContractRetentionRepository.Deleted(0, 0, 0, 0), Set.of());
+            }
+            List<Long> contractIds = expired.stream().map(ContractRetentionRepository.Expired::contractId).toList();
+            Set<String> blobs = new TreeSet<>(retentionRepository.findBundleStoragePaths(contractIds));
+            expired.forEach(e -> blobs.add(e.storagePath()));
+            return new Batch(retentionRepository.deleteAll(contractIds), blobs);
+        });
+        if (batch == null || batch.deleted().contracts() == 0) {
+            return 0;
+        }
+        contractRows.increment(batch.deleted().contracts());
+        analysisRows.increment(batch.deleted().analyses());
+        operationRows.increment(batch.deleted().operations());
+        searchEntryRows.increment(batch.deleted().searchEntries());
+
+        Removed removed = transactionTemplate.execute(status -> removeUnreferenced(batch.blobs()));
+        blobBytes.increment(removed.bytes());
+
+        log.info("Retention removed {} uploads, {} analyses and {} blobs ({} bytes)", batch.deleted().contracts(),
+                batch.deleted().analyses(), removed.blobs(), removed.bytes());
+        return (int) batch.deleted().contracts();
+    }
+
+    /**
+     * Removes those of the blobs that no upload refers to. Identical uploads share a blob, and one of them may be
+     * kept. The blobs are removed before the transaction commits, while it still holds their locks; if the commit
+     * fails, nothing refers to them anyway.
+     */
+    private Removed removeUnreferenced(Set<String> blobs) {
+        blobReferenceRepository.lock(blobs);
+        Set<String> orphaned = new TreeSet<>(blobs);
+        orphaned.removeAll(blobReferenceRepository.findReferenced(blobs));
+        long bytes = 0;
+        for (String blob : orphaned) {
+            try {
+                bytes += fileStorageService.delete(blob);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to remove blob {} of expired uploads", blob, e);
+            }
+        }
+        return new Removed(orphaned.size(), bytes);
+    }
+
+    private static Counter rows(String table, MeterRegistry meterRegistry) {
+        return Counter.builder("contracthawk.retention.rows")
+                .description("Rows removed by retention")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    private record Batch(ContractRetentionRepository.Deleted deleted, Set<String> blobs) {
+    }
+
+    private record Removed(int blobs, long bytes) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+/**
+ * @param services number of services whose state was written from history
+ */
+public record ServiceStateRebuildResponse(int services) {
+}
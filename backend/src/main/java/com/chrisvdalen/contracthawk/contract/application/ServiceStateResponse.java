@@ -0,0 +1,35 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.ServiceState;
+
+import java.time.OffsetDateTime;
+
+public record ServiceStateResponse(
+        String serviceName,
+        Long contractId,
+        String version,
+        OffsetDateTime uploadedAt,
+        Long analysisId,
+        AnalysisStatus status,
+        Boolean validSpec,
+        Integer pathCount,
+        Integer operationCount,
+        Boolean breakingChangesDetected,
+        OffsetDateTime finishedAt) {
+
+    public static ServiceStateResponse from(ServiceState state) {
+        return new ServiceStateResponse(
+                state.serviceName(),
+                state.contractId(),
+                state.version(),
+                state.uploadedAt(),
+                state.analysisId(),
+                state.status(),
+                state.validSpec(),
+                state.pathCount(),
+                state.operationCount(),
+                state.breakingChangesDetected(),
+                state.finishedAt());
+    }
+}
@@ -0,0 +1,39 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.analysis.repository.ServiceStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Reads the per-service state that analysis completion keeps current, and backfills it from history, e.g.
+ * after the table was introduced or emptied.
+ */
+@Service
+public class ServiceStateService {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceStateService.class);
+
+    private final ServiceStateRepository serviceStateRepository;
+
+    public ServiceStateService(ServiceStateRepository serviceStateRepository) {
+        this.serviceStateRepository = serviceStateRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ServiceStateResponse> list() {
+        return serviceStateRepository.findAll().stream()
+                .map(ServiceStateResponse::from)
+                .toList();
+    }
+
+    @Transactional
+    public ServiceStateRebuildResponse rebuild() {
+        int services = serviceStateRepository.rebuild();
+        log.info("Rebuilt the state of {} services from analysis history", services);
+        return new ServiceStateRebuildResponse(services);
+    }
+}
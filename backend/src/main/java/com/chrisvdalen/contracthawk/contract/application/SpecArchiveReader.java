@@ -0,0 +1,198 @@
+package com.chrisvdalen.contracthawk.contract.application;
+
+import com.chrisvdalen.contracthawk.contract.config.ArchiveProperties;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Walks a zip or tar.gz archive entry by entry straight off the request stream; nothing is unpacked to disk.
+ * The format is told apart by its magic bytes rather than by the file name.
+ *
+ * <p>Every entry is read through a stream that enforces the {@link ArchiveProperties} limits, also the entries
+ * the handler skips, so an archive that expands far beyond its upload size fails with an
+ * {@link ArchiveLimitException} rather than filling the disk.
+ */
+final class SpecArchiveReader {
+
+    // Below this, small and highly repetitive specs could trip the ratio check.
+    private static final long RATIO_CHECK_MIN_BYTES = 1024 * 1024;
+
+    @FunctionalInterface
+    interface EntryHandler {
+
+        /**
+         * @param content the entry's bytes; only valid during the call, and closing it is a no-op
+         */
+        void accept(String name, InputStream content);
+    }
+
+    /**
+     * The archive expands beyond the configured limits.
+     */
+    static final class ArchiveLimitException extends IOException {
+
+        ArchiveLimitException(String message) {
+            super(message);
+        }
+    }
+
+    private SpecArchiveReader() {
+    }
+
+    static void read(InputStream archive, ArchiveProperties limits, EntryHandler handler) throws IOException {
+        CountingInputStream compressed = new CountingInputStream(archive);
+        Budget budget = new Budget(limits, compressed);
+        try (ArchiveInputStream<? extends ArchiveEntry> entries = open(new BufferedInputStream(compressed))) {
+            ArchiveEntry entry;
+            while ((entry = entries.getNextEntry()) != null) {
+                if (entry.isDirectory() || !entries.canReadEntryData(entry)) {
+                    continue;
+                }
+                String name = normalize(entry.getName());
+                BoundedEntryStream content = new BoundedEntryStream(entries, name, budget);
+                handler.accept(name, content);
+                // Skipped entries are decompressed too, so they count against the limits as well.
+                content.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+    }
+
+    static String normalize(String name) {
+        String normalized = name.replace('\\', '/');
+        while (normalized.startsWith("./") || normalized.startsWith("/")) {
+            normalized = normalized.substring(normalized.startsWith("/") ? 1 : 2);
+        }
+        return normalized;
+    }
+
+    private static ArchiveInputStream<? extends ArchiveEntry> open(BufferedInputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        if (first == 'P' && second == 'K') {
+            return new ZipArchiveInputStream(in);
+        }
+        if (first == 0x1f && second == 0x8b) {
+            return new TarArchiveInputStream(new GzipCompressorInputStream(in));
+        }
+        throw new IOException("Archive is neither a zip nor a gzip-compressed tar");
+    }
+
+    /**
+     * Decompressed bytes of the whole archive so far, against the compressed bytes they came from.
+     */
+    private static final class Budget {
+
+        private final long maxEntryBytes;
+        private final long maxTotalBytes;
+        private final int maxRatio;
+        private final CountingInputStream compressed;
+        private long totalBytes;
+
+        Budget(ArchiveProperties limits, CountingInputStream compressed) {
+            this.maxEntryBytes = limits.maxEntrySize().toBytes();
+            this.maxTotalBytes = limits.maxTotalSize().toBytes();
+            this.maxRatio = limits.maxCompressionRatio();
+            this.compressed = compressed;
+        }
+
+        void add(String name, long entryBytes, long bytes) throws ArchiveLimitException {
+            totalBytes += bytes;
+            if (entryBytes > maxEntryBytes) {
+                throw new ArchiveLimitException("Archive entry " + name + " expands to more than "
+                        + maxEntryBytes + " bytes");
+            }
+            if (totalBytes > maxTotalBytes) {
+                throw new ArchiveLimitException("Archive expands to more than " + maxTotalBytes + " bytes");
+            }
+            if (totalBytes > RATIO_CHECK_MIN_BYTES && totalBytes > maxRatio * Math.max(1, compressed.count)) {
+                throw new ArchiveLimitException("Archive expands more than " + maxRatio + " times its size");
+            }
+        }
+    }
+
+    private static final class BoundedEntryStream extends FilterInputStream {
+
+        private final String name;
+        private final Budget budget;
+        private long entryBytes;
+
+        BoundedEntryStream(InputStream entries, String name, Budget budget) {
+            super(entries);
+            this.name = name;
+            this.budget = budget;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipping still decompresses, so it is counted like a read.
+            int read = n > 0 ? read(new byte[(int) Math.min(n, 8192)]) : 0;
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public void close() {
+            // The archive stream stays open for the next entry.
+        }
+
+        private void count(int n) throws ArchiveLimitException {
+            entryBytes += n;
+            budget.add(name, entryBytes, n);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.chrisvdalen.contracthawk.contract.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limits on what an uploaded zip or tar.gz archive may expand to. The upload size limit only bounds the
+ * compressed bytes; these bound what is decompressed from them, so a small archive cannot fill the disk.
+ *
+ * @param maxEntrySize        largest decompressed size of a single entry
+ * @param maxTotalSize        largest decompressed size of all entries together, including ones not stored
+ * @param maxCompressionRatio largest ratio of decompressed to compressed bytes, checked once more than a
+ *                            megabyte has been decompressed
+ */
+@ConfigurationProperties(prefix = "contracthawk.archive")
+public record ArchiveProperties(DataSize maxEntrySize, DataSize maxTotalSize, int maxCompressionRatio) {
+}
@@ -0,0 +1,15 @@
+package com.chrisvdalen.contracthawk.contract.config;
+
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Throttling of bulk re-analysis. Every {@code intervalMs} at most {@code batchSize} contracts are queued, and
+ * only as long as fewer than {@code maxInFlight} analyses of the run are unfinished, so the run proceeds at the
+ * pace the workers actually sustain instead of filling the queue ahead of live uploads.
+ *
+ * @param lane lane the re-analysis jobs are sent to; the large lane keeps them away from small live uploads
+ */
+@ConfigurationProperties(prefix = "contracthawk.reanalysis")
+public record ReanalysisProperties(int batchSize, long intervalMs, int maxInFlight, AnalysisLane lane) {
+}
@@ -0,0 +1,20 @@
+package com.chrisvdalen.contracthawk.contract.config;
+
+import com.chrisvdalen.contracthawk.contract.domain.RetentionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Retention of old uploads; see {@link RetentionPolicy} for {@code keepVersions} and {@code keepDays}. Expired
+ * uploads are removed {@code batchSize} at a time, one batch per {@code intervalMs}.
+ *
+ * @param idleIntervalMs how long to wait before looking again once a batch came back short, i.e. everything
+ *                       expired so far has been removed
+ */
+@ConfigurationProperties(prefix = "contracthawk.retention")
+public record RetentionProperties(int keepVersions, int keepDays, int batchSize, long intervalMs,
+                                  long idleIntervalMs) {
+
+    public RetentionPolicy policy() {
+        return new RetentionPolicy(keepVersions, keepDays);
+    }
+}
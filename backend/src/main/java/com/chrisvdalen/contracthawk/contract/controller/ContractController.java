@@ -1,23 +1,46 @@
 package com.chrisvdalen.contracthawk.contract.controller;
 
 import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisResponse;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.contract.application.AnalysisEventStreamService;
+import com.chrisvdalen.contracthawk.contract.application.AnalysisPriority;
+import com.chrisvdalen.contracthawk.contract.application.BulkManifestEntry;
+import com.chrisvdalen.contracthawk.contract.application.ContractContent;
+import com.chrisvdalen.contracthawk.contract.application.ContractContentService;
 import com.chrisvdalen.contracthawk.contract.application.ContractDetailsResponse;
-import com.chrisvdalen.contracthawk.contract.application.ContractListItem;
+import com.chrisvdalen.contracthawk.contract.application.ContractPage;
 import com.chrisvdalen.contracthawk.contract.application.ContractQueryService;
 import com.chrisvdalen.contracthawk.contract.application.ContractResponse;
 import com.chrisvdalen.contracthawk.contract.application.ContractUploadService;
+import com.chrisvdalen.contracthawk.contract.application.ResourceVersion;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListFilter;
+import com.chrisvdalen.contracthawk.shared.web.FileTransfer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/contracts")
@@ -25,37 +48,118 @@ public class ContractController {
 
     private final ContractUploadService uploadService;
     private final ContractQueryService queryService;
+    private final AnalysisEventStreamService eventStreamService;
+    private final ContractContentService contentService;
 
-    public ContractController(ContractUploadService uploadService, ContractQueryService queryService) {
+    public ContractController(ContractUploadService uploadService,
+                              ContractQueryService queryService,
+                              AnalysisEventStreamService eventStreamService,
+                              ContractContentService contentService) {
         this.uploadService = uploadService;
         this.queryService = queryService;
+        this.eventStreamService = eventStreamService;
+        this.contentService = contentService;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseStatus(HttpStatus.CREATED)
     public ContractResponse upload(@RequestParam("serviceName") String serviceName,
                                    @RequestParam("version") String version,
-                                   @RequestParam("file") MultipartFile file) {
-        return uploadService.upload(serviceName, version, file);
+                                   @RequestParam("file") MultipartFile file,
+                                   @RequestParam(value = "priority", required = false) AnalysisPriority priority) {
+        return uploadService.upload(serviceName, version, file, priority);
+    }
+
+    @PostMapping(path = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<ContractResponse> uploadBulk(@RequestPart("manifest") List<BulkManifestEntry> manifest,
+                                             @RequestParam("archive") MultipartFile archive,
+                                             @RequestParam(value = "priority", required = false) AnalysisPriority priority) {
+        return uploadService.uploadBulk(manifest, archive, priority);
+    }
+
+    @PostMapping(path = "/bundle", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public ContractResponse uploadBundle(@RequestParam("serviceName") String serviceName,
+                                         @RequestParam("version") String version,
+                                         @RequestParam("root") String root,
+                                         @RequestParam("archive") MultipartFile archive,
+                                         @RequestParam(value = "priority", required = false) AnalysisPriority priority) {
+        return uploadService.uploadBundle(serviceName, version, root, archive, priority);
     }
 
     @GetMapping
-    public List<ContractListItem> list() {
-        return queryService.listAll();
+    public ContractPage list(@RequestParam(value = "serviceName", required = false) String serviceName,
+                             @RequestParam(value = "status", required = false) AnalysisStatus status,
+                             @RequestParam(value = "breakingChangesDetected", required = false) Boolean breakingChangesDetected,
+                             @RequestParam(value = "cursor", required = false) String cursor,
+                             @RequestParam(value = "limit", defaultValue = "" + ContractQueryService.DEFAULT_PAGE_SIZE) int limit) {
+        return queryService.list(new ContractListFilter(serviceName, status, breakingChangesDetected), cursor, limit);
     }
 
     @GetMapping("/{id}")
-    public ContractDetailsResponse get(@PathVariable Long id) {
-        return queryService.getById(id);
+    public ResponseEntity<ContractDetailsResponse> get(@PathVariable Long id, WebRequest request) {
+        return conditional(request, queryService.getContractVersion(id), () -> queryService.getById(id));
     }
 
     @GetMapping("/{id}/analyses")
-    public List<ContractAnalysisResponse> analyses(@PathVariable Long id) {
-        return queryService.listAnalyses(id);
+    public ResponseEntity<List<ContractAnalysisResponse>> analyses(@PathVariable Long id, WebRequest request) {
+        return conditional(request, queryService.getAnalysesVersion(id), () -> queryService.listAnalyses(id));
     }
 
     @GetMapping("/{id}/latest-analysis")
-    public ContractAnalysisResponse latestAnalysis(@PathVariable Long id) {
-        return queryService.getLatestAnalysis(id);
+    public ResponseEntity<ContractAnalysisResponse> latestAnalysis(@PathVariable Long id, WebRequest request) {
+        return conditional(request, queryService.getLatestAnalysisVersion(id), () -> queryService.getLatestAnalysis(id));
+    }
+
+    /**
+     * Sends the stored spec as uploaded, gzip-compressed if the client accepts it, and supports a single byte
+     * range so large downloads can resume. Stored content never changes, so it is cacheable as immutable.
+     */
+    @GetMapping("/{id}/content")
+    public void content(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        ContractContent content = contentService.getContent(id, FileTransfer.acceptsGzip(request));
+        ResourceVersion version = content.version();
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(version.maxAge()).cachePublic().immutable().getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(version.etag(), version.lastModifiedEpochMillis())) {
+            return;
+        }
+        response.setContentType(content.mediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename(content.filename(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        if (content.decoded() != null) {
+            try (InputStream in = content.decoded().getInputStream()) {
+                FileTransfer.stream(request, response, in);
+            }
+            return;
+        }
+        if (content.gzipEncoded()) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        FileTransfer.send(request, response, content.file().path(), content.file().sizeBytes(), version.etag());
+    }
+
+    @GetMapping(path = "/{id}/analysis-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analysisEvents(@PathVariable Long id) {
+        return eventStreamService.open(id);
+    }
+
+    /**
+     * Answers 304 from the version alone when the client's copy is current; the body is only loaded otherwise.
+     * {@link WebRequest#checkNotModified} also sets the ETag and Last-Modified headers.
+     */
+    private static <T> ResponseEntity<T> conditional(WebRequest request, ResourceVersion version, Supplier<T> body) {
+        CacheControl cacheControl = version.maxAge() == null
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(version.maxAge()).cachePublic();
+        if (request.checkNotModified(version.etag(), version.lastModifiedEpochMillis())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(body.get());
     }
 }
@@ -0,0 +1,52 @@
+package com.chrisvdalen.contracthawk.contract.controller;
+
+import com.chrisvdalen.contracthawk.contract.application.ReanalysisRequest;
+import com.chrisvdalen.contracthawk.contract.application.ReanalysisRunResponse;
+import com.chrisvdalen.contracthawk.contract.application.ReanalysisService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/reanalysis")
+public class ReanalysisController {
+
+    private final ReanalysisService reanalysisService;
+
+    public ReanalysisController(ReanalysisService reanalysisService) {
+        this.reanalysisService = reanalysisService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReanalysisRunResponse start(@RequestBody(required = false) ReanalysisRequest request) {
+        return reanalysisService.start(request);
+    }
+
+    @GetMapping
+    public List<ReanalysisRunResponse> list() {
+        return reanalysisService.listRecent();
+    }
+
+    @GetMapping("/{id}")
+    public ReanalysisRunResponse get(@PathVariable Long id) {
+        return reanalysisService.get(id);
+    }
+
+    @PostMapping("/{id}/pause")
+    public ReanalysisRunResponse pause(@PathVariable Long id) {
+        return reanalysisService.pause(id);
+    }
+
+    @PostMapping("/{id}/resume")
+    public ReanalysisRunResponse resume(@PathVariable Long id) {
+        return reanalysisService.resume(id);
+    }
+}
@@ -0,0 +1,32 @@
+package com.chrisvdalen.contracthawk.contract.controller;
+
+import com.chrisvdalen.contracthawk.contract.application.ServiceStateRebuildResponse;
+import com.chrisvdalen.contracthawk.contract.application.ServiceStateResponse;
+import com.chrisvdalen.contracthawk.contract.application.ServiceStateService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/services")
+public class ServiceController {
+
+    private final ServiceStateService serviceStateService;
+
+    public ServiceController(ServiceStateService serviceStateService) {
+        this.serviceStateService = serviceStateService;
+    }
+
+    @GetMapping
+    public List<ServiceStateResponse> list() {
+        return serviceStateService.list();
+    }
+
+    @PostMapping("/rebuild")
+    public ServiceStateRebuildResponse rebuild() {
+        return serviceStateService.rebuild();
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import java.time.OffsetDateTime;
@@ -14,7 +15,9 @@ import java.time.OffsetDateTime;
 public class Contract {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence rather than IDENTITY so that inserts can be JDBC-batched.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contract_seq")
+    @SequenceGenerator(name = "contract_seq", sequenceName = "contract_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "service_name", nullable = false)
@@ -29,17 +32,26 @@ public class Contract {
     @Column(name = "storage_path", nullable = false)
     private String storagePath;
 
+    @Column(name = "content_sha256")
+    private String contentSha256;
+
     @Column(name = "uploaded_at", nullable = false)
     private OffsetDateTime uploadedAt;
 
     protected Contract() {
     }
 
-    public Contract(String serviceName, String version, String originalFilename, String storagePath, OffsetDateTime uploadedAt) {
+    public Contract(String serviceName,
+                    String version,
+                    String originalFilename,
+                    String storagePath,
+                    String contentSha256,
+                    OffsetDateTime uploadedAt) {
         this.serviceName = serviceName;
         this.version = version;
         this.originalFilename = originalFilename;
         this.storagePath = storagePath;
+        this.contentSha256 = contentSha256;
         this.uploadedAt = uploadedAt;
     }
 
@@ -63,6 +75,10 @@ public class Contract {
         return storagePath;
     }
 
+    public String getContentSha256() {
+        return contentSha256;
+    }
+
     public OffsetDateTime getUploadedAt() {
         return uploadedAt;
     }
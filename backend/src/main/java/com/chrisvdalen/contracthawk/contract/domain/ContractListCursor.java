@@ -0,0 +1,41 @@
+package com.chrisvdalen.contracthawk.contract.domain;
+
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the contract listing, ordered by {@code uploaded_at DESC, id DESC}.
+ * Encoded as an opaque URL-safe token so clients never build it themselves.
+ */
+public record ContractListCursor(OffsetDateTime uploadedAt, Long id) {
+
+    public static ContractListCursor after(ContractListItem item) {
+        return new ContractListCursor(item.uploadedAt(), item.id());
+    }
+
+    public static ContractListCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(',');
+            if (separator < 0) {
+                throw new IllegalArgumentException("missing separator");
+            }
+            OffsetDateTime uploadedAt = Instant.parse(raw.substring(0, separator)).atOffset(ZoneOffset.UTC);
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new ContractListCursor(uploadedAt, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("INVALID_CURSOR", "cursor is malformed");
+        }
+    }
+
+    public String encode() {
+        String raw = uploadedAt.toInstant() + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
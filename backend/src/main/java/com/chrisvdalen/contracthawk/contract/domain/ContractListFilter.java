@@ -0,0 +1,6 @@
+package com.chrisvdalen.contracthawk.contract.domain;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+
+public record ContractListFilter(String serviceName, AnalysisStatus status, Boolean breakingChangesDetected) {
+}
@@ -1,4 +1,4 @@
-package com.chrisvdalen.contracthawk.contract.application;
+package com.chrisvdalen.contracthawk.contract.domain;
 
 import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
 
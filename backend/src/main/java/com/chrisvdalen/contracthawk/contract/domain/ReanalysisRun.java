@@ -0,0 +1,26 @@
+package com.chrisvdalen.contracthawk.contract.domain;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A bulk re-analysis of stored contracts, queued in batches in contract id order. The cursor and counts are
+ * persisted with every batch, so a run continues where it stopped after a pause or a restart.
+ *
+ * @param serviceName    only re-analyze this service, or {@code null} for all
+ * @param maxContractId  highest contract id at the start; later uploads are analyzed anyway
+ * @param batchFailures  batches that failed and were retried on a later tick
+ */
+public record ReanalysisRun(
+        Long id,
+        ReanalysisStatus status,
+        String serviceName,
+        long maxContractId,
+        long cursorContractId,
+        int total,
+        int queued,
+        int batchFailures,
+        String lastError,
+        OffsetDateTime createdAt,
+        OffsetDateTime updatedAt,
+        OffsetDateTime finishedAt) {
+}
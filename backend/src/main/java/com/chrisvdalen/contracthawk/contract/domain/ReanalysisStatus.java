@@ -0,0 +1,8 @@
+package com.chrisvdalen.contracthawk.contract.domain;
+
+public enum ReanalysisStatus {
+    RUNNING,
+    PAUSED,
+    /** Every contract of the run has been queued; its analyses may still be in progress. */
+    FINISHED
+}
@@ -0,0 +1,29 @@
+package com.chrisvdalen.contracthawk.contract.domain;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Which uploads of a service are kept: the newest {@code keepVersions}, and those uploaded within the last
+ * {@code keepDays}. A rule set to zero does not apply; an upload is only removed if every rule that applies lets
+ * it go. The latest upload of a service is always kept, and with neither rule set nothing is removed.
+ */
+public record RetentionPolicy(int keepVersions, int keepDays) {
+
+    public boolean isActive() {
+        return keepVersions > 0 || keepDays > 0;
+    }
+
+    /**
+     * @return the number of newest uploads per service that are kept regardless of their age, at least one
+     */
+    public int versionsKept() {
+        return Math.max(1, keepVersions);
+    }
+
+    /**
+     * @return the upload time before which uploads may be removed, or {@code null} if age does not matter
+     */
+    public OffsetDateTime uploadedBefore(OffsetDateTime now) {
+        return keepDays > 0 ? now.minusDays(keepDays) : null;
+    }
+}
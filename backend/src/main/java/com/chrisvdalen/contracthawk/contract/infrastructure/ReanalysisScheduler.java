@@ -0,0 +1,34 @@
+package com.chrisvdalen.contracthawk.contract.infrastructure;
+
+import com.chrisvdalen.contracthawk.contract.application.ReanalysisService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Queues one batch of the running re-analysis per tick, which together with the batch size sets the rate.
+ */
+@Component
+public class ReanalysisScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReanalysisScheduler.class);
+
+    private final ReanalysisService reanalysisService;
+
+    public ReanalysisScheduler(ReanalysisService reanalysisService) {
+        this.reanalysisService = reanalysisService;
+    }
+
+    @Scheduled(fixedDelayString = "${contracthawk.reanalysis.interval-ms}")
+    public void tick() {
+        reanalysisService.findRunningId().ifPresent(runId -> {
+            try {
+                reanalysisService.queueNextBatch(runId);
+            } catch (RuntimeException e) {
+                log.warn("Re-analysis run {} failed to queue a batch; retrying on the next tick", runId, e);
+                reanalysisService.recordFailure(runId, e);
+            }
+        });
+    }
+}
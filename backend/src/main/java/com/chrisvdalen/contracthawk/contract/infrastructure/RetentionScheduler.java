@@ -0,0 +1,41 @@
+package com.chrisvdalen.contracthawk.contract.infrastructure;
+
+import com.chrisvdalen.contracthawk.contract.application.RetentionService;
+import com.chrisvdalen.contracthawk.contract.config.RetentionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes one batch of expired uploads per tick while there are any, then looks again only after the idle
+ * interval, so a caught-up retention costs one query per idle interval.
+ */
+@Component
+public class RetentionScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionScheduler.class);
+
+    private final RetentionService retentionService;
+    private final RetentionProperties properties;
+    private volatile long idleUntilMillis;
+
+    public RetentionScheduler(RetentionService retentionService, RetentionProperties properties) {
+        this.retentionService = retentionService;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${contracthawk.retention.interval-ms}")
+    public void tick() {
+        if (!retentionService.isEnabled() || System.currentTimeMillis() < idleUntilMillis) {
+            return;
+        }
+        try {
+            if (retentionService.purgeNextBatch() < properties.batchSize()) {
+                idleUntilMillis = System.currentTimeMillis() + properties.idleIntervalMs();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Retention batch failed; retrying on the next tick", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.chrisvdalen.contracthawk.contract.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * References from uploads to the blobs they share. A blob is only removed from disk under {@link #lock} and after
+ * {@link #findReferenced} came back without it, and an upload takes the same lock before it refers to a blob that
+ * storage reported as already present; so a blob is never removed between an identical upload finding it and that
+ * upload committing.
+ */
+@Repository
+public class BlobReferenceRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BlobReferenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Takes a transaction-scoped advisory lock per storage path, in path order so that concurrent callers cannot
+     * deadlock, and waits for transactions that hold any of them. The locks are released at commit or rollback.
+     */
+    public void lock(Collection<String> storagePaths) {
+        if (storagePaths.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("""
+                        SELECT pg_advisory_xact_lock(hashtextextended(p, 0))
+                        FROM (SELECT DISTINCT p FROM unnest(?) AS t (p) ORDER BY p) AS paths
+                        """,
+                ps -> ps.setArray(1, varcharArray(ps.getConnection(), storagePaths)),
+                rs -> null);
+    }
+
+    /**
+     * @return those of the storage paths that an upload, or a file of a bundle, still refers to
+     */
+    public Set<String> findReferenced(Collection<String> storagePaths) {
+        return new HashSet<>(jdbcTemplate.query("""
+                        SELECT storage_path FROM contract WHERE storage_path = ANY (?)
+                        UNION
+                        SELECT storage_path FROM contract_bundle_file WHERE storage_path = ANY (?)
+                        """,
+                ps -> {
+                    Array paths = varcharArray(ps.getConnection(), storagePaths);
+                    ps.setArray(1, paths);
+                    ps.setArray(2, paths);
+                },
+                (rs, rowNum) -> rs.getString(1)));
+    }
+
+    private static Array varcharArray(Connection connection, Collection<String> storagePaths) throws SQLException {
+        return connection.createArrayOf("varchar", storagePaths.toArray());
+    }
+}
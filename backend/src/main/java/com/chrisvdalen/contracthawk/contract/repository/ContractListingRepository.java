@@ -0,0 +1,16 @@
+package com.chrisvdalen.contracthawk.contract.repository;
+
+import com.chrisvdalen.contracthawk.contract.domain.ContractListCursor;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListFilter;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListItem;
+
+import java.util.List;
+
+public interface ContractListingRepository {
+
+    /**
+     * Returns up to {@code limit} contracts newest first, each joined with its latest analysis,
+     * starting strictly after {@code after} when a cursor is given.
+     */
+    List<ContractListItem> findListItems(ContractListFilter filter, ContractListCursor after, int limit);
+}
@@ -0,0 +1,81 @@
+package com.chrisvdalen.contracthawk.contract.repository;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListCursor;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListFilter;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListItem;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-statement listing: the latest analysis per contract is resolved with a LATERAL top-1 lookup on
+ * {@code idx_contract_analysis_contract_created}, and only the predicates that are actually requested are
+ * rendered so the planner can pick {@code idx_contract_service_uploaded} or {@code idx_contract_uploaded_id}.
+ */
+class ContractListingRepositoryImpl implements ContractListingRepository {
+
+    private static final String SELECT = """
+            SELECT c.id, c.service_name, c.version, c.original_filename, c.uploaded_at,
+                   la.status, la.breaking_changes_detected
+            FROM contract c
+            LEFT JOIN LATERAL (
+                SELECT a.status, a.breaking_changes_detected
+                FROM contract_analysis a
+                WHERE a.contract_id = c.id
+                ORDER BY a.created_at DESC
+                LIMIT 1
+            ) la ON TRUE
+            WHERE TRUE
+            """;
+
+    private final JdbcClient jdbcClient;
+
+    ContractListingRepositoryImpl(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    @Override
+    public List<ContractListItem> findListItems(ContractListFilter filter, ContractListCursor after, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT);
+        Map<String, Object> params = new LinkedHashMap<>();
+
+        if (filter.serviceName() != null) {
+            sql.append(" AND c.service_name = :serviceName");
+            params.put("serviceName", filter.serviceName());
+        }
+        if (filter.status() != null) {
+            sql.append(" AND la.status = :status");
+            params.put("status", filter.status().name());
+        }
+        if (filter.breakingChangesDetected() != null) {
+            sql.append(" AND la.breaking_changes_detected = :breaking");
+            params.put("breaking", filter.breakingChangesDetected());
+        }
+        if (after != null) {
+            sql.append(" AND (c.uploaded_at, c.id) < (:cursorUploadedAt, :cursorId)");
+            params.put("cursorUploadedAt", after.uploadedAt());
+            params.put("cursorId", after.id());
+        }
+        sql.append(" ORDER BY c.uploaded_at DESC, c.id DESC LIMIT :limit");
+        params.put("limit", limit);
+
+        return jdbcClient.sql(sql.toString())
+                .params(params)
+                .query((rs, rowNum) -> {
+                    String status = rs.getString("status");
+                    return new ContractListItem(
+                            rs.getLong("id"),
+                            rs.getString("service_name"),
+                            rs.getString("version"),
+                            rs.getString("original_filename"),
+                            rs.getObject("uploaded_at", OffsetDateTime.class),
+                            status == null ? null : AnalysisStatus.valueOf(status),
+                            rs.getObject("breaking_changes_detected", Boolean.class));
+                })
+                .list();
+    }
+}
@@ -2,10 +2,29 @@ package com.chrisvdalen.contracthawk.contract.repository;
 
 import com.chrisvdalen.contracthawk.contract.domain.Contract;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface ContractRepository extends JpaRepository<Contract, Long> {
+public interface ContractRepository extends JpaRepository<Contract, Long>, ContractListingRepository {
 
-    Optional<Contract> findTopByServiceNameAndIdNotOrderByUploadedAtDesc(String serviceName, Long excludeId);
+    Optional<Contract> findTopByServiceNameAndIdNotOrderByUploadedAtDescIdDesc(String serviceName, Long excludeId);
+
+    /**
+     * Latest upload of each of the given services, in one query.
+     */
+    @Query(value = """
+            SELECT DISTINCT ON (service_name) *
+            FROM contract
+            WHERE service_name IN (:serviceNames)
+            ORDER BY service_name, uploaded_at DESC, id DESC
+            """, nativeQuery = true)
+    List<Contract> findLatestByServiceNames(@Param("serviceNames") Collection<String> serviceNames);
+
+    @Query("SELECT c.uploadedAt FROM Contract c WHERE c.id = :id")
+    Optional<OffsetDateTime> findUploadedAtById(Long id);
 }
@@ -0,0 +1,103 @@
+package com.chrisvdalen.contracthawk.contract.repository;
+
+import com.chrisvdalen.contracthawk.contract.domain.RetentionPolicy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds and deletes uploads that a {@link RetentionPolicy} no longer keeps. Their analyses, operation and search
+ * index rows go with them through {@code ON DELETE CASCADE}.
+ */
+@Repository
+public class ContractRetentionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ContractRetentionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Locks up to {@code limit} expired uploads for the current transaction, oldest id first. Rows another
+     * transaction holds are skipped rather than waited for. An upload is left alone while {@code service_state}
+     * points at it, while one of its analyses is unfinished, or while it belongs to an active re-analysis run,
+     * so none of those ever refers to a deleted upload.
+     */
+    public List<Expired> lockExpired(RetentionPolicy policy, OffsetDateTime now, int limit) {
+        OffsetDateTime uploadedBefore = policy.uploadedBefore(now);
+        return jdbcTemplate.query("""
+                        SELECT c.id, c.storage_path
+                        FROM contract c
+                        WHERE (c.uploaded_at, c.id) < (SELECT n.uploaded_at, n.id
+                                                       FROM contract n
+                                                       WHERE n.service_name = c.service_name
+                                                       ORDER BY n.uploaded_at DESC, n.id DESC
+                                                       OFFSET ? LIMIT 1)
+                          AND (?::timestamptz IS NULL OR c.uploaded_at < ?)
+                          AND NOT EXISTS (SELECT 1 FROM service_state s WHERE s.contract_id = c.id)
+                          AND NOT EXISTS (SELECT 1
+                                          FROM contract_analysis a
+                                          LEFT JOIN reanalysis_run r ON r.id = a.reanalysis_run_id
+                                          WHERE a.contract_id = c.id
+                                            AND (a.status IN ('PENDING', 'PROCESSING')
+                                                 OR r.status IN ('RUNNING', 'PAUSED')))
+                        ORDER BY c.id
+                        LIMIT ?
+                        FOR UPDATE OF c SKIP LOCKED
+                        """,
+                (rs, rowNum) -> new Expired(rs.getLong("id"), rs.getString("storage_path")),
+                policy.versionsKept() - 1, uploadedBefore, uploadedBefore, limit);
+    }
+
+    /**
+     * Deletes the uploads and everything that cascades from them.
+     *
+     * @return the number of rows removed from each table
+     */
+    public Deleted deleteAll(Collection<Long> contractIds) {
+        Deleted cascaded = jdbcTemplate.query("""
+                        SELECT (SELECT COUNT(*) FROM contract_analysis WHERE contract_id = ANY (?)) AS analyses,
+                               (SELECT COUNT(*) FROM contract_operation WHERE contract_id = ANY (?)) AS operations,
+                               (SELECT COUNT(*) FROM contract_search_entry WHERE contract_id = ANY (?)) AS search_entries
+                        """,
+                ps -> {
+                    Array ids = bigintArray(ps.getConnection(), contractIds);
+                    ps.setArray(1, ids);
+                    ps.setArray(2, ids);
+                    ps.setArray(3, ids);
+                },
+                (rs, rowNum) -> new Deleted(0, rs.getLong("analyses"), rs.getLong("operations"),
+                        rs.getLong("search_entries")))
+                .getFirst();
+        int contracts = jdbcTemplate.update("DELETE FROM contract WHERE id = ANY (?)",
+                ps -> ps.setArray(1, bigintArray(ps.getConnection(), contractIds)));
+        return new Deleted(contracts, cascaded.analyses(), cascaded.operations(), cascaded.searchEntries());
+    }
+
+    /**
+     * @return the storage paths of the files of those uploads that are multi-file bundles
+     */
+    public List<String> findBundleStoragePaths(Collection<Long> contractIds) {
+        return jdbcTemplate.query(
+                "SELECT DISTINCT storage_path FROM contract_bundle_file WHERE contract_id = ANY (?)",
+                ps -> ps.setArray(1, bigintArray(ps.getConnection(), contractIds)),
+                (rs, rowNum) -> rs.getString(1));
+    }
+
+    private static Array bigintArray(Connection connection, Collection<Long> ids) throws SQLException {
+        return connection.createArrayOf("bigint", ids.toArray());
+    }
+
+    public record Expired(long contractId, String storagePath) {
+    }
+
+    public record Deleted(long contracts, long analyses, long operations, long searchEntries) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.chrisvdalen.contracthawk.contract.repository;
+
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisRun;
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistent state of bulk re-analysis runs. A batch locks its run row for the transaction that queues the
+ * batch, skipping a row that another node already holds, so concurrent schedulers never queue the same
+ * contracts twice.
+ */
+@Repository
+public class ReanalysisRunRepository {
+
+    private static final String COLUMNS = """
+            id, status, service_name, max_contract_id, cursor_contract_id, total, queued, batch_failures,
+            last_error, created_at, updated_at, finished_at""";
+
+    private static final RowMapper<ReanalysisRun> RUN = (rs, rowNum) -> new ReanalysisRun(
+            rs.getLong("id"),
+            ReanalysisStatus.valueOf(rs.getString("status")),
+            rs.getString("service_name"),
+            rs.getLong("max_contract_id"),
+            rs.getLong("cursor_contract_id"),
+            rs.getInt("total"),
+            rs.getInt("queued"),
+            rs.getInt("batch_failures"),
+            rs.getString("last_error"),
+            rs.getObject("created_at", OffsetDateTime.class),
+            rs.getObject("updated_at", OffsetDateTime.class),
+            rs.getObject("finished_at", OffsetDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReanalysisRunRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Starts a run over the contracts that exist now, optionally of one service only. Fails with a
+     * {@link org.springframework.dao.DuplicateKeyException} if another run is still active.
+     */
+    public ReanalysisRun start(String serviceName, OffsetDateTime now) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO reanalysis_run (status, service_name, max_contract_id, total, created_at, updated_at)
+                SELECT 'RUNNING', ?, COALESCE(MAX(c.id), 0), COUNT(*), ?, ?
+                FROM contract c
+                WHERE ?::varchar IS NULL OR c.service_name = ?
+                RETURNING\s""" + COLUMNS,
+                RUN, serviceName, now, now, serviceName, serviceName);
+    }
+
+    public Optional<ReanalysisRun> findById(Long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM reanalysis_run WHERE id = ?", RUN, id)
+                .stream()
+                .findFirst();
+    }
+
+    public List<ReanalysisRun> findRecent(int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM reanalysis_run ORDER BY id DESC LIMIT ?", RUN, limit);
+    }
+
+    public Optional<Long> findRunningId() {
+        return jdbcTemplate.queryForList("SELECT id FROM reanalysis_run WHERE status = 'RUNNING'", Long.class)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Locks the run for the current transaction if it is RUNNING and not already locked by another node.
+     */
+    public Optional<ReanalysisRun> lockRunning(Long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS
+                        + " FROM reanalysis_run WHERE id = ? AND status = 'RUNNING' FOR UPDATE SKIP LOCKED", RUN, id)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * The next contracts of the run after its cursor, in id order, each with the upload that preceded it in
+     * its service, which is what its analysis is compared against.
+     */
+    public List<Candidate> nextCandidates(ReanalysisRun run, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT c.id, c.storage_path, c.content_sha256,
+                               (SELECT p.id
+                                FROM contract p
+                                WHERE p.service_name = c.service_name
+                                  AND (p.uploaded_at, p.id) < (c.uploaded_at, c.id)
+                                ORDER BY p.uploaded_at DESC, p.id DESC
+                                LIMIT 1) AS previous_contract_id
+                        FROM contract c
+                        WHERE c.id > ? AND c.id <= ?
+                          AND (?::varchar IS NULL OR c.service_name = ?)
+                        ORDER BY c.id
+                        LIMIT ?
+                        """,
+                (rs, rowNum) -> new Candidate(
+                        rs.getLong("id"),
+                        rs.getString("storage_path"),
+                        rs.getString("content_sha256"),
+                        rs.getObject("previous_contract_id", Long.class)),
+                run.cursorContractId(), run.maxContractId(), run.serviceName(), run.serviceName(), limit);
+    }
+
+    public void advance(Long id, long cursorContractId, int queued, OffsetDateTime now) {
+        jdbcTemplate.update("""
+                UPDATE reanalysis_run
+                SET cursor_contract_id = ?, queued = queued + ?, updated_at = ?
+                WHERE id = ?
+                """, cursorContractId, queued, now, id);
+    }
+
+    /**
+     * Marks the run FINISHED. The total becomes the number actually queued, which is lower than the count at
+     * the start if contracts were deleted in the meantime.
+     */
+    public void finish(Long id, OffsetDateTime now) {
+        jdbcTemplate.update("""
+                UPDATE reanalysis_run
+                SET status = 'FINISHED', total = queued, updated_at = ?, finished_at = ?
+                WHERE id = ?
+                """, now, now, id);
+    }
+
+    public void recordFailure(Long id, String error, OffsetDateTime now) {
+        jdbcTemplate.update("""
+                UPDATE reanalysis_run
+                SET batch_failures = batch_failures + 1, last_error = ?, updated_at = ?
+                WHERE id = ?
+                """, error, now, id);
+    }
+
+    /**
+     * @return {@code false} if the run does not exist or is not in status {@code from}
+     */
+    public boolean transition(Long id, ReanalysisStatus from, ReanalysisStatus to, OffsetDateTime now) {
+        return jdbcTemplate.update("UPDATE reanalysis_run SET status = ?, updated_at = ? WHERE id = ? AND status = ?",
+                to.name(), now, id, from.name()) > 0;
+    }
+
+    public record Candidate(long contractId, String storagePath, String contentSha256, Long previousContractId) {
+    }
+}
@@ -1,4 +1,22 @@
 package com.chrisvdalen.contracthawk.messaging.application;
 
-public record AnalysisJob(Long contractId, Long analysisId, String storagePath) {
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+
+import java.time.Instant;
+
+/**
+ * @param contentSha256      digest of the stored spec, used to share parse work between identical uploads
+ * @param previousContractId latest earlier upload of the same service, or {@code null} for a first version
+ * @param enqueuedAt         when the job was written to the outbox, or re-enqueued after its lease expired;
+ *                           {@code null} on messages published before this was recorded
+ * @param lane               lane the job is published to; {@code null} on messages published before lanes
+ *                           existed, which are treated as {@link AnalysisLane#SMALL}
+ */
+public record AnalysisJob(Long contractId,
+                          Long analysisId,
+                          String storagePath,
+                          String contentSha256,
+                          Long previousContractId,
+                          Instant enqueuedAt,
+                          AnalysisLane lane) {
 }
@@ -0,0 +1,42 @@
+package com.chrisvdalen.contracthawk.messaging.application;
+
+import com.chrisvdalen.contracthawk.messaging.repository.AnalysisOutboxRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Records analysis jobs in the caller's transaction. A job becomes visible to the relay only if that
+ * transaction commits, and is then published at least once.
+ */
+@Service
+public class AnalysisJobOutbox {
+
+    private final AnalysisOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AnalysisJobOutbox(AnalysisOutboxRepository outboxRepository, ApplicationEventPublisher eventPublisher) {
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(AnalysisJob job) {
+        enqueueAll(List.of(job));
+    }
+
+    /**
+     * Records the jobs with batched inserts; the relay then publishes them in batches as well.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<AnalysisJob> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        outboxRepository.addAll(jobs);
+        eventPublisher.publishEvent(new AnalysisJobsEnqueuedEvent(jobs.size()));
+    }
+}
@@ -1,6 +1,16 @@
 package com.chrisvdalen.contracthawk.messaging.application;
 
+import java.util.List;
+
 public interface AnalysisJobPublisher {
 
     void publish(AnalysisJob job);
+
+    /**
+     * Publishes the jobs and returns once the broker has accepted all of them; throws otherwise, in which
+     * case any of them may or may not have been delivered.
+     */
+    default void publishAll(List<AnalysisJob> jobs) {
+        jobs.forEach(this::publish);
+    }
 }
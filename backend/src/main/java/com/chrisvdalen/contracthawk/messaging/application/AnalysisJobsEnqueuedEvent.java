@@ -0,0 +1,8 @@
+package com.chrisvdalen.contracthawk.messaging.application;
+
+/**
+ * Published when jobs are written to the outbox, so the relay can pick them up right after commit instead
+ * of on its next poll.
+ */
+public record AnalysisJobsEnqueuedEvent(int count) {
+}
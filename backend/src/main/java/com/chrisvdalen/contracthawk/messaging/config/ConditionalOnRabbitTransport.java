@@ -0,0 +1,20 @@
+package com.chrisvdalen.contracthawk.messaging.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Only registers the bean when analysis jobs go through RabbitMQ, which is the default
+ * ({@code contracthawk.messaging.transport=rabbit}).
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnProperty(prefix = "contracthawk.messaging", name = "transport", havingValue = "rabbit", matchIfMissing = true)
+public @interface ConditionalOnRabbitTransport {
+}
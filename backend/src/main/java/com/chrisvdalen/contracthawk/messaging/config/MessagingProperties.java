@@ -1,17 +1,99 @@
 package com.chrisvdalen.contracthawk.messaging.config;
 
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "contracthawk.messaging")
 public record MessagingProperties(
         String exchange,
-        String queue,
-        String routingKey,
         String deadLetterExchange,
         String deadLetterQueue,
         String deadLetterRoutingKey,
-        Retry retry) {
+        String retryExchange,
+        String eventsExchange,
+        Retry retry,
+        Batch batch,
+        Outbox outbox,
+        Transport transport,
+        InProcess inProcess,
+        Lanes lanes) {
 
+    /**
+     * @param maxAttempts number of retries after the first delivery; each waits in the delay queue for its delay
+     */
     public record Retry(int maxAttempts, long initialIntervalMs, double multiplier, long maxIntervalMs) {
+
+        public long delayMs(int retry) {
+            double delay = initialIntervalMs * Math.pow(multiplier, retry - 1);
+            return (long) Math.min(delay, maxIntervalMs);
+        }
+    }
+
+    /**
+     * Opt-in consumer batching: up to {@code size} deliveries are handed over together, or fewer once
+     * {@code receiveTimeoutMs} passes without a new one. {@code parallelism} bounds concurrent parses.
+     */
+    public record Batch(boolean enabled, int size, long receiveTimeoutMs, int parallelism) {
+    }
+
+    /**
+     * Relay draining the outbox: {@code batchSize} jobs per claim and confirm round, polled every
+     * {@code pollIntervalMs} in addition to the run after each upload.
+     */
+    public record Outbox(int batchSize, long pollIntervalMs, long confirmTimeoutMs) {
+    }
+
+    /**
+     * How jobs get from the outbox to a worker. {@code rabbit} goes through the broker and suits any number of
+     * nodes; {@code in-process} hands jobs to workers in the same JVM and is meant for a single node.
+     */
+    public enum Transport {
+        RABBIT, IN_PROCESS
+    }
+
+    /**
+     * In-process transport: each lane's workers take jobs from a queue of at most {@code queueCapacity}.
+     * Relaying into a full queue waits up to {@code offerTimeoutMs} and then fails, which leaves the jobs in
+     * the outbox until the next relay.
+     */
+    public record InProcess(int queueCapacity, long offerTimeoutMs) {
+    }
+
+    /**
+     * Jobs for specs of at least {@code largeThresholdBytes} go to the {@code large} lane, all others to the
+     * {@code small} one, unless the upload asked for a lane explicitly.
+     */
+    public record Lanes(long largeThresholdBytes, Lane small, Lane large) {
+
+        public AnalysisLane laneFor(long sizeBytes) {
+            return sizeBytes >= largeThresholdBytes ? AnalysisLane.LARGE : AnalysisLane.SMALL;
+        }
+
+        /**
+         * Jobs without a lane predate lanes and belong to the small one, whose queue they were published to.
+         */
+        public Lane get(AnalysisLane lane) {
+            return lane == AnalysisLane.LARGE ? large : small;
+        }
+
+        public Lane forQueue(String queue) {
+            return large.queue().equals(queue) ? large : small;
+        }
+    }
+
+    /**
+     * A lane's own queue and routing key, with {@code concurrency} consumers per node that each hold at most
+     * {@code prefetch} unacknowledged jobs.
+     */
+    public record Lane(String queue, String routingKey, int concurrency, int prefetch) {
+
+        /**
+         * Delay queue holding jobs of this lane that wait {@code delayMs} for their next retry. The delay is part
+         * of the name because a queue's TTL cannot change once declared: changing the retry settings declares
+         * new queues instead of redeclaring existing ones with different arguments.
+         */
+        public String retryQueue(long delayMs) {
+            return queue + ".retry." + delayMs + "ms";
+        }
     }
 }
@@ -1,22 +1,35 @@
 package com.chrisvdalen.contracthawk.messaging.config;
 
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import com.chrisvdalen.contracthawk.messaging.infrastructure.DelayedRetryRecoverer;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
 import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.aopalliance.aop.Advice;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 @Configuration
+@ConditionalOnRabbitTransport
 public class RabbitConfig {
 
     @Bean
@@ -29,22 +42,42 @@ public class RabbitConfig {
         return new DirectExchange(properties.deadLetterExchange(), true, false);
     }
 
-    @Bean
-    public Queue analysisQueue(MessagingProperties properties) {
-        return QueueBuilder.durable(properties.queue())
-                .withArgument("x-dead-letter-exchange", properties.deadLetterExchange())
-                .withArgument("x-dead-letter-routing-key", properties.deadLetterRoutingKey())
-                .build();
-    }
-
     @Bean
     public Queue analysisDeadLetterQueue(MessagingProperties properties) {
         return QueueBuilder.durable(properties.deadLetterQueue()).build();
     }
 
+    /**
+     * Per lane, a work queue bound to the analysis exchange under the lane's routing key, plus one TTL queue
+     * per distinct retry delay so every message in a queue has the same delay and expires in order. Expired
+     * messages are dead-lettered back to the main exchange with the routing key of their lane; nothing consumes
+     * the retry queues directly.
+     */
     @Bean
-    public Binding analysisBinding(Queue analysisQueue, DirectExchange analysisExchange, MessagingProperties properties) {
-        return BindingBuilder.bind(analysisQueue).to(analysisExchange).with(properties.routingKey());
+    public Declarables analysisLaneTopology(DirectExchange analysisExchange, MessagingProperties properties) {
+        DirectExchange retryExchange = new DirectExchange(properties.retryExchange(), true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(retryExchange);
+        for (AnalysisLane laneName : AnalysisLane.values()) {
+            MessagingProperties.Lane lane = properties.lanes().get(laneName);
+            Queue queue = QueueBuilder.durable(lane.queue())
+                    .withArgument("x-dead-letter-exchange", properties.deadLetterExchange())
+                    .withArgument("x-dead-letter-routing-key", properties.deadLetterRoutingKey())
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(analysisExchange).with(lane.routingKey()));
+            for (long delayMs : retryDelays(properties.retry())) {
+                String name = lane.retryQueue(delayMs);
+                Queue retryQueue = QueueBuilder.durable(name)
+                        .ttl((int) delayMs)
+                        .deadLetterExchange(properties.exchange())
+                        .deadLetterRoutingKey(lane.routingKey())
+                        .build();
+                declarables.add(retryQueue);
+                declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange).with(name));
+            }
+        }
+        return new Declarables(declarables);
     }
 
     @Bean
@@ -56,6 +89,25 @@ public class RabbitConfig {
                 .with(properties.deadLetterRoutingKey());
     }
 
+    @Bean
+    public FanoutExchange analysisEventsExchange(MessagingProperties properties) {
+        return new FanoutExchange(properties.eventsExchange(), true, false);
+    }
+
+    /**
+     * Per-node queue for analysis events; it goes away with the node, so events are never queued for a node
+     * that is not there to stream them.
+     */
+    @Bean
+    public Queue analysisEventsQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding analysisEventsBinding(Queue analysisEventsQueue, FanoutExchange analysisEventsExchange) {
+        return BindingBuilder.bind(analysisEventsQueue).to(analysisEventsExchange);
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new JacksonJsonMessageConverter();
@@ -71,22 +123,117 @@ public class RabbitConfig {
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory,
                                                                                 MessageConverter converter,
-                                                                                MessagingProperties properties) {
+                                                                                DelayedRetryRecoverer retryRecoverer) {
+        return retryingListenerContainerFactory(connectionFactory, converter, retryRecoverer);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory smallLaneListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                   MessageConverter converter,
+                                                                                   DelayedRetryRecoverer retryRecoverer,
+                                                                                   MessagingProperties properties) {
+        return laneListenerContainerFactory(connectionFactory, converter, retryRecoverer, properties.lanes().small());
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory largeLaneListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                   MessageConverter converter,
+                                                                                   DelayedRetryRecoverer retryRecoverer,
+                                                                                   MessagingProperties properties) {
+        return laneListenerContainerFactory(connectionFactory, converter, retryRecoverer, properties.lanes().large());
+    }
+
+    /**
+     * Events are notifications, not work: no retries, and a delivery that cannot be handled is dropped.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory analysisEventsListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                        MessageConverter converter) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(converter);
         factory.setDefaultRequeueRejected(false);
-        factory.setAdviceChain(retryInterceptor(properties));
         return factory;
     }
 
-    private Advice retryInterceptor(MessagingProperties properties) {
-        MessagingProperties.Retry retry = properties.retry();
+    @Bean
+    @ConditionalOnProperty(prefix = "contracthawk.messaging.batch", name = "enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory smallLaneBatchListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                        MessagingProperties properties) {
+        return laneBatchListenerContainerFactory(connectionFactory, properties.batch(), properties.lanes().small());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "contracthawk.messaging.batch", name = "enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory largeLaneBatchListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                        MessagingProperties properties) {
+        return laneBatchListenerContainerFactory(connectionFactory, properties.batch(), properties.lanes().large());
+    }
+
+    private SimpleRabbitListenerContainerFactory laneListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                             MessageConverter converter,
+                                                                             DelayedRetryRecoverer retryRecoverer,
+                                                                             MessagingProperties.Lane lane) {
+        SimpleRabbitListenerContainerFactory factory =
+                retryingListenerContainerFactory(connectionFactory, converter, retryRecoverer);
+        factory.setConcurrentConsumers(lane.concurrency());
+        factory.setPrefetchCount(lane.prefetch());
+        return factory;
+    }
 
+    private SimpleRabbitListenerContainerFactory retryingListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                 MessageConverter converter,
+                                                                                 DelayedRetryRecoverer retryRecoverer) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(converter);
+        factory.setDefaultRequeueRejected(false);
+        factory.setAdviceChain(retryInterceptor(retryRecoverer));
+        return factory;
+    }
+
+    /**
+     * A batch never holds more jobs than the lane's prefetch, so a lane with a prefetch of one is consumed one
+     * job at a time even with batching enabled.
+     */
+    private SimpleRabbitListenerContainerFactory laneBatchListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                  MessagingProperties.Batch batch,
+                                                                                  MessagingProperties.Lane lane) {
+        int batchSize = Math.min(batch.size(), lane.prefetch());
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setConcurrentConsumers(lane.concurrency());
+        factory.setReceiveTimeout(batch.receiveTimeoutMs());
+        // Acked per delivery by the listener so one failing job does not reject the whole batch.
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    /**
+     * A single in-thread attempt; on failure the message is handed to the delay queues instead of the
+     * listener thread sleeping through a backoff.
+     */
+    private Advice retryInterceptor(DelayedRetryRecoverer retryRecoverer) {
         return RetryInterceptorBuilder.stateless()
-                .maxRetries(retry.maxAttempts())
-                .backOffOptions(retry.initialIntervalMs(), retry.multiplier(), retry.maxIntervalMs())
-                .recoverer(new RejectAndDontRequeueRecoverer())
+                .maxRetries(0)
+                .recoverer(retryRecoverer)
                 .build();
     }
+
+    /**
+     * Retries past the maximum interval share its delay, and with it a queue.
+     */
+    private static Set<Long> retryDelays(MessagingProperties.Retry retry) {
+        Set<Long> delays = new LinkedHashSet<>();
+        for (int attempt = 1; attempt <= retry.maxAttempts(); attempt++) {
+            delays.add(retry.delayMs(attempt));
+        }
+        return delays;
+    }
 }
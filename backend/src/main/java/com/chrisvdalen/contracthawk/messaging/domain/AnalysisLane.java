@@ -0,0 +1,17 @@
+package com.chrisvdalen.contracthawk.messaging.domain;
+
+/**
+ * Queue an analysis job travels through. Lanes are consumed independently, so a backlog of large specs
+ * never delays small ones.
+ */
+public enum AnalysisLane {
+    SMALL,
+    LARGE;
+
+    /**
+     * @return the lane named {@code value}, or {@code null} for {@code null}
+     */
+    public static AnalysisLane parse(String value) {
+        return value == null ? null : valueOf(value);
+    }
+}
@@ -0,0 +1,102 @@
+package com.chrisvdalen.contracthawk.messaging.infrastructure;
+
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobPublisher;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobsEnqueuedEvent;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.repository.AnalysisOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves analysis jobs from the outbox to the broker. Each batch is claimed in one short transaction, published
+ * with confirms outside any transaction and deleted in a second one, so no row lock is held while waiting for
+ * the broker and a job leaves the outbox only once the broker has it. A failed batch is released and retried on
+ * the next poll; a relay that dies mid-batch leaves a claim that runs out after twice the confirm timeout, and
+ * the jobs are published again. Consumers tolerate the duplicates. Runs after every committed upload and on a
+ * fixed delay as a backstop.
+ */
+@Component
+public class AnalysisOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisOutboxRelay.class);
+
+    private final AnalysisOutboxRepository outboxRepository;
+    private final AnalysisJobPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long claimMs;
+    private final ReentrantLock draining = new ReentrantLock();
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    public AnalysisOutboxRelay(AnalysisOutboxRepository outboxRepository,
+                               AnalysisJobPublisher publisher,
+                               PlatformTransactionManager transactionManager,
+                               MessagingProperties properties) {
+        this.outboxRepository = outboxRepository;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = properties.outbox().batchSize();
+        this.claimMs = 2 * properties.outbox().confirmTimeoutMs();
+    }
+
+    @TransactionalEventListener
+    public void onEnqueued(AnalysisJobsEnqueuedEvent event) {
+        // Off the request thread: the upload response must not wait for the broker.
+        Thread.ofVirtual().name("analysis-outbox-relay").start(this::drain);
+    }
+
+    @Scheduled(fixedDelayString = "${contracthawk.messaging.outbox.poll-interval-ms}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * Relays batches until the outbox is empty. A call that finds a drain in progress leaves it a request
+     * to go around once more, so at most one drain per node is running at a time.
+     */
+    public void drain() {
+        requested.set(true);
+        if (!draining.tryLock()) {
+            return;
+        }
+        try {
+            while (requested.getAndSet(false)) {
+                int relayed;
+                do {
+                    relayed = relayBatch();
+                } while (relayed == batchSize);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Analysis outbox relay failed; pending jobs stay queued for the next attempt", e);
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    private int relayBatch() {
+        List<AnalysisOutboxRepository.Entry> entries =
+                transactionTemplate.execute(status -> outboxRepository.claimOldest(batchSize, claimMs));
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = entries.stream().map(AnalysisOutboxRepository.Entry::id).toList();
+        try {
+            publisher.publishAll(entries.stream().map(AnalysisOutboxRepository.Entry::job).toList());
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.release(ids));
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAll(ids));
+        log.debug("Relayed {} analysis jobs from the outbox", entries.size());
+        return entries.size();
+    }
+}
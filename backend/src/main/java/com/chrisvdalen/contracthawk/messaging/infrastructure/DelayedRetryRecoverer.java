@@ -0,0 +1,80 @@
+package com.chrisvdalen.contracthawk.messaging.infrastructure;
+
+import com.chrisvdalen.contracthawk.messaging.config.ConditionalOnRabbitTransport;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Routes a failed delivery to the delay queue for its next retry in the lane it was consumed from, counting retries
+ * in the {@value #RETRY_HEADER} header. Once the retries are used up the delivery is rejected, which dead-letters
+ * it to the DLQ. The republish waits for the broker's confirm; if it fails, the delivery is requeued rather than
+ * acknowledged, so the job is not lost.
+ */
+@Component
+@ConditionalOnRabbitTransport
+public class DelayedRetryRecoverer implements MessageRecoverer {
+
+    public static final String RETRY_HEADER = "x-retry-attempt";
+
+    private static final Logger log = LoggerFactory.getLogger(DelayedRetryRecoverer.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessagingProperties properties;
+
+    public DelayedRetryRecoverer(RabbitTemplate rabbitTemplate, MessagingProperties properties) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void recover(Message message, Throwable cause) {
+        boolean scheduled;
+        try {
+            scheduled = scheduleRetry(message, cause);
+        } catch (AmqpException e) {
+            throw new ImmediateRequeueAmqpException("Could not schedule a retry", e);
+        }
+        if (!scheduled) {
+            throw new AmqpRejectAndDontRequeueException("Retries exhausted", cause);
+        }
+    }
+
+    /**
+     * Republishes the message to its next delay queue and waits for the broker to confirm it. The caller must
+     * still acknowledge the original delivery.
+     *
+     * @return {@code false} if no retries are left and the delivery should be rejected instead
+     * @throws AmqpException if the broker did not confirm the republish; the delivery must then be requeued
+     */
+    public boolean scheduleRetry(Message message, Throwable cause) {
+        int retriesDone = retriesDone(message);
+        if (retriesDone >= properties.retry().maxAttempts()) {
+            log.warn("Analysis message exhausted {} retries: {}", retriesDone, cause.getMessage());
+            return false;
+        }
+        int retry = retriesDone + 1;
+        MessagingProperties.Lane lane = properties.lanes().forQueue(message.getMessageProperties().getConsumerQueue());
+        message.getMessageProperties().setHeader(RETRY_HEADER, retry);
+        long delayMs = properties.retry().delayMs(retry);
+        rabbitTemplate.invoke(operations -> {
+            operations.send(properties.retryExchange(), lane.retryQueue(delayMs), message);
+            operations.waitForConfirmsOrDie(properties.outbox().confirmTimeoutMs());
+            return null;
+        });
+        log.info("Analysis message scheduled for retry {} in {} ms: {}", retry, delayMs, cause.getMessage());
+        return true;
+    }
+
+    private static int retriesDone(Message message) {
+        Object header = message.getMessageProperties().getHeader(RETRY_HEADER);
+        return header instanceof Number number ? number.intValue() : 0;
+    }
+}
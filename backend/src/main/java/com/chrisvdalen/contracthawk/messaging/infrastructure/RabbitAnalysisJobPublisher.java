@@ -2,11 +2,15 @@ package com.chrisvdalen.contracthawk.messaging.infrastructure;
 
 import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
 import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobPublisher;
+import com.chrisvdalen.contracthawk.messaging.config.ConditionalOnRabbitTransport;
 import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
+@ConditionalOnRabbitTransport
 public class RabbitAnalysisJobPublisher implements AnalysisJobPublisher {
 
     private final RabbitTemplate rabbitTemplate;
@@ -19,6 +23,23 @@ public class RabbitAnalysisJobPublisher implements AnalysisJobPublisher {
 
     @Override
     public void publish(AnalysisJob job) {
-        rabbitTemplate.convertAndSend(properties.exchange(), properties.routingKey(), job);
+        rabbitTemplate.convertAndSend(properties.exchange(), routingKeyOf(job), job);
+    }
+
+    /**
+     * Sends the batch on one channel and waits for a single round of publisher confirms, rather than one
+     * broker round trip per job. Needs {@code spring.rabbitmq.publisher-confirm-type: simple}.
+     */
+    @Override
+    public void publishAll(List<AnalysisJob> jobs) {
+        rabbitTemplate.invoke(operations -> {
+            jobs.forEach(job -> operations.convertAndSend(properties.exchange(), routingKeyOf(job), job));
+            operations.waitForConfirmsOrDie(properties.outbox().confirmTimeoutMs());
+            return null;
+        });
+    }
+
+    private String routingKeyOf(AnalysisJob job) {
+        return properties.lanes().get(job.lane()).routingKey();
     }
 }
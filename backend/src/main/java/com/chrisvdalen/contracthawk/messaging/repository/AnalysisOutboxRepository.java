@@ -0,0 +1,97 @@
+package com.chrisvdalen.contracthawk.messaging.repository;
+
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Analysis jobs written in the upload transaction and waiting to be relayed to the broker.
+ */
+@Repository
+public class AnalysisOutboxRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnalysisOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void addAll(Collection<AnalysisJob> jobs) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO analysis_outbox
+                    (analysis_id, contract_id, storage_path, content_sha256, previous_contract_id, created_at, lane)
+                VALUES (?, ?, ?, ?, ?, COALESCE(?, NOW()), ?)
+                """,
+                jobs,
+                BATCH_SIZE,
+                (ps, job) -> {
+                    ps.setLong(1, job.analysisId());
+                    ps.setLong(2, job.contractId());
+                    ps.setString(3, job.storagePath());
+                    ps.setString(4, job.contentSha256());
+                    ps.setObject(5, job.previousContractId(), Types.BIGINT);
+                    ps.setTimestamp(6, job.enqueuedAt() == null ? null : Timestamp.from(job.enqueuedAt()));
+                    ps.setString(7, job.lane() == null ? null : job.lane().name());
+                });
+    }
+
+    /**
+     * Claims the oldest {@code limit} entries that no relay holds, or whose claim ran out, for {@code claimMs}.
+     * Rows locked by a concurrent claim are skipped rather than waited for, so relays on several nodes claim
+     * disjoint batches. The claim outlives the transaction, which can commit before the batch is published.
+     */
+    public List<Entry> claimOldest(int limit, long claimMs) {
+        return jdbcTemplate.query("""
+                WITH claimable AS (
+                    SELECT id
+                    FROM analysis_outbox
+                    WHERE claimed_until IS NULL OR claimed_until < NOW()
+                    ORDER BY id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                UPDATE analysis_outbox o
+                SET claimed_until = NOW() + ? * INTERVAL '1 millisecond'
+                FROM claimable c
+                WHERE o.id = c.id
+                RETURNING o.id, o.analysis_id, o.contract_id, o.storage_path, o.content_sha256, o.previous_contract_id,
+                          o.created_at, o.lane
+                """,
+                (rs, rowNum) -> new Entry(rs.getLong("id"), new AnalysisJob(
+                        rs.getLong("contract_id"),
+                        rs.getLong("analysis_id"),
+                        rs.getString("storage_path"),
+                        rs.getString("content_sha256"),
+                        rs.getObject("previous_contract_id", Long.class),
+                        rs.getTimestamp("created_at").toInstant(),
+                        AnalysisLane.parse(rs.getString("lane")))),
+                limit, claimMs).stream()
+                .sorted(Comparator.comparingLong(Entry::id))
+                .toList();
+    }
+
+    /**
+     * Gives up the claim on entries that could not be published, so the next relay picks them up right away.
+     */
+    public void release(Collection<Long> ids) {
+        jdbcTemplate.update("UPDATE analysis_outbox SET claimed_until = NULL WHERE id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    public void deleteAll(Collection<Long> ids) {
+        jdbcTemplate.update("DELETE FROM analysis_outbox WHERE id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    public record Entry(long id, AnalysisJob job) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.chrisvdalen.contracthawk.search.application;
+
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in search results, ordered by {@code score DESC, id DESC}. The score is kept at full
+ * precision so the next page starts exactly after the last hit. Encoded as an opaque URL-safe token.
+ */
+public record SearchCursor(double score, long id) {
+
+    public static SearchCursor after(SearchHit hit) {
+        return new SearchCursor(hit.score(), hit.id());
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(',');
+            if (separator < 0) {
+                throw new IllegalArgumentException("missing separator");
+            }
+            double score = Double.parseDouble(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new SearchCursor(score, id);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("INVALID_CURSOR", "cursor is malformed");
+        }
+    }
+
+    public String encode() {
+        String raw = score + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,9 @@
+package com.chrisvdalen.contracthawk.search.application;
+
+import com.chrisvdalen.contracthawk.search.domain.SymbolKind;
+
+/**
+ * @param latestOnly only search the most recently uploaded version of each service
+ */
+public record SearchFilter(SymbolKind kind, String serviceName, boolean latestOnly) {
+}
@@ -0,0 +1,22 @@
+package com.chrisvdalen.contracthawk.search.application;
+
+import com.chrisvdalen.contracthawk.search.domain.SymbolKind;
+
+import java.util.List;
+
+/**
+ * @param name  the path of an operation or the name of a schema
+ * @param score higher is a better match; exact matches of the name or operationId rank first
+ */
+public record SearchHit(
+        Long id,
+        Long contractId,
+        String serviceName,
+        String version,
+        SymbolKind kind,
+        String name,
+        String method,
+        String operationId,
+        List<String> tags,
+        double score) {
+}
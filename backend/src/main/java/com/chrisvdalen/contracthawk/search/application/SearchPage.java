@@ -0,0 +1,6 @@
+package com.chrisvdalen.contracthawk.search.application;
+
+import java.util.List;
+
+public record SearchPage(List<SearchHit> items, String nextCursor) {
+}
@@ -0,0 +1,41 @@
+package com.chrisvdalen.contracthawk.search.application;
+
+import com.chrisvdalen.contracthawk.search.repository.SearchIndexRepository;
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Transactional(readOnly = true)
+public class SearchService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    private final SearchIndexRepository searchIndexRepository;
+
+    public SearchService(SearchIndexRepository searchIndexRepository) {
+        this.searchIndexRepository = searchIndexRepository;
+    }
+
+    public SearchPage search(String query, SearchFilter filter, String cursor, int limit) {
+        String q = query == null ? "" : query.strip();
+        if (q.isEmpty() || q.length() > MAX_QUERY_LENGTH) {
+            throw new BadRequestException("INVALID_QUERY", "q must be between 1 and " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("INVALID_LIMIT", "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        SearchCursor after = cursor == null || cursor.isBlank() ? null : SearchCursor.decode(cursor);
+
+        List<SearchHit> rows = searchIndexRepository.search(q, filter, after, limit + 1);
+        if (rows.size() <= limit) {
+            return new SearchPage(rows, null);
+        }
+        List<SearchHit> items = rows.subList(0, limit);
+        return new SearchPage(List.copyOf(items), SearchCursor.after(items.get(limit - 1)).encode());
+    }
+}
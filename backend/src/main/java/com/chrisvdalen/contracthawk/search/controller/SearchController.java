@@ -0,0 +1,31 @@
+package com.chrisvdalen.contracthawk.search.controller;
+
+import com.chrisvdalen.contracthawk.search.application.SearchFilter;
+import com.chrisvdalen.contracthawk.search.application.SearchPage;
+import com.chrisvdalen.contracthawk.search.application.SearchService;
+import com.chrisvdalen.contracthawk.search.domain.SymbolKind;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private final SearchService searchService;
+
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @GetMapping
+    public SearchPage search(@RequestParam("q") String q,
+                             @RequestParam(value = "kind", required = false) SymbolKind kind,
+                             @RequestParam(value = "serviceName", required = false) String serviceName,
+                             @RequestParam(value = "latestOnly", defaultValue = "false") boolean latestOnly,
+                             @RequestParam(value = "cursor", required = false) String cursor,
+                             @RequestParam(value = "limit", defaultValue = "" + SearchService.DEFAULT_PAGE_SIZE) int limit) {
+        return searchService.search(q, new SearchFilter(kind, serviceName, latestOnly), cursor, limit);
+    }
+}
@@ -0,0 +1,52 @@
+package com.chrisvdalen.contracthawk.search.domain;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits identifiers into the lower-case words they are made of, so that {@code getOrderById},
+ * {@code /orders/{orderId}} and {@code order_items} are all found by {@code order}. Identifiers that consist of
+ * several words are also kept whole. Indexed values and queries go through the same splitting, which is why it
+ * is done here rather than left to a PostgreSQL text search configuration.
+ */
+public final class SearchTerms {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WORD_BOUNDARIES =
+            Pattern.compile("(?<=\\p{Ll})(?=\\p{Lu})|(?<=\\p{Lu})(?=\\p{Lu}\\p{Ll})|(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})");
+
+    private SearchTerms() {
+    }
+
+    /**
+     * @return the words of all values, separated by spaces; empty if there are none
+     */
+    public static String of(Iterable<String> values) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            for (String identifier : SEPARATORS.split(value)) {
+                if (identifier.isEmpty()) {
+                    continue;
+                }
+                String[] words = WORD_BOUNDARIES.split(identifier);
+                if (words.length > 1) {
+                    terms.add(identifier.toLowerCase(Locale.ROOT));
+                }
+                for (String word : words) {
+                    terms.add(word.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return String.join(" ", terms);
+    }
+
+    public static String of(String... values) {
+        return of(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,19 @@
+package com.chrisvdalen.contracthawk.search.domain;
+
+import java.util.List;
+
+/**
+ * A searchable element of a spec: an operation, named by its path, or a component schema, named by its key.
+ * {@code method}, {@code operationId} and {@code tags} are only set for operations, and {@code operationId}
+ * only if the spec declares one.
+ */
+public record SpecSymbol(SymbolKind kind, String name, String method, String operationId, List<String> tags) {
+
+    public static SpecSymbol operation(String path, String method, String operationId, List<String> tags) {
+        return new SpecSymbol(SymbolKind.OPERATION, path, method, operationId, List.copyOf(tags));
+    }
+
+    public static SpecSymbol schema(String name) {
+        return new SpecSymbol(SymbolKind.SCHEMA, name, null, null, List.of());
+    }
+}
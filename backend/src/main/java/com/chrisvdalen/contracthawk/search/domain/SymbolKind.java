@@ -0,0 +1,6 @@
+package com.chrisvdalen.contracthawk.search.domain;
+
+public enum SymbolKind {
+    OPERATION,
+    SCHEMA
+}
@@ -0,0 +1,168 @@
+package com.chrisvdalen.contracthawk.search.repository;
+
+import com.chrisvdalen.contracthawk.search.application.SearchCursor;
+import com.chrisvdalen.contracthawk.search.application.SearchFilter;
+import com.chrisvdalen.contracthawk.search.application.SearchHit;
+import com.chrisvdalen.contracthawk.search.domain.SearchTerms;
+import com.chrisvdalen.contracthawk.search.domain.SpecSymbol;
+import com.chrisvdalen.contracthawk.search.domain.SymbolKind;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Search index over the operations and component schemas of analyzed contracts. Each entry carries a
+ * {@code tsvector} of the words of its name and operationId (weight A) and its tags (weight B), matched through
+ * a GIN index; names and operationIds are also matched by substring through trigram indexes, which catches
+ * partial words that full-text matching does not.
+ */
+@Repository
+public class SearchIndexRepository {
+
+    private static final int BATCH_SIZE = 500;
+    // Trigram indexes only help for patterns of at least three characters; shorter ones would scan the table.
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+
+    // Scoring is the expensive part of a search, so it only runs on this many matches, exact ones first.
+    public static final int MAX_CANDIDATES = 1000;
+
+    private static final String CANDIDATES = """
+            WITH q AS (SELECT plainto_tsquery('simple', :terms) AS query),
+            candidates AS (
+                SELECT e.id
+                FROM contract_search_entry e
+                JOIN contract c ON c.id = e.contract_id
+                CROSS JOIN q
+            """;
+
+    private static final String RANKED = """
+                ORDER BY (lower(e.name) = :exact OR coalesce(lower(e.operation_id), '') = :exact) DESC, e.id DESC
+                LIMIT :maxCandidates
+            )
+            SELECT * FROM (
+                SELECT e.id, e.contract_id, c.service_name, c.version, e.kind, e.name, e.method, e.operation_id,
+                       e.tags,
+                       (CASE WHEN lower(e.name) = :exact OR lower(e.operation_id) = :exact THEN 1 ELSE 0 END
+                        + ts_rank(e.document, q.query)
+                        + greatest(similarity(lower(e.name), :exact),
+                                   similarity(coalesce(lower(e.operation_id), ''), :exact)))::float8 AS score
+                FROM candidates k
+                JOIN contract_search_entry e ON e.id = k.id
+                JOIN contract c ON c.id = e.contract_id
+                CROSS JOIN q
+            ) hits
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcClient jdbcClient;
+
+    public SearchIndexRepository(JdbcTemplate jdbcTemplate, JdbcClient jdbcClient) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcClient = jdbcClient;
+    }
+
+    public void replaceAll(Long contractId, Collection<SpecSymbol> symbols) {
+        jdbcTemplate.update("DELETE FROM contract_search_entry WHERE contract_id = ?", contractId);
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO contract_search_entry (contract_id, kind, name, method, operation_id, tags, document)
+                        VALUES (?, ?, ?, ?, ?, ?,
+                                setweight(to_tsvector('simple', ?), 'A') || setweight(to_tsvector('simple', ?), 'B'))
+                        """,
+                symbols,
+                BATCH_SIZE,
+                (ps, symbol) -> {
+                    ps.setLong(1, contractId);
+                    ps.setString(2, symbol.kind().name());
+                    ps.setString(3, symbol.name());
+                    ps.setString(4, symbol.method());
+                    ps.setString(5, symbol.operationId());
+                    ps.setArray(6, ps.getConnection().createArrayOf("text", symbol.tags().toArray()));
+                    ps.setString(7, SearchTerms.of(symbol.name(), symbol.operationId()));
+                    ps.setString(8, SearchTerms.of(symbol.tags()));
+                });
+    }
+
+    /**
+     * Replaces the entries of {@code targetContractId} with those of {@code sourceContractId} in one statement.
+     */
+    public void copy(Long sourceContractId, Long targetContractId) {
+        jdbcTemplate.update("DELETE FROM contract_search_entry WHERE contract_id = ?", targetContractId);
+        jdbcTemplate.update("""
+                INSERT INTO contract_search_entry (contract_id, kind, name, method, operation_id, tags, document)
+                SELECT ?, kind, name, method, operation_id, tags, document
+                FROM contract_search_entry WHERE contract_id = ?
+                """, targetContractId, sourceContractId);
+    }
+
+    /**
+     * Returns up to {@code limit} entries matching {@code query}, best first, starting strictly after
+     * {@code after} when a cursor is given. Only the first {@value #MAX_CANDIDATES} matches are ranked: exact
+     * matches of a name or operationId, then the most recently indexed. The latest version of a service is the one
+     * in {@code service_state}, joined by its index rather than looked up per match.
+     */
+    public List<SearchHit> search(String query, SearchFilter filter, SearchCursor after, int limit) {
+        String exact = query.toLowerCase(Locale.ROOT);
+        StringBuilder sql = new StringBuilder(CANDIDATES);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("exact", exact);
+        params.put("terms", SearchTerms.of(query));
+        params.put("maxCandidates", MAX_CANDIDATES);
+
+        if (filter.latestOnly()) {
+            sql.append("    JOIN service_state s ON s.contract_id = e.contract_id\n");
+        }
+        sql.append("    WHERE (e.document @@ q.query");
+        if (exact.length() >= MIN_SUBSTRING_LENGTH) {
+            sql.append(" OR lower(e.name) LIKE :pattern ESCAPE '\\' OR lower(e.operation_id) LIKE :pattern ESCAPE '\\'");
+            params.put("pattern", "%" + escapeLike(exact) + "%");
+        }
+        sql.append(")");
+        if (filter.kind() != null) {
+            sql.append(" AND e.kind = :kind");
+            params.put("kind", filter.kind().name());
+        }
+        if (filter.serviceName() != null) {
+            sql.append(" AND c.service_name = :serviceName");
+            params.put("serviceName", filter.serviceName());
+        }
+        sql.append("\n").append(RANKED);
+        if (after != null) {
+            sql.append(" WHERE (hits.score, hits.id) < (:cursorScore, :cursorId)");
+            params.put("cursorScore", after.score());
+            params.put("cursorId", after.id());
+        }
+        sql.append(" ORDER BY hits.score DESC, hits.id DESC LIMIT :limit");
+        params.put("limit", limit);
+
+        return jdbcClient.sql(sql.toString())
+                .params(params)
+                .query((rs, rowNum) -> new SearchHit(
+                        rs.getLong("id"),
+                        rs.getLong("contract_id"),
+                        rs.getString("service_name"),
+                        rs.getString("version"),
+                        SymbolKind.valueOf(rs.getString("kind")),
+                        rs.getString("name"),
+                        rs.getString("method"),
+                        rs.getString("operation_id"),
+                        tagsOf(rs.getArray("tags")),
+                        rs.getDouble("score")))
+                .list();
+    }
+
+    private static List<String> tagsOf(Array array) throws SQLException {
+        return array == null ? List.of() : List.of((String[]) array.getArray());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,136 @@
+package com.chrisvdalen.contracthawk.shared.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes a file as the response body without copying it through the heap. On Tomcat the file is handed to
+ * the connector, which sends it with {@code sendfile} after the request returns; elsewhere, and where Tomcat
+ * cannot use sendfile (such as over TLS), the file channel is transferred to the response channel.
+ *
+ * <p>A single byte range is honoured, so interrupted downloads can resume; requests for several ranges get
+ * the whole file, which HTTP allows.
+ */
+public final class FileTransfer {
+
+    // Request attributes of Tomcat's sendfile support, as used by its DefaultServlet.
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this, setting up sendfile costs more than copying; the same threshold as Tomcat's DefaultServlet.
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private FileTransfer() {
+    }
+
+    /**
+     * @return whether the request's {@code Accept-Encoding} allows gzip
+     */
+    public static boolean acceptsGzip(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (header == null) {
+            return false;
+        }
+        for (String coding : header.split(",")) {
+            String[] parts = coding.trim().toLowerCase(Locale.ROOT).split(";");
+            if (parts[0].trim().equals("gzip") || parts[0].trim().equals("*")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends {@code length} bytes of {@code file}, or the byte range the request asks for with status 206. A
+     * range is ignored if the request's {@code If-Range} does not match {@code etag}, and answered with 416 if
+     * it lies outside the file. Content type and other representation headers must already be set.
+     */
+    public static void send(HttpServletRequest request, HttpServletResponse response, Path file, long length,
+                            String etag) throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        long start = 0;
+        long end = length - 1;
+
+        HttpRange range = requestedRange(request, etag);
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count <= 0) {
+            return;
+        }
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end + 1 - position, out);
+                if (transferred <= 0) {
+                    throw new EOFException("File " + file + " ended before byte " + end);
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Sends content that is not available as a file, such as a blob decompressed while it is read. Its length
+     * is not known up front, so the response is chunked and byte ranges are not offered.
+     */
+    public static void stream(HttpServletRequest request, HttpServletResponse response, InputStream content)
+            throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            content.transferTo(response.getOutputStream());
+        }
+    }
+
+    private static HttpRange requestedRange(HttpServletRequest request, String etag) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            // A Range header that cannot be parsed is ignored.
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.getFirst() : null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.chrisvdalen.contracthawk.storage.application;
 
+import com.chrisvdalen.contracthawk.storage.domain.BlobFile;
 import com.chrisvdalen.contracthawk.storage.domain.StoredFile;
 
 import java.io.IOException;
@@ -7,7 +8,37 @@ import java.io.InputStream;
 
 public interface FileStorageService {
 
-    StoredFile store(String serviceName, String version, String originalFilename, InputStream content) throws IOException;
+    /**
+     * Stores the content under its SHA-256 digest. Storing identical bytes twice yields the same storage path.
+     */
+    StoredFile store(InputStream content) throws IOException;
 
+    /**
+     * Returns the content as uploaded, decompressing it if storage keeps it compressed.
+     */
     InputStream read(String storagePath) throws IOException;
+
+    /**
+     * Returns the blob as a local file, for callers that hand it to the operating system to send rather than
+     * reading it. With {@code gzip}, a gzip-compressed copy is returned instead if it is smaller; the copy is
+     * written on first use and, like the blob, never changes afterwards. A blob that storage keeps compressed
+     * may be returned gzip-compressed even without {@code gzip}; callers that cannot send that {@link #read} it.
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no such blob
+     */
+    BlobFile file(String storagePath, boolean gzip) throws IOException;
+
+    /**
+     * @return whether the blob is still on disk; {@link #store} may have reported it as already present just
+     * before it was removed
+     */
+    boolean exists(String storagePath) throws IOException;
+
+    /**
+     * Removes the blob and any compressed copy of it. Blobs are shared by identical uploads, so callers must
+     * first make sure no contract still references it.
+     *
+     * @return the number of bytes freed on disk; zero if there was no such blob
+     */
+    long delete(String storagePath) throws IOException;
 }
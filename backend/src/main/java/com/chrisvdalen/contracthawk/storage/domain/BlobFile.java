@@ -0,0 +1,11 @@
+package com.chrisvdalen.contracthawk.storage.domain;
+
+import java.nio.file.Path;
+
+/**
+ * A blob as a file on the local file system.
+ *
+ * @param gzip {@code true} if {@code path} holds the gzip-compressed content rather than the content itself
+ */
+public record BlobFile(Path path, long sizeBytes, boolean gzip) {
+}
@@ -1,4 +1,10 @@
 package com.chrisvdalen.contracthawk.storage.domain;
 
-public record StoredFile(String storagePath, long sizeBytes) {
+/**
+ * @param sizeBytes       size of the content as uploaded
+ * @param storedSizeBytes size of the blob on disk, smaller than {@code sizeBytes} if the blob is compressed
+ * @param sha256          lowercase hex SHA-256 of the content as uploaded; also the blob's address in storage
+ * @param created         {@code true} if this store wrote the blob, {@code false} if identical content was already there
+ */
+public record StoredFile(String storagePath, long sizeBytes, long storedSizeBytes, String sha256, boolean created) {
 }
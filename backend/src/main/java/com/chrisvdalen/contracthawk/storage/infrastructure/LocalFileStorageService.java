@@ -1,60 +1,245 @@
 package com.chrisvdalen.contracthawk.storage.infrastructure;
 
 import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
+import com.chrisvdalen.contracthawk.storage.domain.BlobFile;
 import com.chrisvdalen.contracthawk.storage.domain.StoredFile;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.time.Instant;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Stores blobs on the local file system under their SHA-256 digest. With a {@link StorageProperties.Codec codec}
+ * configured, new blobs are compressed while they are written and get the codec's suffix, and {@link #read}
+ * decompresses them while streaming; blobs without a suffix are read as they are, so switching the codec on
+ * leaves earlier blobs readable.
+ *
+ * <p>Reads and writes are timed as {@code contracthawk.storage.read} and {@code contracthawk.storage.write},
+ * with the bytes that went to or from disk in {@code contracthawk.storage.read.bytes} and
+ * {@code contracthawk.storage.write.bytes}; throughput is the rate of the byte total over the rate of the time
+ * total.
+ *
+ * <p>For an uncompressed blob, a gzip copy is written next to it, with a {@value #GZIP_SUFFIX} suffix, the first
+ * time it is asked for. It has the same name and format as a blob stored with gzip.
+ */
 @Service
 public class LocalFileStorageService implements FileStorageService {
 
+    private static final String BLOB_DIR = "blobs";
+    private static final String TEMP_DIR = "tmp";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final Path baseDir;
+    private final StorageProperties.Compression compression;
+    private final Timer readTimer;
+    private final DistributionSummary readBytes;
+    private final Timer writeTimer;
+    private final DistributionSummary writeBytes;
 
-    public LocalFileStorageService(StorageProperties properties) {
+    public LocalFileStorageService(StorageProperties properties, MeterRegistry meterRegistry) {
         this.baseDir = Path.of(properties.localDir()).toAbsolutePath().normalize();
+        this.compression = properties.compression() == null
+                ? new StorageProperties.Compression(StorageProperties.Codec.NONE, 0)
+                : properties.compression();
+        this.readTimer = timer("contracthawk.storage.read", "Time spent reading blobs from disk", meterRegistry);
+        this.readBytes = bytes("contracthawk.storage.read.bytes", "Bytes read from disk per blob", meterRegistry);
+        this.writeTimer = timer("contracthawk.storage.write", "Time to store a blob", meterRegistry);
+        this.writeBytes = bytes("contracthawk.storage.write.bytes", "Bytes written to disk per blob", meterRegistry);
     }
 
     @Override
-    public StoredFile store(String serviceName, String version, String originalFilename, InputStream content) throws IOException {
-        String safeService = sanitize(serviceName);
-        String safeVersion = sanitize(version);
-        String extension = extensionOf(originalFilename);
-        String filename = Instant.now().toEpochMilli() + "-" + UUID.randomUUID() + (extension.isEmpty() ? "" : "." + extension);
+    public StoredFile store(InputStream content) throws IOException {
+        long start = System.nanoTime();
+        Path temp = createTempFile("upload-");
 
-        Path targetDir = baseDir.resolve(safeService).resolve(safeVersion);
-        Files.createDirectories(targetDir);
+        // The digest is computed while the bytes are copied, so the content is only read once.
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream in = new DigestInputStream(content, digest);
+             OutputStream out = encoder(Files.newOutputStream(temp))) {
+            size = in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        long written = Files.size(temp);
 
-        Path target = targetDir.resolve(filename);
-        long size = Files.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        Path dir = baseDir.resolve(BLOB_DIR).resolve(sha256.substring(0, 2));
+        Path target = existingBlob(dir, sha256);
+        boolean created = target == null;
+        if (created) {
+            target = dir.resolve(compression.codec() == StorageProperties.Codec.GZIP ? sha256 + GZIP_SUFFIX : sha256);
+            Files.createDirectories(dir);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.delete(temp);
+        }
 
-        return new StoredFile(baseDir.relativize(target).toString(), size);
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        writeBytes.record(written);
+        return new StoredFile(baseDir.relativize(target).toString(), size, Files.size(target), sha256, created);
     }
 
     @Override
     public InputStream read(String storagePath) throws IOException {
+        Path blob = resolve(storagePath);
+        // Metered below the decompression, so the meters show what the disk delivers.
+        InputStream in = new MeteredInputStream(Files.newInputStream(blob), readTimer, readBytes);
+        if (!isGzip(blob)) {
+            return in;
+        }
+        try {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A blob stored with gzip is always returned as it is, since it is the only file there is; callers that
+     * need the content itself {@link #read} it.
+     */
+    @Override
+    public BlobFile file(String storagePath, boolean gzip) throws IOException {
+        Path blob = resolve(storagePath);
+        long size = Files.size(blob);
+        if (isGzip(blob)) {
+            return new BlobFile(blob, size, true);
+        }
+        if (!gzip) {
+            return new BlobFile(blob, size, false);
+        }
+        Path compressed = blob.resolveSibling(blob.getFileName() + GZIP_SUFFIX);
+        if (!Files.exists(compressed)) {
+            writeGzip(blob, compressed);
+        }
+        long compressedSize = Files.size(compressed);
+        return compressedSize < size ? new BlobFile(compressed, compressedSize, true) : new BlobFile(blob, size, false);
+    }
+
+    @Override
+    public boolean exists(String storagePath) throws IOException {
+        return Files.exists(resolve(storagePath));
+    }
+
+    @Override
+    public long delete(String storagePath) throws IOException {
+        Path blob = resolve(storagePath);
+        return deleteIfExists(blob.resolveSibling(blob.getFileName() + GZIP_SUFFIX)) + deleteIfExists(blob);
+    }
+
+    private static long deleteIfExists(Path file) throws IOException {
+        try {
+            long size = Files.size(file);
+            Files.delete(file);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Compresses into a temporary file that is then moved into place, so concurrent requests never see a
+     * partial copy; if two of them race, the copies are identical and either one wins.
+     */
+    private void writeGzip(Path blob, Path target) throws IOException {
+        Path temp = createTempFile("gzip-");
+        // Written once and served many times, so the slowest level pays off.
+        try (InputStream in = Files.newInputStream(blob);
+             OutputStream out = gzip(Files.newOutputStream(temp), Deflater.BEST_COMPRESSION)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Identical content may already be stored with or without compression, depending on the codec in use when
+     * it was first uploaded.
+     */
+    private static Path existingBlob(Path dir, String sha256) {
+        Path plain = dir.resolve(sha256);
+        if (Files.exists(plain)) {
+            return plain;
+        }
+        Path compressed = dir.resolve(sha256 + GZIP_SUFFIX);
+        return Files.exists(compressed) ? compressed : null;
+    }
+
+    private OutputStream encoder(OutputStream out) throws IOException {
+        return switch (compression.codec()) {
+            case NONE -> out;
+            case GZIP -> gzip(out, compression.level());
+        };
+    }
+
+    private static OutputStream gzip(OutputStream out, int level) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    private static boolean isGzip(Path blob) {
+        return blob.getFileName().toString().endsWith(GZIP_SUFFIX);
+    }
+
+    private Path createTempFile(String prefix) throws IOException {
+        Path tempDir = baseDir.resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, prefix, ".part");
+    }
+
+    private Path resolve(String storagePath) throws IOException {
         Path resolved = baseDir.resolve(storagePath).normalize();
         if (!resolved.startsWith(baseDir)) {
             throw new IOException("Storage path escapes base directory: " + storagePath);
         }
-        return Files.newInputStream(resolved);
+        return resolved;
+    }
+
+    private static Timer timer(String name, String description, MeterRegistry meterRegistry) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
-    private static String sanitize(String value) {
-        return value.replaceAll("[^a-zA-Z0-9._-]", "_");
+    private static DistributionSummary bytes(String name, String description, MeterRegistry meterRegistry) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
-    private static String extensionOf(String filename) {
-        if (filename == null) {
-            return "";
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        int dot = filename.lastIndexOf('.');
-        return dot < 0 ? "" : filename.substring(dot + 1).toLowerCase();
     }
 }
@@ -0,0 +1,73 @@
+package com.chrisvdalen.contracthawk.storage.infrastructure;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the bytes read and the time spent inside the underlying stream's read calls, and records both when
+ * the stream is closed. Time the caller spends between reads, such as parsing while streaming, is not
+ * counted, so bytes over time is the storage's own throughput.
+ */
+class MeteredInputStream extends FilterInputStream {
+
+    private final Timer timer;
+    private final DistributionSummary bytes;
+    private long count;
+    private long nanos;
+    private boolean recorded;
+
+    MeteredInputStream(InputStream in, Timer timer, DistributionSummary bytes) {
+        super(in);
+        this.timer = timer;
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = super.read();
+        nanos += System.nanoTime() - start;
+        if (b >= 0) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        int n = super.read(buffer, offset, length);
+        nanos += System.nanoTime() - start;
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long start = System.nanoTime();
+        long skipped = super.skip(n);
+        nanos += System.nanoTime() - start;
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (!recorded) {
+                recorded = true;
+                timer.record(nanos, TimeUnit.NANOSECONDS);
+                bytes.record(count);
+            }
+        }
+    }
+}
@@ -5,5 +5,18 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import java.util.List;
 
 @ConfigurationProperties(prefix = "contracthawk.storage")
-public record StorageProperties(String localDir, List<String> allowedExtensions) {
+public record StorageProperties(String localDir, List<String> allowedExtensions, Compression compression) {
+
+    /**
+     * Codec applied to new blobs while they are stored; blobs stored before stay as they are and remain
+     * readable. {@code level} is the codec's own, from 1 (fastest) to 9 (smallest) for gzip. Off by default: a
+     * blob stored with gzip can only be sent as it is to clients that accept gzip, and others get it decoded
+     * while streaming, without range support.
+     */
+    public record Compression(Codec codec, int level) {
+    }
+
+    public enum Codec {
+        NONE, GZIP
+    }
 }
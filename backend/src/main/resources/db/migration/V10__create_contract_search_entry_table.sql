@@ -0,0 +1,19 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- One row per operation (name is the path) and per component schema of an analyzed contract.
+CREATE TABLE contract_search_entry (
+    id            BIGSERIAL PRIMARY KEY,
+    contract_id   BIGINT NOT NULL REFERENCES contract (id) ON DELETE CASCADE,
+    kind          VARCHAR(16) NOT NULL,
+    name          TEXT NOT NULL,
+    method        VARCHAR(16),
+    operation_id  TEXT,
+    tags          TEXT[] NOT NULL DEFAULT '{}',
+    document      TSVECTOR NOT NULL
+);
+
+CREATE INDEX idx_contract_search_entry_contract_id ON contract_search_entry (contract_id);
+CREATE INDEX idx_contract_search_entry_document ON contract_search_entry USING GIN (document);
+CREATE INDEX idx_contract_search_entry_name_trgm ON contract_search_entry USING GIN (lower(name) gin_trgm_ops);
+CREATE INDEX idx_contract_search_entry_operation_id_trgm
+    ON contract_search_entry USING GIN (lower(operation_id) gin_trgm_ops);
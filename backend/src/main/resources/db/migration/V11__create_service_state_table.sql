@@ -0,0 +1,16 @@
+-- Latest finished analysis of the most recently uploaded version of each service, kept current on completion.
+CREATE TABLE service_state (
+    service_name               VARCHAR(255) PRIMARY KEY,
+    contract_id                BIGINT NOT NULL REFERENCES contract (id) ON DELETE CASCADE,
+    version                    VARCHAR(100) NOT NULL,
+    uploaded_at                TIMESTAMP WITH TIME ZONE NOT NULL,
+    analysis_id                BIGINT NOT NULL,
+    status                     VARCHAR(32) NOT NULL,
+    valid_spec                 BOOLEAN,
+    path_count                 INTEGER,
+    operation_count            INTEGER,
+    breaking_changes_detected  BOOLEAN,
+    finished_at                TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_service_state_contract_id ON service_state (contract_id);
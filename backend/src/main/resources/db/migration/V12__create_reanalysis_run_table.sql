@@ -0,0 +1,24 @@
+CREATE TABLE reanalysis_run (
+    id                  BIGSERIAL PRIMARY KEY,
+    status              VARCHAR(16) NOT NULL,
+    service_name        VARCHAR(255),
+    -- Contracts are queued in id order up to the highest id at the start; the cursor is the last id queued.
+    max_contract_id     BIGINT NOT NULL,
+    cursor_contract_id  BIGINT NOT NULL DEFAULT 0,
+    total               INTEGER NOT NULL,
+    queued              INTEGER NOT NULL DEFAULT 0,
+    batch_failures      INTEGER NOT NULL DEFAULT 0,
+    last_error          TEXT,
+    created_at          TIMESTAMP WITH TIME ZONE NOT NULL,
+    updated_at          TIMESTAMP WITH TIME ZONE NOT NULL,
+    finished_at         TIMESTAMP WITH TIME ZONE
+);
+
+-- At most one run is active at a time.
+CREATE UNIQUE INDEX idx_reanalysis_run_active ON reanalysis_run ((TRUE)) WHERE status IN ('RUNNING', 'PAUSED');
+
+ALTER TABLE contract_analysis
+    ADD COLUMN reanalysis_run_id BIGINT REFERENCES reanalysis_run (id) ON DELETE SET NULL;
+
+CREATE INDEX idx_contract_analysis_reanalysis_run
+    ON contract_analysis (reanalysis_run_id, status) WHERE reanalysis_run_id IS NOT NULL;
@@ -0,0 +1,2 @@
+-- Retention looks up whether a blob is still referenced before removing it.
+CREATE INDEX idx_contract_storage_path ON contract (storage_path);
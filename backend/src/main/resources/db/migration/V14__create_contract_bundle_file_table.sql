@@ -0,0 +1,12 @@
+-- Files of a contract uploaded as a multi-file bundle; single-file contracts have no rows. The root document is
+-- also the contract's storage_path, and the contract's content_sha256 is the digest of the whole bundle.
+CREATE TABLE contract_bundle_file (
+    contract_id     BIGINT NOT NULL REFERENCES contract (id) ON DELETE CASCADE,
+    path            VARCHAR(1024) NOT NULL,
+    storage_path    VARCHAR(1024) NOT NULL,
+    content_sha256  VARCHAR(64) NOT NULL,
+    root            BOOLEAN NOT NULL,
+    PRIMARY KEY (contract_id, path)
+);
+
+CREATE INDEX idx_contract_bundle_file_storage_path ON contract_bundle_file (storage_path);
@@ -0,0 +1,2 @@
+-- A relay marks the batch it is publishing so the publish can run outside the transaction that claimed it.
+ALTER TABLE analysis_outbox ADD COLUMN claimed_until TIMESTAMP WITH TIME ZONE;
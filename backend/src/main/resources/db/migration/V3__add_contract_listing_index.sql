@@ -0,0 +1 @@
+CREATE INDEX idx_contract_uploaded_id ON contract (uploaded_at DESC, id DESC);
@@ -0,0 +1,7 @@
+CREATE TABLE contract_operation (
+    contract_id  BIGINT NOT NULL REFERENCES contract (id) ON DELETE CASCADE,
+    path         TEXT NOT NULL,
+    method       VARCHAR(16) NOT NULL,
+    fingerprint  CHAR(32) NOT NULL,
+    PRIMARY KEY (contract_id, path, method)
+);
@@ -0,0 +1,3 @@
+ALTER TABLE contract ADD COLUMN content_sha256 VARCHAR(64);
+
+CREATE INDEX idx_contract_content_sha256 ON contract (content_sha256);
@@ -0,0 +1,9 @@
+CREATE TABLE analysis_outbox (
+    id                    BIGSERIAL PRIMARY KEY,
+    analysis_id           BIGINT NOT NULL REFERENCES contract_analysis (id) ON DELETE CASCADE,
+    contract_id           BIGINT NOT NULL,
+    storage_path          VARCHAR(1024) NOT NULL,
+    content_sha256        VARCHAR(64),
+    previous_contract_id  BIGINT,
+    created_at            TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
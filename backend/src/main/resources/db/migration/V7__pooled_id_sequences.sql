@@ -0,0 +1,3 @@
+-- Ids are allocated by Hibernate in blocks of 50 (pooled optimizer), which must match the sequence increment.
+ALTER SEQUENCE contract_id_seq INCREMENT BY 50;
+ALTER SEQUENCE contract_analysis_id_seq INCREMENT BY 50;
@@ -0,0 +1,4 @@
+ALTER TABLE contract_analysis ADD COLUMN claimed_by VARCHAR(64);
+ALTER TABLE contract_analysis ADD COLUMN lease_expires_at TIMESTAMP WITH TIME ZONE;
+
+CREATE INDEX idx_contract_analysis_lease ON contract_analysis (lease_expires_at) WHERE status = 'PROCESSING';
@@ -0,0 +1,2 @@
+ALTER TABLE contract_analysis ADD COLUMN lane VARCHAR(16) NOT NULL DEFAULT 'SMALL';
+ALTER TABLE analysis_outbox ADD COLUMN lane VARCHAR(16);
@@ -0,0 +1,91 @@
+package com.chrisvdalen.contracthawk.integration;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.repository.AnalysisClaimRepository;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisClaimRepositoryIntegrationTest extends PostgresRepositoryTestSupport {
+
+    private static final String STALE = "worker-stale";
+    private static final String CURRENT = "worker-current";
+
+    private AnalysisClaimRepository repository;
+    private OffsetDateTime now;
+    private long analysisId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM contract");
+        repository = new AnalysisClaimRepository(jdbcTemplate);
+        now = OffsetDateTime.now();
+        long contractId = insertContract("order-service", "1.0.0", "order-service/1.0.0/spec.yaml", now);
+        analysisId = insertAnalysis(contractId, "PENDING", now);
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedAndCanBeClaimedByAnotherWorker() {
+        assertThat(repository.claim(List.of(analysisId), STALE, now, now.plusSeconds(30))).containsExactly(analysisId);
+        assertThat(repository.claim(List.of(analysisId), CURRENT, now, now.plusSeconds(30))).isEmpty();
+
+        assertThat(repository.reclaimExpired(now.plusSeconds(10), 10)).isEmpty();
+        List<AnalysisJob> reclaimed = repository.reclaimExpired(now.plusSeconds(31), 10);
+
+        assertThat(reclaimed).extracting(AnalysisJob::analysisId).containsExactly(analysisId);
+        assertThat(row()).containsEntry("status", "PENDING").containsEntry("claimed_by", null);
+        assertThat(repository.claim(List.of(analysisId), CURRENT, now, now.plusSeconds(30))).containsExactly(analysisId);
+        assertThat(row()).containsEntry("status", "PROCESSING").containsEntry("claimed_by", CURRENT);
+    }
+
+    @Test
+    void staleWorkerCannotFinishAnAnalysisAnotherWorkerReclaimed() {
+        repository.claim(List.of(analysisId), STALE, now, now.plusSeconds(30));
+        repository.reclaimExpired(now.plusSeconds(31), 10);
+        repository.claim(List.of(analysisId), CURRENT, now.plusSeconds(31), now.plusSeconds(61));
+
+        assertThat(repository.finish(analysisId, STALE, AnalysisStatus.COMPLETED, now.plusSeconds(40))).isFalse();
+        assertThat(row()).containsEntry("status", "PROCESSING").containsEntry("claimed_by", CURRENT);
+
+        assertThat(repository.finish(analysisId, CURRENT, AnalysisStatus.COMPLETED, now.plusSeconds(45))).isTrue();
+        assertThat(repository.finish(analysisId, STALE, AnalysisStatus.FAILED, now.plusSeconds(50))).isFalse();
+        assertThat(repository.finish(analysisId, CURRENT, AnalysisStatus.FAILED, now.plusSeconds(50))).isFalse();
+        assertThat(row())
+                .containsEntry("status", "COMPLETED")
+                .containsEntry("claimed_by", null)
+                .containsEntry("lease_expires_at", null);
+    }
+
+    @Test
+    void renewsOnlyTheGivenAnalysesThatTheWorkerStillHolds() {
+        long contractId = insertContract("order-service", "1.1.0", "order-service/1.1.0/spec.yaml", now);
+        long idle = insertAnalysis(contractId, "PENDING", now);
+        repository.claim(List.of(analysisId, idle), STALE, now, now.plusSeconds(30));
+
+        assertThat(repository.renewLeases(List.of(analysisId), STALE, now.plusSeconds(90))).isEqualTo(1);
+        assertThat(repository.renewLeases(List.of(analysisId), CURRENT, now.plusSeconds(120))).isZero();
+
+        assertThat(repository.reclaimExpired(now.plusSeconds(31), 10))
+                .extracting(AnalysisJob::analysisId)
+                .containsExactly(idle);
+        assertThat(leaseOf(analysisId)).isAfter(now.plusSeconds(89).toInstant());
+    }
+
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap(
+                "SELECT status, claimed_by, lease_expires_at FROM contract_analysis WHERE id = ?", analysisId);
+    }
+
+    private Instant leaseOf(long id) {
+        return jdbcTemplate.queryForObject("SELECT lease_expires_at FROM contract_analysis WHERE id = ?",
+                Timestamp.class, id).toInstant();
+    }
+}
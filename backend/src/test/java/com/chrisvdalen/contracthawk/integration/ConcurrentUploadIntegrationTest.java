@@ -0,0 +1,187 @@
+package com.chrisvdalen.contracthawk.integration;
+
+import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.contract.application.ContractUploadService;
+import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.rabbitmq.RabbitMQContainer;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many slow uploads at once against a deliberately tiny pool with a short connection timeout. Had the connection
+ * been held while the file streams to disk, most uploads would time out waiting for one.
+ */
+@SpringBootTest
+@Testcontainers
+class ConcurrentUploadIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentUploadIntegrationTest.class);
+
+    private static final int POOL_SIZE = 2;
+    private static final int UPLOADS = 32;
+    private static final long STREAM_DELAY_MS = 300;
+
+    @Container
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:18-alpine")
+            .withDatabaseName("contracthawk")
+            .withUsername("contracthawk")
+            .withPassword("contracthawk");
+
+    @Container
+    static RabbitMQContainer rabbit = new RabbitMQContainer("rabbitmq:4.2-management-alpine");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> POOL_SIZE);
+        registry.add("spring.datasource.hikari.connection-timeout", () -> 2_000);
+        registry.add("spring.rabbitmq.host", rabbit::getHost);
+        registry.add("spring.rabbitmq.port", rabbit::getAmqpPort);
+        registry.add("spring.rabbitmq.username", rabbit::getAdminUsername);
+        registry.add("spring.rabbitmq.password", rabbit::getAdminPassword);
+    }
+
+    @Autowired
+    ContractUploadService uploadService;
+
+    @Autowired
+    ContractRepository contractRepository;
+
+    @Autowired
+    ContractAnalysisRepository analysisRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    RabbitListenerEndpointRegistry listenerRegistry;
+
+    @BeforeEach
+    void cleanUp() {
+        listenerRegistry.stop();
+        analysisRepository.deleteAll();
+        contractRepository.deleteAll();
+    }
+
+    @Test
+    void slowConcurrentUploadsDoNotSaturateTheConnectionPool() throws Exception {
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        AtomicInteger peakAwaiting = new AtomicInteger();
+        Thread sampler = Thread.ofVirtual().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakAwaiting.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        List<Future<?>> uploads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < UPLOADS; i++) {
+                MockMultipartFile file = slowFile("concurrent-" + i + ".yaml",
+                        "openapi: 3.0.3\ninfo:\n  title: Concurrent\n  version: '" + i + "'\npaths: {}\n");
+                String version = "1." + i;
+                uploads.add(executor.submit(() -> uploadService.upload("concurrent-service", version, file, null)));
+            }
+            for (Future<?> upload : uploads) {
+                try {
+                    upload.get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+        } finally {
+            sampler.interrupt();
+        }
+        log.info("{} uploads of {} ms each over a pool of {}: peak threads awaiting a connection {}",
+                UPLOADS, STREAM_DELAY_MS, POOL_SIZE, peakAwaiting.get());
+        // Serialised on the pool, the uploads would need UPLOADS * STREAM_DELAY_MS / POOL_SIZE, well past the
+        // connection timeout, so the later ones would fail to get a connection.
+        assertThat(failures).as("uploads that failed, e.g. waiting for a connection").isEmpty();
+        assertThat(contractRepository.count()).isEqualTo(UPLOADS);
+    }
+
+    private static MockMultipartFile slowFile(String filename, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new MockMultipartFile("file", filename, MediaType.APPLICATION_OCTET_STREAM_VALUE, bytes) {
+            @Override
+            public InputStream getInputStream() {
+                return new SlowInputStream(new ByteArrayInputStream(bytes));
+            }
+        };
+    }
+
+    /**
+     * Stands in for a slow client: the first read blocks as if the body were still arriving.
+     */
+    private static final class SlowInputStream extends FilterInputStream {
+
+        private boolean delayed;
+
+        SlowInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            delay();
+            return super.read(b, off, len);
+        }
+
+        @Override
+        public int read() throws IOException {
+            delay();
+            return super.read();
+        }
+
+        private void delay() throws IOException {
+            if (delayed) {
+                return;
+            }
+            delayed = true;
+            try {
+                Thread.sleep(STREAM_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+}
@@ -3,8 +3,14 @@ package com.chrisvdalen.contracthawk.integration;
 import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
 import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
 import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.contract.application.RetentionService;
+import com.chrisvdalen.contracthawk.contract.domain.Contract;
+import com.chrisvdalen.contracthawk.contract.domain.RetentionPolicy;
 import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
 import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
+import com.jayway.jsonpath.JsonPath;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -22,11 +29,23 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.postgresql.PostgreSQLContainer;
 import org.testcontainers.rabbitmq.RabbitMQContainer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.time.Duration;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -59,12 +78,16 @@ class ContractAnalysisIntegrationTest {
     @Autowired ContractAnalysisRepository analysisRepository;
     @Autowired RabbitTemplate rabbitTemplate;
     @Autowired MessagingProperties messagingProperties;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired RetentionService retentionService;
+    @Autowired FileStorageService fileStorageService;
 
     @BeforeEach
     void cleanUp() {
         analysisRepository.deleteAll();
         contractRepository.deleteAll();
-        drainQueue(messagingProperties.queue());
+        jdbcTemplate.update("DELETE FROM reanalysis_run");
+        drainQueue(messagingProperties.lanes().small().queue());
         drainQueue(messagingProperties.deadLetterQueue());
     }
 
@@ -128,6 +151,304 @@ class ContractAnalysisIntegrationTest {
         });
     }
 
+    @Test
+    void removingAPathInTheNextVersionIsFlaggedAsBreaking() throws Exception {
+        String v1 = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                  /orders/{id}:
+                    get:
+                      parameters:
+                        - name: id
+                          in: path
+                          required: true
+                          schema:
+                            type: string
+                      responses:
+                        '200':
+                          description: ok
+                """;
+        String v2 = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '2.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """;
+
+        upload("order-service", "1.0.0", "spec.yaml", v1.getBytes());
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(analysisRepository.findAll())
+                        .singleElement()
+                        .satisfies(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED)));
+
+        upload("order-service", "2.0.0", "spec.yaml", v2.getBytes());
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            List<ContractAnalysis> all = analysisRepository.findAll();
+            assertThat(all).hasSize(2).allSatisfy(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED));
+            ContractAnalysis latest = all.stream().max(Comparator.comparing(ContractAnalysis::getId)).orElseThrow();
+            assertThat(latest.getBreakingChangesDetected()).isTrue();
+            assertThat(latest.getSummary()).containsEntry("removedPaths", List.of("/orders/{id}"));
+        });
+    }
+
+    @Test
+    void serviceStateFollowsTheLatestVersionAndCanBeRebuilt() throws Exception {
+        String v1 = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                  /orders/{id}:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """;
+        String v2 = v1.replace("'1.0.0'", "'2.0.0'").replace("""
+                  /orders/{id}:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """, "");
+
+        upload("order-service", "1.0.0", "spec.yaml", v1.getBytes());
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(analysisRepository.findAll())
+                        .singleElement()
+                        .satisfies(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED)));
+        upload("order-service", "2.0.0", "spec.yaml", v2.getBytes());
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(analysisRepository.findAll())
+                        .hasSize(2)
+                        .allSatisfy(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED)));
+
+        mockMvc.perform(get("/api/services"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].serviceName").value("order-service"))
+                .andExpect(jsonPath("$[0].version").value("2.0.0"))
+                .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+                .andExpect(jsonPath("$[0].pathCount").value(1))
+                .andExpect(jsonPath("$[0].breakingChangesDetected").value(true));
+
+        jdbcTemplate.update("DELETE FROM service_state");
+        mockMvc.perform(post("/api/services/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.services").value(1));
+        mockMvc.perform(get("/api/services"))
+                .andExpect(jsonPath("$[0].version").value("2.0.0"))
+                .andExpect(jsonPath("$[0].breakingChangesDetected").value(true));
+    }
+
+    @Test
+    void reanalysisRunQueuesEveryStoredContractAgainAndReportsProgress() throws Exception {
+        upload("order-service", "1.0.0", "spec.yaml", """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """.getBytes());
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(analysisRepository.findAll())
+                        .singleElement()
+                        .satisfies(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED)));
+
+        String started = mockMvc.perform(post("/api/admin/reanalysis"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.total").value(1))
+                .andReturn().getResponse().getContentAsString();
+        long runId = JsonPath.parse(started).read("$.id", Long.class);
+        mockMvc.perform(post("/api/admin/reanalysis"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("REANALYSIS_ALREADY_ACTIVE"));
+
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                mockMvc.perform(get("/api/admin/reanalysis/{id}", runId))
+                        .andExpect(jsonPath("$.status").value("FINISHED"))
+                        .andExpect(jsonPath("$.queued").value(1))
+                        .andExpect(jsonPath("$.completed").value(1)));
+        assertThat(analysisRepository.findAll())
+                .hasSize(2)
+                .allSatisfy(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED))
+                .filteredOn(a -> a.getReanalysisRunId() != null)
+                .singleElement()
+                .satisfies(a -> assertThat(a.getLane()).isEqualTo(AnalysisLane.LARGE));
+    }
+
+    @Test
+    void retentionRemovesUploadsBeyondTheNewestVersionsWithTheirAnalysesAndBlobs() throws Exception {
+        String spec = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: 'VERSION'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """;
+        for (String version : List.of("1.0.0", "2.0.0", "3.0.0")) {
+            upload("order-service", version, "spec.yaml", spec.replace("VERSION", version).getBytes());
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(analysisRepository.findAll())
+                        .hasSize(3)
+                        .allSatisfy(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED)));
+        Contract oldest = contractRepository.findAll().stream()
+                .min(Comparator.comparing(Contract::getId))
+                .orElseThrow();
+
+        int removed = retentionService.purge(new RetentionPolicy(2, 0), 10);
+
+        assertThat(removed).isEqualTo(1);
+        assertThat(contractRepository.findAll())
+                .extracting(Contract::getVersion)
+                .containsExactlyInAnyOrder("2.0.0", "3.0.0");
+        assertThat(analysisRepository.findAll()).hasSize(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM contract_operation WHERE contract_id = ?", Long.class, oldest.getId()))
+                .isZero();
+        assertThatThrownBy(() -> fileStorageService.read(oldest.getStoragePath()))
+                .isInstanceOf(NoSuchFileException.class);
+        assertThat(retentionService.purge(new RetentionPolicy(2, 0), 10)).isZero();
+        mockMvc.perform(get("/api/services"))
+                .andExpect(jsonPath("$[0].version").value("3.0.0"));
+    }
+
+    @Test
+    void bundleWithRelativeRefsIsAnalyzedAsOneSpec() throws Exception {
+        byte[] archive = zip(Map.of(
+                "openapi.yaml", """
+                        openapi: 3.0.3
+                        info:
+                          title: Orders
+                          version: '1.0.0'
+                        paths:
+                          /orders/{id}:
+                            get:
+                              parameters:
+                                - name: id
+                                  in: path
+                                  required: true
+                                  schema:
+                                    type: string
+                              responses:
+                                '404':
+                                  description: not found
+                                  content:
+                                    application/json:
+                                      schema:
+                                        $ref: 'common/errors.yaml#/components/schemas/Error'
+                        """,
+                "common/errors.yaml", """
+                        components:
+                          schemas:
+                            Error:
+                              type: object
+                              properties:
+                                message:
+                                  type: string
+                        """,
+                "README.md", "ignored"));
+
+        mockMvc.perform(multipart("/api/contracts/bundle")
+                        .file(new MockMultipartFile("archive", "orders.zip", "application/zip", archive))
+                        .param("serviceName", "order-service")
+                        .param("version", "1.0.0")
+                        .param("root", "openapi.yaml"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.originalFilename").value("openapi.yaml"));
+
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(analysisRepository.findAll())
+                        .singleElement()
+                        .satisfies(a -> {
+                            assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED);
+                            assertThat(a.getValidSpec()).isTrue();
+                            assertThat(a.getOperationCount()).isEqualTo(1);
+                        }));
+        assertThat(jdbcTemplate.queryForList("SELECT path FROM contract_bundle_file ORDER BY path", String.class))
+                .containsExactly("common/errors.yaml", "openapi.yaml");
+        mockMvc.perform(get("/api/search").param("q", "Error").param("kind", "SCHEMA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Error"));
+    }
+
+    @Test
+    void completedAnalysisIsSearchableByPathOperationIdAndSchemaName() throws Exception {
+        String spec = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders/{id}:
+                    get:
+                      operationId: getOrderById
+                      tags: [orders]
+                      responses:
+                        '200':
+                          description: ok
+                components:
+                  schemas:
+                    Money:
+                      type: string
+                """;
+
+        upload("order-service", "1.0.0", "spec.yaml", spec.getBytes());
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(analysisRepository.findAll())
+                        .singleElement()
+                        .satisfies(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.COMPLETED)));
+
+        mockMvc.perform(get("/api/search").param("q", "/orders/{id}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].serviceName").value("order-service"))
+                .andExpect(jsonPath("$.items[0].kind").value("OPERATION"))
+                .andExpect(jsonPath("$.items[0].method").value("GET"));
+        mockMvc.perform(get("/api/search").param("q", "getOrderById"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].operationId").value("getOrderById"));
+        mockMvc.perform(get("/api/search").param("q", "money").param("kind", "SCHEMA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("Money"));
+        mockMvc.perform(get("/api/search").param("q", "order").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
     private void upload(String serviceName, String version, String filename, byte[] body) throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", filename, MediaType.APPLICATION_OCTET_STREAM_VALUE, body);
         mockMvc.perform(multipart("/api/contracts")
@@ -137,6 +458,18 @@ class ContractAnalysisIntegrationTest {
                 .andExpect(status().isCreated());
     }
 
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
     private void drainQueue(String queue) {
         while (rabbitTemplate.receive(queue, 100) != null) {
         }
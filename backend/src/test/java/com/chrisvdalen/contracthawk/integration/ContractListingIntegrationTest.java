@@ -0,0 +1,203 @@
+package com.chrisvdalen.contracthawk.integration;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.contract.application.ContractPage;
+import com.chrisvdalen.contracthawk.contract.application.ContractQueryService;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListFilter;
+import com.chrisvdalen.contracthawk.contract.domain.ContractListItem;
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.rabbitmq.RabbitMQContainer;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Keyset pagination of the contract listing against PostgreSQL, with many uploads sharing a timestamp so that
+ * the id has to break the ties.
+ */
+@SpringBootTest
+@Testcontainers
+class ContractListingIntegrationTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.of(2026, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Container
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:18-alpine")
+            .withDatabaseName("contracthawk")
+            .withUsername("contracthawk")
+            .withPassword("contracthawk");
+
+    @Container
+    static RabbitMQContainer rabbit = new RabbitMQContainer("rabbitmq:4.2-management-alpine");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.rabbitmq.host", rabbit::getHost);
+        registry.add("spring.rabbitmq.port", rabbit::getAmqpPort);
+        registry.add("spring.rabbitmq.username", rabbit::getAdminUsername);
+        registry.add("spring.rabbitmq.password", rabbit::getAdminPassword);
+    }
+
+    @Autowired
+    ContractQueryService queryService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    RabbitListenerEndpointRegistry listenerRegistry;
+
+    private final List<Row> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        listenerRegistry.stop();
+        jdbcTemplate.update("DELETE FROM contract");
+        // 30 uploads over 6 distinct timestamps, spread over two services, statuses and breaking flags.
+        for (int i = 0; i < 30; i++) {
+            OffsetDateTime uploadedAt = BASE.plusMinutes(i / 5);
+            String service = i % 2 == 0 ? "order-service" : "billing-service";
+            AnalysisStatus status = i % 3 == 0 ? AnalysisStatus.PENDING : AnalysisStatus.COMPLETED;
+            Boolean breaking = status == AnalysisStatus.COMPLETED ? i % 4 == 0 : null;
+            insert(service, "1." + i, uploadedAt, status, breaking);
+        }
+    }
+
+    @Test
+    void pagesThroughTiesWithoutSkippingOrRepeatingRows() {
+        for (int limit : new int[]{1, 3, 4, 5, 7, 29, 30, 31}) {
+            assertThat(pageThrough(new ContractListFilter(null, null, null), limit))
+                    .as("ids with limit %d", limit)
+                    .containsExactlyElementsOf(expected(row -> true));
+        }
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        ContractPage first = queryService.list(new ContractListFilter(null, null, null), null, 15);
+        ContractPage second = queryService.list(new ContractListFilter(null, null, null), first.nextCursor(), 15);
+
+        assertThat(first.items()).hasSize(15);
+        assertThat(first.nextCursor()).isNotNull();
+        // Exactly two pages' worth: the second one is full and still the last.
+        assertThat(second.items()).hasSize(15);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void filtersCombineWithPagination() {
+        assertThat(pageThrough(new ContractListFilter("order-service", null, null), 4))
+                .containsExactlyElementsOf(expected(row -> row.service().equals("order-service")));
+        assertThat(pageThrough(new ContractListFilter(null, AnalysisStatus.PENDING, null), 4))
+                .containsExactlyElementsOf(expected(row -> row.status() == AnalysisStatus.PENDING));
+        assertThat(pageThrough(new ContractListFilter(null, null, true), 2))
+                .containsExactlyElementsOf(expected(row -> Boolean.TRUE.equals(row.breaking())));
+        assertThat(pageThrough(new ContractListFilter("billing-service", AnalysisStatus.COMPLETED, false), 3))
+                .containsExactlyElementsOf(expected(row -> row.service().equals("billing-service")
+                        && row.status() == AnalysisStatus.COMPLETED && Boolean.FALSE.equals(row.breaking())));
+    }
+
+    @Test
+    void uploadsAfterTheFirstPageDoNotShiftLaterPages() {
+        ContractListFilter all = new ContractListFilter(null, null, null);
+        List<Long> expected = expected(row -> true);
+        ContractPage first = queryService.list(all, null, 10);
+        insert("order-service", "2.0", BASE.plusHours(1), AnalysisStatus.PENDING, null);
+        // Shares the timestamp of the last row of the first page, with a higher id.
+        insert("order-service", "2.1", first.items().getLast().uploadedAt(), AnalysisStatus.PENDING, null);
+
+        List<Long> ids = new ArrayList<>(first.items().stream().map(ContractListItem::id).toList());
+        String cursor = first.nextCursor();
+        while (cursor != null) {
+            ContractPage page = queryService.list(all, cursor, 10);
+            page.items().forEach(item -> ids.add(item.id()));
+            cursor = page.nextCursor();
+        }
+
+        assertThat(ids).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void cursorSurvivesEncodingWithSubMillisecondTimestamps() {
+        jdbcTemplate.update("DELETE FROM contract");
+        rows.clear();
+        OffsetDateTime at = BASE.plusNanos(123_456_000);
+        for (int i = 0; i < 4; i++) {
+            insert("order-service", "1." + i, at, AnalysisStatus.COMPLETED, false);
+        }
+
+        assertThat(pageThrough(new ContractListFilter(null, null, null), 1))
+                .containsExactlyElementsOf(expected(row -> true));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> queryService.list(new ContractListFilter(null, null, null), "not-a-cursor", 10))
+                .isInstanceOfSatisfying(BadRequestException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("INVALID_CURSOR"));
+    }
+
+    private List<Long> pageThrough(ContractListFilter filter, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            ContractPage page = queryService.list(filter, cursor, limit);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(limit);
+            page.items().forEach(item -> ids.add(item.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<Long> expected(Predicate<Row> filter) {
+        return rows.stream()
+                .filter(filter)
+                .sorted(Comparator.comparing(Row::uploadedAt).thenComparing(Row::id).reversed())
+                .map(Row::id)
+                .toList();
+    }
+
+    private void insert(String service, String version, OffsetDateTime uploadedAt, AnalysisStatus status,
+                       Boolean breaking) {
+        OffsetDateTime at = uploadedAt.truncatedTo(ChronoUnit.MICROS);
+        long id = jdbcTemplate.queryForObject("""
+                        INSERT INTO contract (service_name, version, original_filename, storage_path, content_sha256,
+                                              uploaded_at)
+                        VALUES (?, ?, 'spec.yaml', ?, ?, ?)
+                        RETURNING id
+                        """, Long.class,
+                service, version, service + "/" + version, "sha-" + service + version, Timestamp.from(at.toInstant()));
+        jdbcTemplate.update("""
+                        INSERT INTO contract_analysis (contract_id, status, created_at, breaking_changes_detected)
+                        VALUES (?, ?, ?, ?)
+                        """,
+                id, status.name(), Timestamp.from(at.toInstant()), breaking);
+        rows.add(new Row(id, service, at, status, breaking));
+    }
+
+    private record Row(long id, String service, OffsetDateTime uploadedAt, AnalysisStatus status, Boolean breaking) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.chrisvdalen.contracthawk.integration;
+
+import com.chrisvdalen.contracthawk.contract.domain.RetentionPolicy;
+import com.chrisvdalen.contracthawk.contract.repository.BlobReferenceRepository;
+import com.chrisvdalen.contracthawk.contract.repository.ContractRetentionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContractRetentionRepositoryIntegrationTest extends PostgresRepositoryTestSupport {
+
+    private ContractRetentionRepository repository;
+    private OffsetDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM contract");
+        repository = new ContractRetentionRepository(jdbcTemplate);
+        now = OffsetDateTime.now();
+    }
+
+    @Test
+    void keepVersionsKeepsTheNewestUploadsOfEachService() {
+        long orders1 = upload("order-service", "1", now.minusDays(4));
+        long orders2 = upload("order-service", "2", now.minusDays(3));
+        upload("order-service", "3", now.minusDays(2));
+        upload("order-service", "4", now.minusDays(1));
+        upload("billing-service", "1", now.minusDays(4));
+        upload("billing-service", "2", now.minusDays(3));
+
+        assertThat(expiredIds(new RetentionPolicy(2, 0))).containsExactly(orders1, orders2);
+    }
+
+    @Test
+    void keepDaysKeepsRecentUploads() {
+        long old = upload("order-service", "1", now.minusDays(10));
+        upload("order-service", "2", now.minusDays(5));
+        upload("order-service", "3", now.minusDays(1));
+
+        assertThat(expiredIds(new RetentionPolicy(0, 7))).containsExactly(old);
+    }
+
+    @Test
+    void anUploadIsOnlyRemovedWhenEveryRuleLetsItGo() {
+        long oldest = upload("order-service", "1", now.minusDays(10));
+        upload("order-service", "2", now.minusDays(9));
+        upload("order-service", "3", now.minusDays(1));
+
+        // Version 2 is old enough, but one of the two newest.
+        assertThat(expiredIds(new RetentionPolicy(2, 7))).containsExactly(oldest);
+    }
+
+    @Test
+    void latestUploadOfAServiceIsKeptHoweverOld() {
+        upload("order-service", "1", now.minusDays(100));
+        long billingOld = upload("billing-service", "1", now.minusDays(100));
+        upload("billing-service", "2", now.minusDays(90));
+
+        assertThat(expiredIds(new RetentionPolicy(0, 7))).containsExactly(billingOld);
+        assertThat(expiredIds(new RetentionPolicy(1, 0))).containsExactly(billingOld);
+    }
+
+    @Test
+    void uploadsWithUnfinishedAnalysesAreKept() {
+        long pending = insertContract("order-service", "1", "order-service/1", now.minusDays(10));
+        insertAnalysis(pending, "PENDING", now.minusDays(10));
+        long completed = upload("order-service", "2", now.minusDays(9));
+        upload("order-service", "3", now.minusDays(1));
+
+        assertThat(expiredIds(new RetentionPolicy(1, 0))).containsExactly(completed);
+    }
+
+    @Test
+    void blobLockIsHeldUntilTheTransactionEnds() {
+        BlobReferenceRepository blobs = new BlobReferenceRepository(jdbcTemplate);
+        TransactionTemplate transactionTemplate =
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            blobs.lock(List.of("blobs/aa/a"));
+            assertThat(tryLockElsewhere("blobs/aa/a")).isFalse();
+            assertThat(tryLockElsewhere("blobs/bb/b")).isTrue();
+        });
+        assertThat(tryLockElsewhere("blobs/aa/a")).isTrue();
+    }
+
+    private long upload(String serviceName, String version, OffsetDateTime uploadedAt) {
+        long contractId = insertContract(serviceName, version, serviceName + "/" + version, uploadedAt);
+        insertAnalysis(contractId, "COMPLETED", uploadedAt);
+        return contractId;
+    }
+
+    private List<Long> expiredIds(RetentionPolicy policy) {
+        return repository.lockExpired(policy, now, 100).stream()
+                .map(ContractRetentionRepository.Expired::contractId)
+                .toList();
+    }
+
+    /**
+     * Tries the lock of {@code storagePath} on a connection of its own, without waiting.
+     */
+    private static boolean tryLockElsewhere(String storagePath) {
+        JdbcTemplate other = new JdbcTemplate(
+                new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        return Boolean.TRUE.equals(other.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtextextended(?, 0))", Boolean.class, storagePath));
+    }
+}
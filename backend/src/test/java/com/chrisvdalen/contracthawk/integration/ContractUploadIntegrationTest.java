@@ -1,9 +1,11 @@
 package com.chrisvdalen.contracthawk.integration;
 
 import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
 import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
 import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
 import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.core.Message;
@@ -12,6 +14,7 @@ import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -22,8 +25,22 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.postgresql.PostgreSQLContainer;
 import org.testcontainers.rabbitmq.RabbitMQContainer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -97,7 +114,7 @@ class ContractUploadIntegrationTest {
                 .singleElement()
                 .satisfies(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.PENDING));
 
-        Message message = rabbitTemplate.receive(messagingProperties.queue(), 5_000);
+        Message message = rabbitTemplate.receive(messagingProperties.lanes().small().queue(), 5_000);
         assertThat(message).as("analysis job should be published").isNotNull();
     }
 
@@ -115,7 +132,7 @@ class ContractUploadIntegrationTest {
 
         assertThat(contractRepository.count()).isZero();
         assertThat(analysisRepository.count()).isZero();
-        assertThat(rabbitTemplate.receive(messagingProperties.queue(), 500)).isNull();
+        assertThat(rabbitTemplate.receive(messagingProperties.lanes().small().queue(), 500)).isNull();
     }
 
     @Test
@@ -132,11 +149,170 @@ class ContractUploadIntegrationTest {
 
         assertThat(contractRepository.count()).isZero();
         assertThat(analysisRepository.count()).isZero();
-        assertThat(rabbitTemplate.receive(messagingProperties.queue(), 500)).isNull();
+        assertThat(rabbitTemplate.receive(messagingProperties.lanes().small().queue(), 500)).isNull();
+    }
+
+    @Test
+    void contractDetailsAreRevalidatedWithTheirETag() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "order-service.yaml",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                "openapi: 3.0.3\ninfo:\n  title: Order\n  version: '1.0'\npaths: {}\n".getBytes());
+        mockMvc.perform(multipart("/api/contracts")
+                        .file(file)
+                        .param("serviceName", "order-service")
+                        .param("version", "1.0.0"))
+                .andExpect(status().isCreated());
+        Long id = contractRepository.findAll().getFirst().getId();
+
+        String etag = mockMvc.perform(get("/api/contracts/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+
+        mockMvc.perform(get("/api/contracts/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        mockMvc.perform(get("/api/contracts/{id}/latest-analysis", id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+        // Analyses are validated by ETag only, so a date alone never gets a 304.
+        mockMvc.perform(get("/api/contracts/{id}/latest-analysis", id)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Jan 2100 00:00:00 GMT"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void analysisHistoryETagChangesWhenAnAnalysisIsAdded() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "order-service.yaml",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                "openapi: 3.0.3\ninfo:\n  title: Order\n  version: '1.0'\npaths: {}\n".getBytes());
+        mockMvc.perform(multipart("/api/contracts")
+                        .file(file)
+                        .param("serviceName", "order-service")
+                        .param("version", "1.0.0"))
+                .andExpect(status().isCreated());
+        Long id = contractRepository.findAll().getFirst().getId();
+
+        String etag = mockMvc.perform(get("/api/contracts/{id}/analyses", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/contracts/{id}/analyses", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        analysisRepository.save(ContractAnalysis.pending(id, AnalysisLane.SMALL, OffsetDateTime.now()));
+
+        mockMvc.perform(get("/api/contracts/{id}/analyses", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void storedContentIsServedWithRangesAndGzip() throws Exception {
+        String spec = "openapi: 3.0.3\ninfo:\n  title: Order\n  version: '1.0'\npaths: {}\n" + "# padding\n".repeat(500);
+        MockMultipartFile file = new MockMultipartFile("file", "order-service.yaml",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, spec.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/api/contracts")
+                        .file(file)
+                        .param("serviceName", "order-service")
+                        .param("version", "1.0.0"))
+                .andExpect(status().isCreated());
+        Long id = contractRepository.findAll().getFirst().getId();
+
+        String etag = mockMvc.perform(get("/api/contracts/{id}/content", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/yaml"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().string(spec))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/contracts/{id}/content", id).header(HttpHeaders.RANGE, "bytes=0-6"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-6/" + spec.length()))
+                .andExpect(content().string("openapi"));
+
+        mockMvc.perform(get("/api/contracts/{id}/content", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        byte[] compressed = mockMvc.perform(get("/api/contracts/{id}/content", id)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(spec);
+        }
+    }
+
+    @Test
+    void bulkUploadRegistersEveryManifestEntryAndPublishesTheirJobs() throws Exception {
+        MockMultipartFile archive = new MockMultipartFile("archive", "release.zip",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, zip(
+                        "specs/order.yaml", "openapi: 3.0.3\ninfo:\n  title: Order\n  version: '1.0'\npaths: {}\n",
+                        "specs/billing.yaml", "openapi: 3.0.3\ninfo:\n  title: Billing\n  version: '1.0'\npaths: {}\n",
+                        "README.md", "not a spec"));
+        MockMultipartFile manifest = new MockMultipartFile("manifest", "", MediaType.APPLICATION_JSON_VALUE, """
+                [
+                  {"path": "specs/order.yaml", "serviceName": "order-service", "version": "1.0.0"},
+                  {"path": "specs/billing.yaml", "serviceName": "billing-service", "version": "2.0.0"}
+                ]
+                """.getBytes());
+
+        mockMvc.perform(multipart("/api/contracts/bulk").file(archive).file(manifest))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].serviceName").value("order-service"))
+                .andExpect(jsonPath("$[0].originalFilename").value("order.yaml"))
+                .andExpect(jsonPath("$[1].serviceName").value("billing-service"));
+
+        assertThat(contractRepository.count()).isEqualTo(2);
+        assertThat(analysisRepository.findAll())
+                .hasSize(2)
+                .allSatisfy(a -> assertThat(a.getStatus()).isEqualTo(AnalysisStatus.PENDING));
+        assertThat(rabbitTemplate.receive(messagingProperties.lanes().small().queue(), 5_000)).isNotNull();
+        assertThat(rabbitTemplate.receive(messagingProperties.lanes().small().queue(), 5_000)).isNotNull();
+    }
+
+    @Test
+    void bulkUploadMissingManifestEntryReturns400AndStoresNothing() throws Exception {
+        MockMultipartFile archive = new MockMultipartFile("archive", "release.zip",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, zip("specs/order.yaml", "openapi: 3.0.3\n"));
+        MockMultipartFile manifest = new MockMultipartFile("manifest", "", MediaType.APPLICATION_JSON_VALUE, """
+                [
+                  {"path": "specs/order.yaml", "serviceName": "order-service", "version": "1.0.0"},
+                  {"path": "specs/billing.yaml", "serviceName": "billing-service", "version": "2.0.0"}
+                ]
+                """.getBytes());
+
+        mockMvc.perform(multipart("/api/contracts/bulk").file(archive).file(manifest))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("MISSING_ARCHIVE_ENTRY"));
+
+        assertThat(contractRepository.count()).isZero();
+        assertThat(analysisRepository.count()).isZero();
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
     }
 
     private void drainQueue() {
-        while (rabbitTemplate.receive(messagingProperties.queue(), 100) != null) {
+        while (rabbitTemplate.receive(messagingProperties.lanes().small().queue(), 100) != null) {
         }
     }
 }
@@ -0,0 +1,55 @@
+package com.chrisvdalen.contracthawk.integration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+
+/**
+ * Base for tests of JDBC repositories against a real, migrated PostgreSQL, without starting the application.
+ * Each test class gets its own container.
+ */
+@Testcontainers
+abstract class PostgresRepositoryTestSupport {
+
+    @Container
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:18-alpine")
+            .withDatabaseName("contracthawk")
+            .withUsername("contracthawk")
+            .withPassword("contracthawk");
+
+    static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrate() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    static long insertContract(String serviceName, String version, String storagePath, OffsetDateTime uploadedAt) {
+        return jdbcTemplate.queryForObject("""
+                        INSERT INTO contract (service_name, version, original_filename, storage_path, content_sha256,
+                                              uploaded_at)
+                        VALUES (?, ?, 'spec.yaml', ?, ?, ?)
+                        RETURNING id
+                        """, Long.class,
+                serviceName, version, storagePath, "sha-" + storagePath, Timestamp.from(uploadedAt.toInstant()));
+    }
+
+    static long insertAnalysis(long contractId, String status, OffsetDateTime createdAt) {
+        return jdbcTemplate.queryForObject("""
+                        INSERT INTO contract_analysis (contract_id, status, created_at)
+                        VALUES (?, ?, ?)
+                        RETURNING id
+                        """, Long.class,
+                contractId, status, Timestamp.from(createdAt.toInstant()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.chrisvdalen.contracthawk.integration;
+
+import com.chrisvdalen.contracthawk.search.application.SearchCursor;
+import com.chrisvdalen.contracthawk.search.application.SearchFilter;
+import com.chrisvdalen.contracthawk.search.application.SearchHit;
+import com.chrisvdalen.contracthawk.search.domain.SpecSymbol;
+import com.chrisvdalen.contracthawk.search.repository.SearchIndexRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchIndexRepositoryIntegrationTest extends PostgresRepositoryTestSupport {
+
+    private final List<String> statements = new ArrayList<>();
+    private SearchIndexRepository repository;
+    private OffsetDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM contract");
+        statements.clear();
+        // Records the statements the repository runs, so their plans can be checked.
+        JdbcTemplate recording = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+                if (psc instanceof SqlProvider provider) {
+                    statements.add(provider.getSql());
+                }
+                return super.execute(psc, action);
+            }
+        };
+        repository = new SearchIndexRepository(jdbcTemplate, JdbcClient.create(recording));
+        now = OffsetDateTime.now();
+    }
+
+    @Test
+    void latestOnlySearchesTheVersionInServiceState() {
+        long v1 = insertContract("order-service", "1", "order-service/1", now.minusDays(2));
+        long v2 = insertContract("order-service", "2", "order-service/2", now.minusDays(1));
+        repository.replaceAll(v1, List.of(SpecSymbol.operation("/orders/{id}", "GET", "getOrderById", List.of())));
+        repository.replaceAll(v2, List.of(SpecSymbol.operation("/orders/{id}", "GET", "getOrderById", List.of())));
+        insertServiceState("order-service", v2);
+
+        assertThat(repository.search("getOrderById", new SearchFilter(null, null, false), null, 10))
+                .extracting(SearchHit::contractId)
+                .containsExactlyInAnyOrder(v1, v2);
+        assertThat(repository.search("getOrderById", new SearchFilter(null, null, true), null, 10))
+                .extracting(SearchHit::contractId)
+                .containsExactly(v2);
+    }
+
+    @Test
+    void ranksOnlyTheCappedCandidatesWithExactMatchesFirst() {
+        long contract = insertContract("order-service", "1", "order-service/1", now);
+        List<SpecSymbol> symbols = new ArrayList<>();
+        // Indexed first, so it has the lowest id and would be the first match dropped without exact matches first.
+        symbols.add(SpecSymbol.schema("Orders"));
+        IntStream.range(0, SearchIndexRepository.MAX_CANDIDATES + 50)
+                .mapToObj(i -> SpecSymbol.operation("/orders/" + i, "GET", "listOrders" + i, List.of()))
+                .forEach(symbols::add);
+        repository.replaceAll(contract, symbols);
+
+        List<SearchHit> hits = new ArrayList<>();
+        SearchCursor after = null;
+        List<SearchHit> page;
+        do {
+            page = repository.search("orders", new SearchFilter(null, null, false), after, 200);
+            hits.addAll(page);
+            after = page.isEmpty() ? null : new SearchCursor(page.getLast().score(), page.getLast().id());
+        } while (page.size() == 200);
+
+        assertThat(hits.getFirst().name()).isEqualTo("Orders");
+        assertThat(hits).hasSize(SearchIndexRepository.MAX_CANDIDATES);
+        assertThat(hits).extracting(SearchHit::id).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void planJoinsServiceStateAndCapsMatchesBeforeScoring() {
+        repository.search("orders", new SearchFilter(null, "order-service", true), null, 10);
+
+        String plan = String.join("\n",
+                jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered(statements.getLast()), String.class));
+
+        // One lookup of the latest version per match used to show up as a correlated SubPlan.
+        assertThat(plan).contains("service_state").doesNotContain("SubPlan");
+        // The candidate LIMIT below the scoring, the page LIMIT on top.
+        assertThat(plan.split("Limit", -1)).hasSizeGreaterThanOrEqualTo(3);
+    }
+
+    private static void insertServiceState(String serviceName, long contractId) {
+        jdbcTemplate.update("""
+                        INSERT INTO service_state (service_name, contract_id, version, uploaded_at, analysis_id, status,
+                                                   finished_at)
+                        SELECT service_name, id, version, uploaded_at, 1, 'COMPLETED', ?
+                        FROM contract WHERE id = ?
+                        """,
+                Timestamp.from(OffsetDateTime.now().toInstant()), contractId);
+    }
+
+    /**
+     * Turns the JDBC placeholders into numbered parameters, which EXPLAIN (GENERIC_PLAN) accepts.
+     */
+    private static String numbered(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char ch : sql.toCharArray()) {
+            if (ch == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(ch);
+            }
+        }
+        return numbered.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisBatchProcessor;
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisClaimService;
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisMetrics;
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
+import com.chrisvdalen.contracthawk.analysis.application.ContractProcessingException;
+import com.chrisvdalen.contracthawk.analysis.application.ParsedJob;
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisBatchProcessorTest {
+
+    private final AnalysisJob first = new AnalysisJob(1L, 11L, "a.yaml", null, null, null, null);
+    private final AnalysisJob second = new AnalysisJob(2L, 12L, "b.yaml", null, null, null, null);
+    private final AnalysisJob missing = new AnalysisJob(3L, 13L, "c.yaml", null, null, null, null);
+    private final ParsedJob parsed = new ParsedJob(new ParsedContract(true, 1, 1, List.of()), null, Duration.ZERO);
+
+    private ContractAnalysisService analysisService;
+    private AnalysisClaimService claimService;
+    private AnalysisBatchProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        analysisService = mock(ContractAnalysisService.class);
+        claimService = mock(AnalysisClaimService.class);
+        processor = new AnalysisBatchProcessor(analysisService, claimService, new AnalysisMetrics(new SimpleMeterRegistry()));
+        when(claimService.claimAll(any())).thenReturn(Set.of(11L, 12L));
+    }
+
+    @Test
+    void failingJobDoesNotFailTheRestOfTheBatchAndUnclaimedJobIsDropped() {
+        when(analysisService.parse(first)).thenReturn(parsed);
+        when(analysisService.parse(second)).thenThrow(
+                new ContractProcessingException("disk error", new IOException("disk error")));
+
+        Map<AnalysisJob, RuntimeException> failures = processor.process(List.of(first, second, missing), 2);
+
+        assertThat(failures).containsOnlyKeys(second);
+        verify(analysisService).completeAll(Map.of(first, parsed));
+        verify(analysisService, never()).parse(missing);
+        verify(claimService).release(Set.of(second));
+    }
+
+    @Test
+    void jobForAnAnalysisAlreadyInTheBatchIsClaimedAndParsedOnce() {
+        AnalysisJob redelivered = new AnalysisJob(1L, 11L, "a.yaml", null, null, null, null);
+        when(analysisService.parse(any())).thenReturn(parsed);
+
+        Map<AnalysisJob, RuntimeException> failures = processor.process(List.of(first, redelivered, second), 2);
+
+        assertThat(failures).isEmpty();
+        verify(claimService).claimAll(List.of(first, second));
+        verify(analysisService, times(1)).parse(first);
+    }
+
+    @Test
+    void failedBatchCommitFallsBackToCompletingEachJob() {
+        when(analysisService.parse(any())).thenReturn(parsed);
+        doThrow(new IllegalStateException("constraint violation")).when(analysisService).completeAll(any());
+        doThrow(new IllegalStateException("constraint violation")).when(analysisService).complete(second, parsed);
+
+        Map<AnalysisJob, RuntimeException> failures = processor.process(List.of(first, second), 2);
+
+        assertThat(failures).containsOnlyKeys(second);
+        verify(analysisService).complete(first, parsed);
+    }
+}
@@ -0,0 +1,65 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisClaimService;
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.repository.AnalysisClaimRepository;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalysisClaimServiceTest {
+
+    private AnalysisClaimRepository claimRepository;
+    private AnalysisJobOutbox outbox;
+    private PlatformTransactionManager transactionManager;
+    private AnalysisClaimService service;
+
+    @BeforeEach
+    void setUp() {
+        claimRepository = mock(AnalysisClaimRepository.class);
+        outbox = mock(AnalysisJobOutbox.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        AnalysisProperties properties = new AnalysisProperties(null, null,
+                new AnalysisProperties.Lease(60_000, 20_000, 30_000), null, null, null);
+        service = new AnalysisClaimService(claimRepository, outbox, transactionManager, properties);
+    }
+
+    @Test
+    void requeuesEachBatchOfPendingAnalysesInItsOwnTransaction() {
+        List<AnalysisJob> full = jobs(1, 100);
+        List<AnalysisJob> rest = jobs(101, 130);
+        when(claimRepository.findPendingWithoutOutboxEntry(eq(0L), any(), anyInt())).thenReturn(full);
+        when(claimRepository.findPendingWithoutOutboxEntry(eq(100L), any(), anyInt())).thenReturn(rest);
+
+        int requeued = service.requeuePendingWithoutJob();
+
+        assertThat(requeued).isEqualTo(130);
+        InOrder inOrder = inOrder(transactionManager, outbox);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outbox).enqueueAll(full);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outbox).enqueueAll(rest);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    private static List<AnalysisJob> jobs(long firstId, long lastId) {
+        return LongStream.rangeClosed(firstId, lastId)
+                .mapToObj(id -> new AnalysisJob(id, id, "spec-" + id + ".yaml", null, null, null, null))
+                .toList();
+    }
+}
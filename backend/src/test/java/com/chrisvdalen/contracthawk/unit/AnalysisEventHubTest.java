@@ -0,0 +1,49 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisEventHub;
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisResponse;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisEventHubTest {
+
+    private final AnalysisEventHub hub = new AnalysisEventHub();
+
+    @Test
+    void publishReachesSubscribersOfTheSameContractOnly() throws Exception {
+        CompletableFuture<ContractAnalysisResponse> received = new CompletableFuture<>();
+        CompletableFuture<ContractAnalysisResponse> other = new CompletableFuture<>();
+        hub.subscribe(1L, received::complete);
+        hub.subscribe(2L, other::complete);
+
+        ContractAnalysisResponse analysis = completed(1L);
+        hub.publish(analysis);
+
+        assertThat(received.get(5, TimeUnit.SECONDS)).isEqualTo(analysis);
+        assertThat(other).isNotDone();
+    }
+
+    @Test
+    void unsubscribedConsumerIsNotCalled() throws Exception {
+        CompletableFuture<ContractAnalysisResponse> removed = new CompletableFuture<>();
+        CompletableFuture<ContractAnalysisResponse> kept = new CompletableFuture<>();
+        Runnable unsubscribe = hub.subscribe(1L, removed::complete);
+        hub.subscribe(1L, kept::complete);
+        unsubscribe.run();
+
+        hub.publish(completed(1L));
+
+        kept.get(5, TimeUnit.SECONDS);
+        assertThat(removed).isNotDone();
+    }
+
+    private static ContractAnalysisResponse completed(Long contractId) {
+        return new ContractAnalysisResponse(10L, contractId, AnalysisStatus.COMPLETED,
+                null, null, true, 1, 1, false, null, null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobPublisher;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.infrastructure.AnalysisOutboxRelay;
+import com.chrisvdalen.contracthawk.messaging.repository.AnalysisOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.AmqpException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisOutboxRelayTest {
+
+    private final AnalysisJob first = new AnalysisJob(1L, 11L, "a.yaml", null, null, null, null);
+    private final AnalysisJob second = new AnalysisJob(2L, 12L, "b.yaml", null, null, null, null);
+    private final AnalysisJob third = new AnalysisJob(3L, 13L, "c.yaml", null, null, null, null);
+
+    private AnalysisOutboxRepository outboxRepository;
+    private AnalysisJobPublisher publisher;
+    private PlatformTransactionManager transactionManager;
+    private AnalysisOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(AnalysisOutboxRepository.class);
+        publisher = mock(AnalysisJobPublisher.class);
+        MessagingProperties properties = new MessagingProperties(null, null, null, null, null, null, null, null,
+                new MessagingProperties.Outbox(2, 1000, 5000), null, null, null);
+        transactionManager = mock(PlatformTransactionManager.class);
+        relay = new AnalysisOutboxRelay(outboxRepository, publisher, transactionManager, properties);
+    }
+
+    @Test
+    void drainsOutboxInBatchesUntilEmpty() {
+        when(outboxRepository.claimOldest(2, 10_000)).thenReturn(
+                List.of(new AnalysisOutboxRepository.Entry(1, first), new AnalysisOutboxRepository.Entry(2, second)),
+                List.of(new AnalysisOutboxRepository.Entry(3, third)));
+
+        relay.drain();
+
+        verify(publisher).publishAll(List.of(first, second));
+        verify(outboxRepository).deleteAll(List.of(1L, 2L));
+        verify(publisher).publishAll(List.of(third));
+        verify(outboxRepository).deleteAll(List.of(3L));
+    }
+
+    @Test
+    void unconfirmedBatchStaysInOutbox() {
+        when(outboxRepository.claimOldest(2, 10_000)).thenReturn(List.of(new AnalysisOutboxRepository.Entry(1, first)));
+        doThrow(new AmqpException("nack")).when(publisher).publishAll(any());
+
+        relay.drain();
+
+        verify(outboxRepository, never()).deleteAll(any());
+        verify(outboxRepository).release(List.of(1L));
+    }
+
+    @Test
+    void publishesOutsideTheTransactionThatClaimedTheBatch() {
+        when(outboxRepository.claimOldest(2, 10_000)).thenReturn(List.of(new AnalysisOutboxRepository.Entry(1, first)));
+
+        relay.drain();
+
+        InOrder inOrder = inOrder(outboxRepository, transactionManager, publisher);
+        inOrder.verify(outboxRepository).claimOldest(2, 10_000);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(publisher).publishAll(List.of(first));
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outboxRepository).deleteAll(List.of(1L));
+        inOrder.verify(transactionManager).commit(any());
+    }
+}
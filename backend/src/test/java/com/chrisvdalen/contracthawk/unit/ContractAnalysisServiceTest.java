@@ -1,20 +1,33 @@
 package com.chrisvdalen.contracthawk.unit;
 
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisClaimService;
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisMetrics;
 import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
 import com.chrisvdalen.contracthawk.analysis.application.ContractParser;
 import com.chrisvdalen.contracthawk.analysis.application.ContractProcessingException;
 import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
 import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
 import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedOperation;
 import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractBundleRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractOperationRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ServiceStateRepository;
 import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import com.chrisvdalen.contracthawk.search.repository.SearchIndexRepository;
 import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,8 +36,11 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ContractAnalysisServiceTest {
@@ -32,20 +48,36 @@ class ContractAnalysisServiceTest {
     private ContractAnalysisRepository analysisRepository;
     private FileStorageService fileStorageService;
     private ContractParser contractParser;
+    private ContractOperationRepository operationRepository;
+    private ServiceStateRepository serviceStateRepository;
+    private AnalysisClaimService claimService;
+    private ApplicationEventPublisher eventPublisher;
+    private SimpleMeterRegistry meterRegistry;
     private ContractAnalysisService service;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         analysisRepository = mock(ContractAnalysisRepository.class);
         fileStorageService = mock(FileStorageService.class);
         contractParser = mock(ContractParser.class);
-        service = new ContractAnalysisService(analysisRepository, fileStorageService, contractParser);
+        operationRepository = mock(ContractOperationRepository.class);
+        serviceStateRepository = mock(ServiceStateRepository.class);
+        claimService = mock(AnalysisClaimService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(contractParser.parse(any(), any())).thenCallRealMethod();
+        when(claimService.claim(any())).thenReturn(true);
+        when(claimService.finish(any(), any(), any())).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ContractAnalysisService(analysisRepository, fileStorageService, contractParser, operationRepository,
+                mock(SearchIndexRepository.class), serviceStateRepository, mock(ContractBundleRepository.class), claimService, mock(PlatformTransactionManager.class), eventPublisher,
+                new AnalysisMetrics(meterRegistry));
     }
 
     @Test
-    void processMarksAnalysisProcessingThenCompletedWithCounts() throws Exception {
-        ContractAnalysis analysis = ContractAnalysis.pending(10L, OffsetDateTime.now());
+    void processCompletesClaimedAnalysisWithCounts() throws Exception {
+        ContractAnalysis analysis = ContractAnalysis.pending(10L, AnalysisLane.SMALL, OffsetDateTime.now());
         setId(analysis, 20L);
+        analysis.markProcessing(OffsetDateTime.now());
 
         List<AnalysisStatus> savedStatuses = new ArrayList<>();
         doAnswer(inv -> {
@@ -59,10 +91,12 @@ class ContractAnalysisServiceTest {
                 .thenReturn(new ByteArrayInputStream("ignored".getBytes()));
         when(contractParser.parse(any())).thenReturn(new ParsedContract(true, 2, 3, List.of()));
 
-        service.process(new AnalysisJob(10L, 20L, "order-service/1.0.0/spec.yaml"));
+        service.process(new AnalysisJob(10L, 20L, "order-service/1.0.0/spec.yaml", null, null,
+                Instant.now().minusSeconds(5), AnalysisLane.SMALL));
 
-        assertThat(savedStatuses).containsExactly(AnalysisStatus.PROCESSING, AnalysisStatus.COMPLETED);
+        assertThat(savedStatuses).containsExactly(AnalysisStatus.COMPLETED);
         assertThat(analysis.getStatus()).isEqualTo(AnalysisStatus.COMPLETED);
+        verify(serviceStateRepository).upsert(analysis);
         assertThat(analysis.getPathCount()).isEqualTo(2);
         assertThat(analysis.getOperationCount()).isEqualTo(3);
         assertThat(analysis.getValidSpec()).isTrue();
@@ -70,26 +104,177 @@ class ContractAnalysisServiceTest {
         assertThat(analysis.getSummary())
                 .containsEntry("pathCount", 2)
                 .containsEntry("operationCount", 3)
-                .containsEntry("validSpec", true);
+                .containsEntry("validSpec", true)
+                .containsEntry("previousVersionExists", false);
         assertThat(analysis.getStartedAt()).isNotNull();
         assertThat(analysis.getFinishedAt()).isNotNull();
+        assertThat(analysis.getSummary().get("timings")).asInstanceOf(InstanceOfAssertFactories.MAP)
+                .containsKeys("parseMs", "indexWriteMs")
+                .hasEntrySatisfying("queueWaitMs", wait -> assertThat((Long) wait).isGreaterThanOrEqualTo(5_000L));
+        assertThat(meterRegistry.get("contracthawk.analysis.queue.wait").tag("lane", "SMALL").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("contracthawk.analysis.persist").tag("mode", "single").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void processFlagsRemovedPathAndMethodAgainstPreviousVersion() throws Exception {
+        ContractAnalysis analysis = ContractAnalysis.pending(11L, AnalysisLane.SMALL, OffsetDateTime.now());
+        setId(analysis, 21L);
+
+        when(analysisRepository.findById(21L)).thenReturn(Optional.of(analysis));
+        when(analysisRepository.existsByContractIdAndStatus(10L, AnalysisStatus.COMPLETED)).thenReturn(true);
+        when(analysisRepository.findComparisonBaselines(List.of(10L))).thenReturn(List.of(baseline(10L, 10L)));
+        when(operationRepository.findByContractId(10L)).thenReturn(List.of(
+                new ParsedOperation("/orders", "GET", "a"),
+                new ParsedOperation("/orders", "POST", "b"),
+                new ParsedOperation("/orders/{id}", "GET", "c")));
+        when(fileStorageService.read("v2.yaml")).thenReturn(new ByteArrayInputStream("ignored".getBytes()));
+        when(contractParser.parse(any())).thenReturn(new ParsedContract(true, 2, 2, List.of(), List.of(
+                new ParsedOperation("/orders", "GET", "changed"),
+                new ParsedOperation("/customers", "GET", "d"))));
+
+        service.process(new AnalysisJob(11L, 21L, "v2.yaml", null, 10L, null, null));
+
+        assertThat(analysis.getBreakingChangesDetected()).isTrue();
+        assertThat(analysis.getSummary())
+                .containsEntry("previousVersionExists", true)
+                .containsEntry("previousContractId", 10L)
+                .containsEntry("removedPaths", List.of("/orders/{id}"))
+                .containsEntry("removedMethods", List.of("POST /orders"))
+                .containsEntry("changedOperations", 1);
+    }
+
+    @Test
+    void processDoesNotFlagAddedPathsAsBreaking() throws Exception {
+        ContractAnalysis analysis = ContractAnalysis.pending(11L, AnalysisLane.SMALL, OffsetDateTime.now());
+        setId(analysis, 21L);
+
+        when(analysisRepository.findById(21L)).thenReturn(Optional.of(analysis));
+        when(analysisRepository.existsByContractIdAndStatus(10L, AnalysisStatus.COMPLETED)).thenReturn(true);
+        when(analysisRepository.findComparisonBaselines(List.of(10L))).thenReturn(List.of(baseline(10L, 10L)));
+        when(operationRepository.findByContractId(10L)).thenReturn(List.of(new ParsedOperation("/orders", "GET", "a")));
+        when(fileStorageService.read("v2.yaml")).thenReturn(new ByteArrayInputStream("ignored".getBytes()));
+        when(contractParser.parse(any())).thenReturn(new ParsedContract(true, 2, 2, List.of(), List.of(
+                new ParsedOperation("/orders", "GET", "a"),
+                new ParsedOperation("/customers", "GET", "d"))));
+
+        service.process(new AnalysisJob(11L, 21L, "v2.yaml", null, 10L, null, null));
+
+        assertThat(analysis.getBreakingChangesDetected()).isFalse();
+        assertThat(analysis.getSummary())
+                .containsEntry("removedPaths", List.of())
+                .containsEntry("removedMethods", List.of());
+    }
+
+    @Test
+    void processDoesNotCompareAnInvalidSpec() throws Exception {
+        ContractAnalysis analysis = ContractAnalysis.pending(11L, AnalysisLane.SMALL, OffsetDateTime.now());
+        setId(analysis, 21L);
+
+        when(analysisRepository.findById(21L)).thenReturn(Optional.of(analysis));
+        when(analysisRepository.existsByContractIdAndStatus(10L, AnalysisStatus.COMPLETED)).thenReturn(true);
+        when(fileStorageService.read("v2.yaml")).thenReturn(new ByteArrayInputStream("ignored".getBytes()));
+        when(contractParser.parse(any())).thenReturn(new ParsedContract(false, 0, 0, List.of("Parse error")));
+
+        service.process(new AnalysisJob(11L, 21L, "v2.yaml", null, 10L, null, null));
+
+        assertThat(analysis.getValidSpec()).isFalse();
+        assertThat(analysis.getBreakingChangesDetected()).isFalse();
+        assertThat(analysis.getSummary())
+                .containsEntry("previousContractId", 10L)
+                .containsEntry("compared", false)
+                .containsEntry("notComparedReason", "Spec is invalid")
+                .containsEntry("removedPaths", List.of());
+        verify(operationRepository, never()).findByContractId(10L);
+    }
+
+    @Test
+    void processComparesAgainstTheLastValidVersionWhenThePreviousOneIsInvalid() throws Exception {
+        ContractAnalysis analysis = ContractAnalysis.pending(11L, AnalysisLane.SMALL, OffsetDateTime.now());
+        setId(analysis, 21L);
+
+        when(analysisRepository.findById(21L)).thenReturn(Optional.of(analysis));
+        when(analysisRepository.existsByContractIdAndStatus(10L, AnalysisStatus.COMPLETED)).thenReturn(true);
+        // Contract 10 did not parse; 9 is the latest valid version before it.
+        when(analysisRepository.findComparisonBaselines(List.of(10L))).thenReturn(List.of(baseline(10L, 9L)));
+        when(operationRepository.findByContractId(9L)).thenReturn(List.of(
+                new ParsedOperation("/orders", "GET", "a"),
+                new ParsedOperation("/orders", "DELETE", "b")));
+        when(fileStorageService.read("v3.yaml")).thenReturn(new ByteArrayInputStream("ignored".getBytes()));
+        when(contractParser.parse(any())).thenReturn(new ParsedContract(true, 1, 1, List.of(), List.of(
+                new ParsedOperation("/orders", "GET", "a"))));
+
+        service.process(new AnalysisJob(11L, 21L, "v3.yaml", null, 10L, null, null));
+
+        assertThat(analysis.getBreakingChangesDetected()).isTrue();
+        assertThat(analysis.getSummary())
+                .containsEntry("previousContractId", 9L)
+                .containsEntry("compared", true)
+                .containsEntry("removedMethods", List.of("DELETE /orders"));
+        verify(operationRepository, never()).findByContractId(10L);
     }
 
     @Test
     void processThrowsWhenFileCannotBeRead() throws Exception {
-        ContractAnalysis analysis = ContractAnalysis.pending(1L, OffsetDateTime.now());
+        ContractAnalysis analysis = ContractAnalysis.pending(1L, AnalysisLane.SMALL, OffsetDateTime.now());
         setId(analysis, 2L);
 
         when(analysisRepository.findById(2L)).thenReturn(Optional.of(analysis));
         when(fileStorageService.read(any())).thenThrow(new IOException("disk error"));
 
-        assertThatThrownBy(() -> service.process(new AnalysisJob(1L, 2L, "path")))
+        AnalysisJob job = new AnalysisJob(1L, 2L, "path", null, null, null, null);
+        assertThatThrownBy(() -> service.process(job))
                 .isInstanceOf(ContractProcessingException.class);
+        verify(claimService).release(List.of(job));
+    }
+
+    @Test
+    void processDropsJobThatCannotBeClaimedBeforeReadingTheSpec() throws Exception {
+        AnalysisJob job = new AnalysisJob(1L, 2L, "path", null, null, null, null);
+        when(claimService.claim(job)).thenReturn(false);
+
+        service.process(job);
+
+        verify(fileStorageService, never()).read(any());
+        verify(analysisRepository, never()).save(any());
+        verify(serviceStateRepository, never()).upsert(any());
+    }
+
+    @Test
+    void processDropsTheResultOfAnAnalysisThisNodeNoLongerHolds() throws Exception {
+        ContractAnalysis analysis = ContractAnalysis.pending(1L, AnalysisLane.SMALL, OffsetDateTime.now());
+        setId(analysis, 2L);
+        when(analysisRepository.findById(2L)).thenReturn(Optional.of(analysis));
+        when(fileStorageService.read("path")).thenReturn(new ByteArrayInputStream("ignored".getBytes()));
+        when(contractParser.parse(any())).thenReturn(new ParsedContract(true, 1, 1, List.of()));
+        AnalysisJob job = new AnalysisJob(1L, 2L, "path", null, null, null, null);
+        when(claimService.finish(eq(job), eq(AnalysisStatus.COMPLETED), any())).thenReturn(false);
+
+        service.process(job);
+
+        assertThat(analysis.getStatus()).isEqualTo(AnalysisStatus.PENDING);
+        verify(operationRepository, never()).replaceAll(any(), any());
+        verify(analysisRepository, never()).save(any());
+        verify(serviceStateRepository, never()).upsert(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void markFailedLeavesAnAnalysisAnotherWorkerHolds() {
+        AnalysisJob job = new AnalysisJob(1L, 2L, "path", null, null, null, null);
+        when(claimService.claim(job)).thenReturn(false);
+        when(claimService.finish(eq(job), eq(AnalysisStatus.FAILED), any())).thenReturn(false);
+
+        service.markFailed(job, "retries exhausted");
+
+        verify(analysisRepository, never()).save(any());
+        verify(serviceStateRepository, never()).upsert(any());
     }
 
     @Test
     void markFailedTransitionsAnalysisToFailed() {
-        ContractAnalysis analysis = ContractAnalysis.pending(1L, OffsetDateTime.now());
+        ContractAnalysis analysis = ContractAnalysis.pending(1L, AnalysisLane.SMALL, OffsetDateTime.now());
         setId(analysis, 2L);
         when(analysisRepository.findById(2L)).thenReturn(Optional.of(analysis));
 
@@ -99,10 +284,25 @@ class ContractAnalysisServiceTest {
             return inv.getArgument(0);
         }).when(analysisRepository).save(any());
 
-        service.markFailed(new AnalysisJob(1L, 2L, "path"), "retries exhausted");
+        service.markFailed(new AnalysisJob(1L, 2L, "path", null, null, null, null), "retries exhausted");
 
         assertThat(saved).containsExactly(AnalysisStatus.FAILED);
         assertThat(analysis.getFailureReason()).isEqualTo("retries exhausted");
+        verify(serviceStateRepository).upsert(analysis);
+    }
+
+    private static ContractAnalysisRepository.ComparisonBaseline baseline(Long contractId, Long baselineContractId) {
+        return new ContractAnalysisRepository.ComparisonBaseline() {
+            @Override
+            public Long getContractId() {
+                return contractId;
+            }
+
+            @Override
+            public Long getBaselineContractId() {
+                return baselineContractId;
+            }
+        };
     }
 
     private static void setId(Object entity, Long id) {
@@ -0,0 +1,60 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.contract.domain.ContractListCursor;
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContractListCursorTest {
+
+    @Test
+    void roundTripsTimestampAndId() {
+        ContractListCursor cursor = new ContractListCursor(
+                OffsetDateTime.of(2026, 3, 1, 10, 15, 30, 123_456_000, ZoneOffset.UTC), 42L);
+
+        assertThat(ContractListCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void decodesToUtcWhateverTheOffsetOfTheEncodedTimestamp() {
+        ContractListCursor cursor = new ContractListCursor(
+                OffsetDateTime.of(2026, 3, 1, 12, 0, 0, 0, ZoneOffset.ofHours(2)), 7L);
+
+        ContractListCursor decoded = ContractListCursor.decode(cursor.encode());
+
+        assertThat(decoded.uploadedAt()).isEqualTo(OffsetDateTime.of(2026, 3, 1, 10, 0, 0, 0, ZoneOffset.UTC));
+        assertThat(decoded.id()).isEqualTo(7L);
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = new ContractListCursor(OffsetDateTime.now(ZoneOffset.UTC), Long.MAX_VALUE).encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not base64!", "bm8tc2VwYXJhdG9y", "MjAyNi0wMy0wMVQxMDowMDowMFosYWJj", "eCwx"})
+    void rejectsMalformedTokens(String token) {
+        assertThatThrownBy(() -> ContractListCursor.decode(token))
+                .isInstanceOfSatisfying(BadRequestException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("INVALID_CURSOR"));
+    }
+
+    @Test
+    void rejectsTokenWithoutId() {
+        String token = Base64.getUrlEncoder().encodeToString("2026-03-01T10:00:00Z,".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> ContractListCursor.decode(token))
+                .isInstanceOf(BadRequestException.class);
+    }
+}
@@ -0,0 +1,178 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractBundleRepository;
+import com.chrisvdalen.contracthawk.contract.application.BulkManifestEntry;
+import com.chrisvdalen.contracthawk.contract.application.ContractUploadService;
+import com.chrisvdalen.contracthawk.contract.config.ArchiveProperties;
+import com.chrisvdalen.contracthawk.contract.repository.BlobReferenceRepository;
+import com.chrisvdalen.contracthawk.contract.repository.ContractRepository;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobOutbox;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.shared.exception.BadRequestException;
+import com.chrisvdalen.contracthawk.shared.exception.ConflictException;
+import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
+import com.chrisvdalen.contracthawk.storage.domain.StoredFile;
+import com.chrisvdalen.contracthawk.storage.infrastructure.StorageProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContractUploadServiceTest {
+
+    private FileStorageService storage;
+    private ContractRepository contractRepository;
+    private BlobReferenceRepository blobReferences;
+    private ContractUploadService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = mock(FileStorageService.class);
+        contractRepository = mock(ContractRepository.class);
+        blobReferences = mock(BlobReferenceRepository.class);
+        when(storage.store(any())).thenAnswer(invocation -> {
+            long size = invocation.getArgument(0, InputStream.class).transferTo(OutputStream.nullOutputStream());
+            return new StoredFile("blobs/aa/a", size, size, "a", true);
+        });
+        MessagingProperties messaging = mock(MessagingProperties.class);
+        when(messaging.lanes()).thenReturn(new MessagingProperties.Lanes(1024, null, null));
+        service = new ContractUploadService(contractRepository, mock(ContractAnalysisRepository.class),
+                mock(ContractBundleRepository.class), blobReferences, storage, mock(AnalysisJobOutbox.class),
+                mock(ContractAnalysisService.class), mock(PlatformTransactionManager.class),
+                new StorageProperties("unused", List.of("json", "yaml", "yml"), null),
+                new ArchiveProperties(DataSize.ofMegabytes(25), DataSize.ofMegabytes(256), 100),
+                new AnalysisProperties(null, null, null, null, null, DataSize.ofKilobytes(64)),
+                messaging, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void rejectsAnArchiveThatExpandsFarBeyondItsSize() throws IOException {
+        // 20 MB of zeros deflates to about 20 KB, a ratio of roughly 1000.
+        MockMultipartFile archive = zip("bomb.yaml", new byte[20 * 1024 * 1024]);
+
+        assertThatThrownBy(() -> service.uploadBulk(
+                List.of(new BulkManifestEntry("bomb.yaml", "orders", "1.0.0")), archive, null))
+                .isInstanceOfSatisfying(BadRequestException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("ARCHIVE_TOO_LARGE"))
+                .hasMessageContaining("100 times");
+        verify(storage, never()).delete(any());
+    }
+
+    @Test
+    void countsEntriesOutsideTheManifestAgainstTheLimits() throws IOException {
+        MockMultipartFile archive = zip("ignored.bin", new byte[20 * 1024 * 1024]);
+
+        assertThatThrownBy(() -> service.uploadBundle("orders", "1.0.0", "openapi.yaml", archive, null))
+                .isInstanceOf(BadRequestException.class)
+                .extracting(e -> ((BadRequestException) e).getCode())
+                .isEqualTo("ARCHIVE_TOO_LARGE");
+        verify(storage, never()).store(any());
+    }
+
+    @Test
+    void rejectsABundleWhoseFilesExceedTheBundleSize() throws IOException {
+        MockMultipartFile archive = zip(Map.of(
+                "openapi.yaml", new byte[40 * 1024],
+                "common/errors.yaml", new byte[40 * 1024]));
+
+        assertThatThrownBy(() -> service.uploadBundle("orders", "1.0.0", "openapi.yaml", archive, null))
+                .isInstanceOfSatisfying(BadRequestException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("BUNDLE_TOO_LARGE"));
+    }
+
+    @Test
+    void rejectsAnUploadWhoseExistingBlobWasRemovedMeanwhile() throws IOException {
+        doReturn(new StoredFile("blobs/aa/a", 10, 10, "a", false)).when(storage).store(any());
+        when(storage.exists("blobs/aa/a")).thenReturn(false);
+
+        assertThatThrownBy(() -> service.upload("orders", "1.0.0",
+                new MockMultipartFile("file", "openapi.yaml", "application/yaml", "openapi: 3.0.3".getBytes()), null))
+                .isInstanceOfSatisfying(ConflictException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("CONTENT_REMOVED"));
+        InOrder inOrder = inOrder(blobReferences, storage);
+        inOrder.verify(blobReferences).lock(List.of("blobs/aa/a"));
+        inOrder.verify(storage).exists("blobs/aa/a");
+        verify(contractRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsAnUploadWhoseNewBlobWasDiscardedByAConcurrentUpload() throws IOException {
+        when(storage.exists("blobs/aa/a")).thenReturn(false);
+
+        assertThatThrownBy(() -> service.upload("orders", "1.0.0",
+                new MockMultipartFile("file", "openapi.yaml", "application/yaml", "openapi: 3.0.3".getBytes()), null))
+                .isInstanceOfSatisfying(ConflictException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("CONTENT_REMOVED"));
+        verify(contractRepository, never()).save(any());
+    }
+
+    @Test
+    void failedUploadRemovesTheBlobItCreatedUnderItsLock() throws IOException {
+        MockMultipartFile archive = zip("a.yaml", "openapi: 3.0.3".getBytes());
+
+        assertThatThrownBy(() -> service.uploadBulk(List.of(
+                new BulkManifestEntry("a.yaml", "orders", "1.0.0"),
+                new BulkManifestEntry("missing.yaml", "billing", "1.0.0")), archive, null))
+                .isInstanceOfSatisfying(BadRequestException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("MISSING_ARCHIVE_ENTRY"));
+        InOrder inOrder = inOrder(blobReferences, storage);
+        inOrder.verify(blobReferences).lock(List.of("blobs/aa/a"));
+        inOrder.verify(blobReferences).findReferenced(List.of("blobs/aa/a"));
+        inOrder.verify(storage).delete("blobs/aa/a");
+    }
+
+    @Test
+    void failedUploadKeepsABlobAnIdenticalUploadReferences() throws IOException {
+        when(blobReferences.findReferenced(List.of("blobs/aa/a"))).thenReturn(Set.of("blobs/aa/a"));
+        MockMultipartFile archive = zip("a.yaml", "openapi: 3.0.3".getBytes());
+
+        assertThatThrownBy(() -> service.uploadBulk(List.of(
+                new BulkManifestEntry("a.yaml", "orders", "1.0.0"),
+                new BulkManifestEntry("missing.yaml", "billing", "1.0.0")), archive, null))
+                .isInstanceOf(BadRequestException.class);
+        verify(blobReferences).lock(List.of("blobs/aa/a"));
+        verify(storage, never()).delete(any());
+    }
+
+    private static MockMultipartFile zip(String name, byte[] content) throws IOException {
+        return zip(Map.of(name, content));
+    }
+
+    private static MockMultipartFile zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return new MockMultipartFile("archive", "specs.zip", "application/zip", bytes.toByteArray());
+    }
+}
@@ -0,0 +1,81 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.infrastructure.DelayedRetryRecoverer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DelayedRetryRecovererTest {
+
+    private RabbitTemplate rabbitTemplate;
+    private RabbitOperations operations;
+    private DelayedRetryRecoverer recoverer;
+
+    @BeforeEach
+    void setUp() {
+        rabbitTemplate = mock(RabbitTemplate.class);
+        operations = mock(RabbitOperations.class);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+        MessagingProperties.Lanes lanes = new MessagingProperties.Lanes(1024,
+                new MessagingProperties.Lane("analysis.small", "small", 1, 1),
+                new MessagingProperties.Lane("analysis.large", "large", 1, 1));
+        MessagingProperties properties = new MessagingProperties(null, null, null, null, "retry", null,
+                new MessagingProperties.Retry(2, 1000, 2.0, 10_000), null,
+                new MessagingProperties.Outbox(10, 1000, 5000), null, null, lanes);
+        recoverer = new DelayedRetryRecoverer(rabbitTemplate, properties);
+    }
+
+    @Test
+    void waitsForTheConfirmOfTheRepublish() {
+        Message message = message("analysis.large", null);
+
+        recoverer.recover(message, new IllegalStateException("boom"));
+
+        var order = inOrder(operations);
+        order.verify(operations).send("retry", "analysis.large.retry.1000ms", message);
+        order.verify(operations).waitForConfirmsOrDie(5000);
+    }
+
+    @Test
+    void requeuesTheDeliveryWhenTheRepublishIsNotConfirmed() {
+        doThrow(new AmqpException("nack")).when(operations).waitForConfirmsOrDie(5000);
+
+        assertThatThrownBy(() -> recoverer.recover(message("analysis.small", 1), new IllegalStateException("boom")))
+                .isInstanceOf(ImmediateRequeueAmqpException.class);
+        verify(operations).send(eq("retry"), eq("analysis.small.retry.2000ms"), any(Message.class));
+    }
+
+    @Test
+    void rejectsTheDeliveryOnceRetriesAreUsedUp() {
+        assertThatThrownBy(() -> recoverer.recover(message("analysis.small", 2), new IllegalStateException("boom")))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class);
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    private static Message message(String queue, Integer retriesDone) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(queue);
+        if (retriesDone != null) {
+            properties.setHeader(DelayedRetryRecoverer.RETRY_HEADER, retriesDone);
+        }
+        return new Message(new byte[0], properties);
+    }
+}
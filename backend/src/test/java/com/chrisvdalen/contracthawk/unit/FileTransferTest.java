@@ -0,0 +1,99 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.shared.web.FileTransfer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileTransferTest {
+
+    private static final String ETAG = "\"abc\"";
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.writeString(dir.resolve("spec.yaml"), "openapi: 3.0.3\n", StandardCharsets.UTF_8);
+        request = new MockHttpServletRequest("GET", "/api/contracts/1/content");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void sendsTheWholeFileWithoutARange() throws Exception {
+        FileTransfer.send(request, response, file, Files.size(file), ETAG);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(response.getContentAsString()).isEqualTo("openapi: 3.0.3\n");
+    }
+
+    @Test
+    void sendsASingleRangeAsPartialContent() throws Exception {
+        request.addHeader("Range", "bytes=9-13");
+
+        FileTransfer.send(request, response, file, Files.size(file), ETAG);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 9-13/15");
+        assertThat(response.getContentLengthLong()).isEqualTo(5);
+        assertThat(response.getContentAsString()).isEqualTo("3.0.3");
+    }
+
+    @Test
+    void rangeBeyondTheEndIsNotSatisfiable() throws Exception {
+        request.addHeader("Range", "bytes=100-");
+
+        FileTransfer.send(request, response, file, Files.size(file), ETAG);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */15");
+    }
+
+    @Test
+    void rangeIsIgnoredWhenIfRangeDoesNotMatch() throws Exception {
+        request.addHeader("Range", "bytes=0-6");
+        request.addHeader("If-Range", "\"other\"");
+
+        FileTransfer.send(request, response, file, Files.size(file), ETAG);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("openapi: 3.0.3\n");
+    }
+
+    @Test
+    void largeFilesAreHandedToTheContainerWhenItSupportsSendfile() throws Exception {
+        Path large = Files.write(dir.resolve("large.yaml"), new byte[64 * 1024]);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=1024-");
+
+        FileTransfer.send(request, response, large, Files.size(large), ETAG);
+
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(large.toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(1024L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(64L * 1024);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void gzipIsAcceptedUnlessItsQualityIsZero() {
+        request.addHeader("Accept-Encoding", "br, gzip;q=0.8");
+        assertThat(FileTransfer.acceptsGzip(request)).isTrue();
+
+        MockHttpServletRequest refusing = new MockHttpServletRequest();
+        refusing.addHeader("Accept-Encoding", "gzip;q=0, identity");
+        assertThat(FileTransfer.acceptsGzip(refusing)).isFalse();
+    }
+}
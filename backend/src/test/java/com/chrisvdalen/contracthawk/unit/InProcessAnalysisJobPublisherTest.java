@@ -0,0 +1,127 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisClaimService;
+import com.chrisvdalen.contracthawk.analysis.application.ContractAnalysisService;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.InProcessAnalysisJobPublisher;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.config.MessagingProperties;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InProcessAnalysisJobPublisherTest {
+
+    private final AnalysisJob job = new AnalysisJob(1L, 11L, "a.yaml", null, null, null, null);
+
+    private ContractAnalysisService analysisService;
+    private InProcessAnalysisJobPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        analysisService = mock(ContractAnalysisService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    void refusesToStartNextToARabbitConnectionFactory() {
+        ObjectProvider<ConnectionFactory> connectionFactory = provider(mock(ConnectionFactory.class));
+
+        assertThatThrownBy(() -> new InProcessAnalysisJobPublisher(analysisService, mock(AnalysisClaimService.class),
+                properties(new MessagingProperties.InProcess(10, 100), 1), connectionFactory))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("in-process profile");
+    }
+
+    @Test
+    void failingJobIsRetriedWithBackoffAndThenMarkedFailed() {
+        publisher = publisher(new MessagingProperties.InProcess(10, 100), 2);
+        publisher.start();
+        doThrow(new IllegalStateException("parse error")).when(analysisService).process(job);
+
+        publisher.publish(job);
+
+        verify(analysisService, timeout(2_000)).markFailed(any(), anyString());
+        verify(analysisService, times(3)).process(job);
+    }
+
+    @Test
+    void fullQueueRejectsTheJobSoItStaysInTheOutbox() {
+        publisher = publisher(new MessagingProperties.InProcess(1, 50), 1);
+
+        publisher.publish(job);
+
+        assertThatThrownBy(() -> publisher.publish(job)).isInstanceOf(RejectedExecutionException.class);
+        verify(analysisService, never()).process(any());
+    }
+
+    @Test
+    void smallJobsAreNotHeldUpByALargeOne() throws InterruptedException {
+        publisher = publisher(new MessagingProperties.InProcess(10, 100), 1);
+        publisher.start();
+        AnalysisJob large = new AnalysisJob(2L, 12L, "monolith.yaml", null, null, Instant.now(), AnalysisLane.LARGE);
+        AnalysisJob small = new AnalysisJob(3L, 13L, "b.yaml", null, null, Instant.now(), AnalysisLane.SMALL);
+        CountDownLatch largeRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            largeRunning.countDown();
+            release.await();
+            return null;
+        }).when(analysisService).process(large);
+
+        try {
+            publisher.publish(large);
+            largeRunning.await();
+            publisher.publish(small);
+
+            verify(analysisService, timeout(2_000)).process(small);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private InProcessAnalysisJobPublisher publisher(MessagingProperties.InProcess inProcess, int concurrencyPerLane) {
+        return new InProcessAnalysisJobPublisher(analysisService, mock(AnalysisClaimService.class),
+                properties(inProcess, concurrencyPerLane), provider(null));
+    }
+
+    private static MessagingProperties properties(MessagingProperties.InProcess inProcess, int concurrencyPerLane) {
+        MessagingProperties.Lanes lanes = new MessagingProperties.Lanes(1024,
+                new MessagingProperties.Lane(null, null, concurrencyPerLane, 1),
+                new MessagingProperties.Lane(null, null, concurrencyPerLane, 1));
+        return new MessagingProperties(null, null, null, null, null, null,
+                new MessagingProperties.Retry(2, 10, 2.0, 50), null, null, MessagingProperties.Transport.IN_PROCESS,
+                inProcess, lanes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<ConnectionFactory> provider(ConnectionFactory connectionFactory) {
+        ObjectProvider<ConnectionFactory> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(connectionFactory);
+        return provider;
+    }
+}
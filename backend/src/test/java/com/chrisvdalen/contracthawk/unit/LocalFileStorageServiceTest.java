@@ -0,0 +1,137 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.storage.domain.BlobFile;
+import com.chrisvdalen.contracthawk.storage.domain.StoredFile;
+import com.chrisvdalen.contracthawk.storage.infrastructure.LocalFileStorageService;
+import com.chrisvdalen.contracthawk.storage.infrastructure.StorageProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalFileStorageServiceTest {
+
+    private static final byte[] SPEC = "openapi: 3.0.3\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path baseDir;
+
+    private LocalFileStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalFileStorageService(new StorageProperties(baseDir.toString(), List.of("yaml"), null),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void storeAddressesContentBySha256() throws Exception {
+        StoredFile stored = storage.store(new ByteArrayInputStream(SPEC));
+
+        assertThat(stored.sha256()).isEqualTo("faa4988e76ddd0d66e9c95e3d7da6faecc44be96bf988ac35b22dd39213ff509");
+        assertThat(stored.sizeBytes()).isEqualTo(SPEC.length);
+        assertThat(stored.storagePath()).endsWith(stored.sha256());
+        try (InputStream in = storage.read(stored.storagePath())) {
+            assertThat(in.readAllBytes()).isEqualTo(SPEC);
+        }
+    }
+
+    @Test
+    void storingIdenticalContentTwiceKeepsOneBlob() throws Exception {
+        StoredFile first = storage.store(new ByteArrayInputStream(SPEC));
+        StoredFile second = storage.store(new ByteArrayInputStream(SPEC));
+
+        assertThat(second.storagePath()).isEqualTo(first.storagePath());
+        assertThat(second.sha256()).isEqualTo(first.sha256());
+        assertThat(first.created()).isTrue();
+        assertThat(second.created()).isFalse();
+        assertThat(regularFiles()).hasSize(1);
+    }
+
+    @Test
+    void gzipCopyIsWrittenOnceAndDeletedWithTheBlob() throws Exception {
+        byte[] spec = "openapi: 3.0.3\npaths: {}\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+        StoredFile stored = storage.store(new ByteArrayInputStream(spec));
+
+        BlobFile compressed = storage.file(stored.storagePath(), true);
+        BlobFile again = storage.file(stored.storagePath(), true);
+
+        assertThat(compressed.gzip()).isTrue();
+        assertThat(compressed.sizeBytes()).isLessThan(spec.length);
+        assertThat(again.path()).isEqualTo(compressed.path());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed.path()))) {
+            assertThat(in.readAllBytes()).isEqualTo(spec);
+        }
+        assertThat(storage.file(stored.storagePath(), false).sizeBytes()).isEqualTo(spec.length);
+
+        long freed = storage.delete(stored.storagePath());
+
+        assertThat(freed).isEqualTo(spec.length + compressed.sizeBytes());
+        assertThat(regularFiles()).isEmpty();
+        assertThat(storage.delete(stored.storagePath())).isZero();
+    }
+
+    @Test
+    void contentThatDoesNotShrinkIsServedUncompressed() throws Exception {
+        StoredFile stored = storage.store(new ByteArrayInputStream(SPEC));
+
+        BlobFile file = storage.file(stored.storagePath(), true);
+
+        assertThat(file.gzip()).isFalse();
+        assertThat(file.sizeBytes()).isEqualTo(SPEC.length);
+    }
+
+    @Test
+    void gzipCodecCompressesAtRestAndReadsBackTransparently() throws Exception {
+        LocalFileStorageService compressing = storage(StorageProperties.Codec.GZIP);
+        byte[] spec = "openapi: 3.0.3\npaths: {}\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        StoredFile stored = compressing.store(new ByteArrayInputStream(spec));
+
+        assertThat(stored.sizeBytes()).isEqualTo(spec.length);
+        assertThat(stored.storedSizeBytes()).isLessThan(spec.length);
+        assertThat(Files.size(baseDir.resolve(stored.storagePath()))).isEqualTo(stored.storedSizeBytes());
+        try (InputStream in = compressing.read(stored.storagePath())) {
+            assertThat(in.readAllBytes()).isEqualTo(spec);
+        }
+        assertThat(compressing.file(stored.storagePath(), false).gzip()).isTrue();
+    }
+
+    @Test
+    void blobsStoredUncompressedStayReadableAndSharedAfterEnablingCompression() throws Exception {
+        StoredFile plain = storage.store(new ByteArrayInputStream(SPEC));
+        LocalFileStorageService compressing = storage(StorageProperties.Codec.GZIP);
+
+        StoredFile again = compressing.store(new ByteArrayInputStream(SPEC));
+
+        assertThat(again.created()).isFalse();
+        assertThat(again.storagePath()).isEqualTo(plain.storagePath());
+        try (InputStream in = compressing.read(plain.storagePath())) {
+            assertThat(in.readAllBytes()).isEqualTo(SPEC);
+        }
+        assertThat(regularFiles()).hasSize(1);
+    }
+
+    private LocalFileStorageService storage(StorageProperties.Codec codec) {
+        return new LocalFileStorageService(new StorageProperties(baseDir.toString(), List.of("yaml"),
+                new StorageProperties.Compression(codec, 6)), new SimpleMeterRegistry());
+    }
+
+    private List<Path> regularFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(baseDir)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatus;
+import com.chrisvdalen.contracthawk.analysis.domain.AnalysisStatusCount;
+import com.chrisvdalen.contracthawk.analysis.domain.ContractAnalysis;
+import com.chrisvdalen.contracthawk.analysis.repository.ContractAnalysisRepository;
+import com.chrisvdalen.contracthawk.contract.application.ReanalysisRunResponse;
+import com.chrisvdalen.contracthawk.contract.application.ReanalysisService;
+import com.chrisvdalen.contracthawk.contract.config.ReanalysisProperties;
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisRun;
+import com.chrisvdalen.contracthawk.contract.domain.ReanalysisStatus;
+import com.chrisvdalen.contracthawk.contract.repository.ReanalysisRunRepository;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJob;
+import com.chrisvdalen.contracthawk.messaging.application.AnalysisJobOutbox;
+import com.chrisvdalen.contracthawk.messaging.domain.AnalysisLane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.lang.reflect.Field;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReanalysisServiceTest {
+
+    private ReanalysisRunRepository runRepository;
+    private ContractAnalysisRepository analysisRepository;
+    private AnalysisJobOutbox outbox;
+    private ReanalysisService service;
+
+    @BeforeEach
+    void setUp() {
+        runRepository = mock(ReanalysisRunRepository.class);
+        analysisRepository = mock(ContractAnalysisRepository.class);
+        outbox = mock(AnalysisJobOutbox.class);
+        service = new ReanalysisService(runRepository, analysisRepository, outbox,
+                new ReanalysisProperties(10, 1000, 25, AnalysisLane.LARGE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void queuesNextBatchOnTheConfiguredLaneAndAdvancesTheCursor() {
+        ReanalysisRun run = run(ReanalysisStatus.RUNNING, 40);
+        when(runRepository.lockRunning(7L)).thenReturn(Optional.of(run));
+        when(analysisRepository.countByReanalysisRunId(7L))
+                .thenReturn(List.of(new AnalysisStatusCount(AnalysisStatus.PENDING, 20L)));
+        when(runRepository.nextCandidates(run, 5)).thenReturn(List.of(
+                new ReanalysisRunRepository.Candidate(41, "a.yaml", "sha-a", null),
+                new ReanalysisRunRepository.Candidate(44, "b.yaml", "sha-b", 41L)));
+        when(analysisRepository.saveAllAndFlush(any())).thenAnswer(inv -> {
+            List<ContractAnalysis> analyses = inv.getArgument(0);
+            long id = 100;
+            for (ContractAnalysis analysis : analyses) {
+                setId(analysis, id++);
+            }
+            return analyses;
+        });
+
+        int queued = service.queueNextBatch(7L);
+
+        assertThat(queued).isEqualTo(2);
+        ArgumentCaptor<List<AnalysisJob>> jobs = ArgumentCaptor.forClass(List.class);
+        verify(outbox).enqueueAll(jobs.capture());
+        assertThat(jobs.getValue())
+                .extracting(AnalysisJob::contractId, AnalysisJob::analysisId, AnalysisJob::previousContractId,
+                        AnalysisJob::lane)
+                .containsExactly(
+                        tuple(41L, 100L, null, AnalysisLane.LARGE),
+                        tuple(44L, 101L, 41L, AnalysisLane.LARGE));
+        verify(runRepository).advance(eq(7L), eq(44L), eq(2), any());
+    }
+
+    @Test
+    void queuesNothingWhileTheRunHasMaxInFlightUnfinishedAnalyses() {
+        ReanalysisRun run = run(ReanalysisStatus.RUNNING, 40);
+        when(runRepository.lockRunning(7L)).thenReturn(Optional.of(run));
+        when(analysisRepository.countByReanalysisRunId(7L)).thenReturn(List.of(
+                new AnalysisStatusCount(AnalysisStatus.PENDING, 20L),
+                new AnalysisStatusCount(AnalysisStatus.PROCESSING, 5L)));
+
+        assertThat(service.queueNextBatch(7L)).isZero();
+
+        verify(runRepository, never()).nextCandidates(any(), anyInt());
+        verify(outbox, never()).enqueueAll(any());
+    }
+
+    @Test
+    void finishesTheRunWhenNoContractsAreLeft() {
+        ReanalysisRun run = run(ReanalysisStatus.RUNNING, 40);
+        when(runRepository.lockRunning(7L)).thenReturn(Optional.of(run));
+        when(runRepository.nextCandidates(run, 10)).thenReturn(List.of());
+
+        assertThat(service.queueNextBatch(7L)).isZero();
+
+        verify(runRepository).finish(eq(7L), any());
+        verify(outbox, never()).enqueueAll(any());
+    }
+
+    @Test
+    void estimatesCompletionFromTheRateAnalysesFinishAt() {
+        OffsetDateTime now = OffsetDateTime.now();
+        ReanalysisRun run = new ReanalysisRun(7L, ReanalysisStatus.RUNNING, null, 100, 40, 100, 40, 0, null,
+                now.minusMinutes(10), now, null);
+
+        ReanalysisRunResponse progress = ReanalysisRunResponse.from(run,
+                Map.of(AnalysisStatus.COMPLETED, 20L, AnalysisStatus.FAILED, 5L, AnalysisStatus.PENDING, 15L), now);
+
+        assertThat(progress.completed()).isEqualTo(20);
+        assertThat(progress.failed()).isEqualTo(5);
+        assertThat(progress.inProgress()).isEqualTo(15);
+        // 25 of 100 finished in 10 minutes, so the other 75 take another 30.
+        assertThat(progress.estimatedCompletionAt()).isEqualTo(now.plusMinutes(30));
+    }
+
+    private static ReanalysisRun run(ReanalysisStatus status, long cursor) {
+        OffsetDateTime now = OffsetDateTime.now();
+        return new ReanalysisRun(7L, status, null, 1000, cursor, 100, 40, 0, null, now, now, null);
+    }
+
+    private static void setId(Object entity, Long id) throws Exception {
+        Field field = entity.getClass().getDeclaredField("id");
+        field.setAccessible(true);
+        field.set(entity, id);
+    }
+}
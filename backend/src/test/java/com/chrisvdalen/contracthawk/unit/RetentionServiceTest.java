@@ -0,0 +1,97 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.contract.application.RetentionService;
+import com.chrisvdalen.contracthawk.contract.config.RetentionProperties;
+import com.chrisvdalen.contracthawk.contract.domain.RetentionPolicy;
+import com.chrisvdalen.contracthawk.contract.repository.BlobReferenceRepository;
+import com.chrisvdalen.contracthawk.contract.repository.ContractRetentionRepository;
+import com.chrisvdalen.contracthawk.storage.application.FileStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RetentionServiceTest {
+
+    private ContractRetentionRepository repository;
+    private BlobReferenceRepository blobReferences;
+    private FileStorageService storage;
+    private SimpleMeterRegistry meterRegistry;
+    private RetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ContractRetentionRepository.class);
+        blobReferences = mock(BlobReferenceRepository.class);
+        storage = mock(FileStorageService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new RetentionService(repository, blobReferences, storage, mock(PlatformTransactionManager.class),
+                new RetentionProperties(3, 30, 10, 1000, 60000), meterRegistry);
+    }
+
+    @Test
+    void removesExpiredUploadsAndOnlyTheBlobsNoUploadStillReferences() throws Exception {
+        when(repository.lockExpired(eq(new RetentionPolicy(3, 30)), any(), eq(10))).thenReturn(List.of(
+                new ContractRetentionRepository.Expired(1, "blobs/aa/a"),
+                new ContractRetentionRepository.Expired(2, "blobs/bb/b")));
+        when(repository.deleteAll(List.of(1L, 2L)))
+                .thenReturn(new ContractRetentionRepository.Deleted(2, 3, 40, 55));
+        when(blobReferences.findReferenced(Set.of("blobs/aa/a", "blobs/bb/b")))
+                .thenReturn(Set.of("blobs/bb/b"));
+        when(storage.delete("blobs/aa/a")).thenReturn(1234L);
+
+        int removed = service.purgeNextBatch();
+
+        assertThat(removed).isEqualTo(2);
+        // The blob is checked and removed under its lock, so an identical upload cannot refer to it meanwhile.
+        InOrder inOrder = inOrder(repository, blobReferences, storage);
+        inOrder.verify(repository).deleteAll(List.of(1L, 2L));
+        inOrder.verify(blobReferences).lock(Set.of("blobs/aa/a", "blobs/bb/b"));
+        inOrder.verify(blobReferences).findReferenced(Set.of("blobs/aa/a", "blobs/bb/b"));
+        inOrder.verify(storage).delete("blobs/aa/a");
+        verify(storage, never()).delete("blobs/bb/b");
+        assertThat(meterRegistry.get("contracthawk.retention.rows").tag("table", "contract").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("contracthawk.retention.rows").tag("table", "contract_analysis").counter().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("contracthawk.retention.bytes").counter().count()).isEqualTo(1234);
+    }
+
+    @Test
+    void removesNothingWithoutARule() {
+        int removed = service.purge(new RetentionPolicy(0, 0), 10);
+
+        assertThat(removed).isZero();
+        verifyNoInteractions(repository, blobReferences, storage);
+    }
+
+    @Test
+    void keepsTheLatestUploadEvenWhenOnlyAgeApplies() {
+        RetentionPolicy policy = new RetentionPolicy(0, 7);
+        OffsetDateTime now = OffsetDateTime.parse("2026-01-10T00:00:00Z");
+
+        assertThat(policy.versionsKept()).isEqualTo(1);
+        assertThat(policy.uploadedBefore(now)).isEqualTo(OffsetDateTime.parse("2026-01-03T00:00:00Z"));
+        assertThat(new RetentionPolicy(5, 0).uploadedBefore(now)).isNull();
+
+        when(repository.lockExpired(eq(policy), any(), anyInt())).thenReturn(List.of());
+        assertThat(service.purge(policy, 10)).isZero();
+        verify(repository, never()).deleteAll(any());
+    }
+}
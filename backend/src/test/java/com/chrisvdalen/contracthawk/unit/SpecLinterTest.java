@@ -0,0 +1,296 @@
+package com.chrisvdalen.contracthawk.unit;
+
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisMetrics;
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
+import com.chrisvdalen.contracthawk.analysis.lint.InconsistentNamingRule;
+import com.chrisvdalen.contracthawk.analysis.lint.LintContext;
+import com.chrisvdalen.contracthawk.analysis.lint.LintRule;
+import com.chrisvdalen.contracthawk.analysis.lint.LintVisitor;
+import com.chrisvdalen.contracthawk.analysis.lint.MissingOperationIdRule;
+import com.chrisvdalen.contracthawk.analysis.lint.SpecLinter;
+import com.chrisvdalen.contracthawk.analysis.lint.UndocumentedErrorResponsesRule;
+import com.chrisvdalen.contracthawk.analysis.lint.UnusedComponentsRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SpecLinterTest {
+
+    private static final String SPEC = """
+            openapi: 3.0.3
+            info:
+              title: Orders
+              version: '1.0.0'
+            paths:
+              /orders:
+                get:
+                  operationId: listOrders
+                  parameters:
+                    - name: pageSize
+                      in: query
+                      schema:
+                        type: integer
+                  responses:
+                    '200':
+                      description: ok
+                      content:
+                        application/json:
+                          schema:
+                            type: array
+                            items:
+                              $ref: '#/components/schemas/Order'
+                    '400':
+                      description: bad request
+                    '500':
+                      description: failed
+              /orders/{id}:
+                get:
+                  parameters:
+                    - name: id
+                      in: path
+                      required: true
+                      schema:
+                        type: string
+                  responses:
+                    '200':
+                      description: ok
+                      content:
+                        application/json:
+                          schema:
+                            $ref: '#/components/schemas/Order'
+                    default:
+                      $ref: '#/components/responses/Problem'
+              /order-lines:
+                post:
+                  operationId: addOrderLine
+                  responses:
+                    '201':
+                      description: created
+                      content:
+                        application/json:
+                          schema:
+                            $ref: '#/components/schemas/Order'
+                    '400':
+                      $ref: '#/components/responses/Problem'
+            components:
+              responses:
+                Problem:
+                  description: problem
+              schemas:
+                Order:
+                  type: object
+                  properties:
+                    orderId:
+                      type: string
+                    createdAt:
+                      type: string
+                    total:
+                      $ref: '#/components/schemas/Money'
+                Money:
+                  type: object
+                  properties:
+                    amount:
+                      type: string
+                    currencyCode:
+                      type: string
+                    minor_units:
+                      type: integer
+                LegacyOrder:
+                  type: object
+                  properties:
+                    total:
+                      $ref: '#/components/schemas/LegacyMoney'
+                LegacyMoney:
+                  type: object
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AnalysisMetrics metrics = new AnalysisMetrics(meterRegistry);
+
+    @Test
+    void reportsWhatEachRuleFindsInOneWalk() {
+        SpecLinter linter = new SpecLinter(List.of(new MissingOperationIdRule(), new UndocumentedErrorResponsesRule(),
+                new InconsistentNamingRule(), new UnusedComponentsRule()), metrics);
+
+        List<LintFinding> findings = linter.lint(openApi(SPEC));
+
+        assertThat(findings)
+                .extracting(LintFinding::rule, LintFinding::location)
+                .containsExactlyInAnyOrder(
+                        tuple("missing-operation-id", "#/paths/~1orders~1{id}/get"),
+                        tuple("undocumented-error-responses", "#/paths/~1order-lines/post/responses"),
+                        tuple("inconsistent-naming", "#/components/schemas/Money/properties/minor_units"),
+                        tuple("unused-component", "#/components/schemas/LegacyOrder"),
+                        tuple("unused-component", "#/components/schemas/LegacyMoney"));
+        assertThat(findings)
+                .filteredOn(finding -> finding.rule().equals("undocumented-error-responses"))
+                .extracting(LintFinding::message)
+                .containsExactly("POST /order-lines documents no 5xx response");
+    }
+
+    @Test
+    void visitsEachReferencedTargetOnceAndTimesEveryRule() {
+        List<String> schemaLocations = new ArrayList<>();
+        List<String> refs = new ArrayList<>();
+        LintRule recording = new LintRule() {
+            @Override
+            public String id() {
+                return "recording";
+            }
+
+            @Override
+            public LintVisitor start(LintContext context) {
+                return new LintVisitor() {
+                    @Override
+                    public void visitSchema(String location, Schema<?> schema) {
+                        schemaLocations.add(location);
+                    }
+
+                    @Override
+                    public void visitRef(String ref) {
+                        refs.add(ref);
+                    }
+                };
+            }
+        };
+        SpecLinter linter = new SpecLinter(List.of(recording, new UnusedComponentsRule()), metrics);
+
+        linter.lint(openApi(SPEC));
+
+        assertThat(schemaLocations)
+                .filteredOn(location -> location.equals("#/components/schemas/Order"))
+                .hasSize(1);
+        assertThat(schemaLocations).doesNotHaveDuplicates()
+                .contains("#/components/schemas/Money", "#/components/schemas/LegacyMoney");
+        assertThat(refs).filteredOn("#/components/schemas/Order"::equals).hasSize(3);
+        assertThat(refs).doesNotContain("#/components/schemas/LegacyMoney");
+        assertThat(meterRegistry.get("contracthawk.analysis.lint.rule").tag("rule", "recording").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("contracthawk.analysis.lint.rule").tag("rule", "unused-component").timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsReferencesFromCallbacksWebhooksAndLinksAsUses() {
+        String spec = """
+                openapi: 3.1.0
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /subscriptions:
+                    post:
+                      operationId: subscribe
+                      responses:
+                        '201':
+                          description: created
+                          links:
+                            GetSubscription:
+                              $ref: '#/components/links/GetSubscription'
+                      callbacks:
+                        orderShipped:
+                          '{$request.body#/callbackUrl}':
+                            post:
+                              operationId: orderShipped
+                              requestBody:
+                                content:
+                                  application/json:
+                                    schema:
+                                      $ref: '#/components/schemas/ShipmentEvent'
+                              responses:
+                                '204':
+                                  description: received
+                        orderCancelled:
+                          $ref: '#/components/callbacks/OrderCancelled'
+                webhooks:
+                  orderCreated:
+                    post:
+                      operationId: orderCreated
+                      requestBody:
+                        content:
+                          application/json:
+                            schema:
+                              $ref: '#/components/schemas/OrderCreatedEvent'
+                      responses:
+                        '204':
+                          description: received
+                components:
+                  schemas:
+                    ShipmentEvent:
+                      type: object
+                    CancellationEvent:
+                      type: object
+                    OrderCreatedEvent:
+                      type: object
+                    Unused:
+                      type: object
+                  callbacks:
+                    OrderCancelled:
+                      '{$request.body#/callbackUrl}':
+                        post:
+                          operationId: orderCancelled
+                          requestBody:
+                            content:
+                              application/json:
+                                schema:
+                                  $ref: '#/components/schemas/CancellationEvent'
+                          responses:
+                            '204':
+                              description: received
+                  links:
+                    GetSubscription:
+                      operationId: subscribe
+                    UnusedLink:
+                      operationId: subscribe
+                """;
+        SpecLinter linter = new SpecLinter(List.of(new UnusedComponentsRule()), metrics);
+
+        List<LintFinding> findings = linter.lint(openApi(spec));
+
+        assertThat(findings)
+                .extracting(LintFinding::location)
+                .containsExactlyInAnyOrder("#/components/schemas/Unused", "#/components/links/UnusedLink");
+    }
+
+    @Test
+    void skipsARuleThatFailsAndKeepsTheOthers() {
+        LintRule failing = new LintRule() {
+            @Override
+            public String id() {
+                return "failing";
+            }
+
+            @Override
+            public LintVisitor start(LintContext context) {
+                return new LintVisitor() {
+                    @Override
+                    public void visitOperation(String location, String path, PathItem.HttpMethod method,
+                                               Operation operation) {
+                        throw new IllegalStateException("broken rule");
+                    }
+                };
+            }
+        };
+        SpecLinter linter = new SpecLinter(List.of(failing, new MissingOperationIdRule()), metrics);
+
+        List<LintFinding> findings = linter.lint(openApi(SPEC));
+
+        assertThat(findings)
+                .extracting(LintFinding::rule, LintFinding::message)
+                .containsExactly(tuple("missing-operation-id", "GET /orders/{id} has no operationId"));
+    }
+
+    private static OpenAPI openApi(String spec) {
+        return new OpenAPIV3Parser().readContents(spec, null, null).getOpenAPI();
+    }
+}
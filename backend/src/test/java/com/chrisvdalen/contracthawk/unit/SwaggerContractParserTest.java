@@ -1,17 +1,38 @@
 package com.chrisvdalen.contracthawk.unit;
 
+import com.chrisvdalen.contracthawk.analysis.application.AnalysisMetrics;
+import com.chrisvdalen.contracthawk.analysis.application.SpecBundle;
+import com.chrisvdalen.contracthawk.analysis.config.AnalysisProperties;
+import com.chrisvdalen.contracthawk.analysis.domain.LintFinding;
 import com.chrisvdalen.contracthawk.analysis.domain.ParsedContract;
+import com.chrisvdalen.contracthawk.analysis.domain.ParsedOperation;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.BundleDocumentCache;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.ParsedModelCache;
+import com.chrisvdalen.contracthawk.analysis.infrastructure.SpecBundleResolver;
 import com.chrisvdalen.contracthawk.analysis.infrastructure.SwaggerContractParser;
+import com.chrisvdalen.contracthawk.analysis.lint.InconsistentNamingRule;
+import com.chrisvdalen.contracthawk.analysis.lint.MissingOperationIdRule;
+import com.chrisvdalen.contracthawk.analysis.lint.SpecLinter;
+import com.chrisvdalen.contracthawk.analysis.lint.UndocumentedErrorResponsesRule;
+import com.chrisvdalen.contracthawk.analysis.lint.UnusedComponentsRule;
+import com.chrisvdalen.contracthawk.search.domain.SpecSymbol;
+import com.chrisvdalen.contracthawk.search.domain.SymbolKind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 class SwaggerContractParserTest {
 
-    private final SwaggerContractParser parser = new SwaggerContractParser();
+    private final SwaggerContractParser parser = parser(null);
 
     @Test
     void parsesValidSpecAndCountsPathsAndOperations() throws Exception {
@@ -48,6 +69,209 @@ class SwaggerContractParserTest {
         assertThat(parsed.valid()).isTrue();
         assertThat(parsed.pathCount()).isEqualTo(2);
         assertThat(parsed.operationCount()).isEqualTo(3);
+        assertThat(parsed.operations())
+                .extracting(ParsedOperation::key)
+                .containsExactlyInAnyOrder("GET /orders", "POST /orders", "GET /orders/{id}");
+        assertThat(parsed.operations())
+                .extracting(ParsedOperation::fingerprint)
+                .doesNotHaveDuplicates()
+                .allSatisfy(fingerprint -> assertThat(fingerprint).hasSize(32));
+    }
+
+    @Test
+    void servesRepeatedDigestFromCacheWithoutReadingSource() throws Exception {
+        byte[] spec = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger reads = new AtomicInteger();
+
+        ParsedContract first = parser.parse("abc", () -> {
+            reads.incrementAndGet();
+            return new ByteArrayInputStream(spec);
+        });
+        int readsForFirstParse = reads.get();
+        ParsedContract second = parser.parse("abc", () -> {
+            reads.incrementAndGet();
+            return new ByteArrayInputStream(spec);
+        });
+
+        assertThat(reads).hasValue(readsForFirstParse);
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void readsTheSourceOnceOnEitherSideOfTheFullValidationLimit() throws Exception {
+        byte[] spec = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger opens = new AtomicInteger();
+
+        ParsedContract atLimit = parser(DataSize.ofBytes(spec.length)).parse("at-limit", () -> {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(spec);
+        });
+        ParsedContract overLimit = parser(DataSize.ofBytes(spec.length - 1)).parse("over-limit", () -> {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(spec);
+        });
+
+        assertThat(opens).hasValue(2);
+        assertThat(atLimit.fullyValidated()).isTrue();
+        assertThat(overLimit.fullyValidated()).isFalse();
+        assertThat(overLimit.operations()).isEqualTo(atLimit.operations());
+    }
+
+    @Test
+    void scansSpecsAboveFullValidationLimitStructurallyOnly() throws Exception {
+        String spec = """
+                {
+                  "openapi": "3.0.3",
+                  "info": {"title": "Orders", "version": "1.0.0"},
+                  "paths": {
+                    "/orders": {
+                      "parameters": [],
+                      "get": {"responses": {"200": {"description": "ok"}}},
+                      "post": {"responses": {"201": {"description": "created"}}}
+                    },
+                    "/orders/{id}": {"delete": {"responses": {"204": {"description": "gone"}}}},
+                    "x-internal": {"get": {}}
+                  }
+                }
+                """;
+
+        ParsedContract parsed = parser(DataSize.ofBytes(16))
+                .parse(new ByteArrayInputStream(spec.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(parsed.fullyValidated()).isFalse();
+        assertThat(parsed.valid()).isTrue();
+        assertThat(parsed.pathCount()).isEqualTo(2);
+        assertThat(parsed.operationCount()).isEqualTo(3);
+        assertThat(parsed.operations())
+                .extracting(ParsedOperation::key)
+                .containsExactly("GET /orders", "POST /orders", "DELETE /orders/{id}");
+    }
+
+    @Test
+    void lintsFullyValidatedSpecsButNotStructurallyScannedOnes() throws Exception {
+        byte[] spec = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      operationId: listOrders
+                      responses:
+                        '200':
+                          description: ok
+                        default:
+                          description: error
+                """.getBytes(StandardCharsets.UTF_8);
+        byte[] sloppy = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(parser.parse(new ByteArrayInputStream(spec)).lintFindings()).isEmpty();
+        assertThat(parser.parse(new ByteArrayInputStream(sloppy)).lintFindings())
+                .extracting(LintFinding::rule)
+                .containsExactlyInAnyOrder("missing-operation-id", "undocumented-error-responses",
+                        "undocumented-error-responses");
+        assertThat(parser(DataSize.ofBytes(16)).parse(new ByteArrayInputStream(sloppy)).lintFindings()).isEmpty();
+    }
+
+    @Test
+    void fingerprintsDoNotDependOnWhetherFullValidationRan() throws Exception {
+        byte[] spec = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    get:
+                      responses:
+                        '200':
+                          description: ok
+                """.getBytes(StandardCharsets.UTF_8);
+
+        ParsedContract full = parser.parse(new ByteArrayInputStream(spec));
+        ParsedContract structural = parser(DataSize.ofBytes(1)).parse(new ByteArrayInputStream(spec));
+
+        assertThat(full.fullyValidated()).isTrue();
+        assertThat(structural.operations()).isEqualTo(full.operations());
+    }
+
+    @Test
+    void collectsOperationIdsTagsAndSchemaNamesForSearch() throws Exception {
+        byte[] spec = """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders/{id}:
+                    get:
+                      operationId: getOrderById
+                      tags: [orders, billing]
+                      responses:
+                        '200':
+                          description: ok
+                          content:
+                            application/json:
+                              schema:
+                                $ref: '#/components/schemas/Order'
+                    delete:
+                      responses:
+                        '204':
+                          description: deleted
+                components:
+                  schemas:
+                    Order:
+                      type: object
+                      properties:
+                        total:
+                          $ref: '#/components/schemas/Money'
+                    Money:
+                      type: string
+                """.getBytes(StandardCharsets.UTF_8);
+
+        ParsedContract full = parser.parse(new ByteArrayInputStream(spec));
+        ParsedContract structural = parser(DataSize.ofBytes(1)).parse(new ByteArrayInputStream(spec));
+
+        assertThat(full.symbols()).containsExactly(
+                SpecSymbol.operation("/orders/{id}", "GET", "getOrderById", List.of("orders", "billing")),
+                SpecSymbol.operation("/orders/{id}", "DELETE", null, List.of()),
+                SpecSymbol.schema("Order"),
+                SpecSymbol.schema("Money"));
+        assertThat(structural.symbols()).isEqualTo(full.symbols());
     }
 
     @Test
@@ -59,4 +283,194 @@ class SwaggerContractParserTest {
         assertThat(parsed.pathCount()).isZero();
         assertThat(parsed.operationCount()).isZero();
     }
+
+    @Test
+    void resolvesRelativeRefsBetweenTheDocumentsOfABundle() throws Exception {
+        SpecBundle bundle = bundle("api/openapi.yaml", Map.of(
+                "api/openapi.yaml", """
+                        openapi: 3.0.3
+                        info:
+                          title: Orders
+                          version: '1.0.0'
+                        paths:
+                          /orders/{id}:
+                            $ref: 'paths/order.yaml'
+                        """,
+                "api/paths/order.yaml", """
+                        get:
+                          operationId: getOrder
+                          parameters:
+                            - name: id
+                              in: path
+                              required: true
+                              schema:
+                                type: string
+                          responses:
+                            '200':
+                              description: ok
+                              content:
+                                application/json:
+                                  schema:
+                                    $ref: '../../common/money.yaml#/components/schemas/Money'
+                            '404':
+                              description: not found
+                              content:
+                                application/json:
+                                  schema:
+                                    $ref: '../../common/errors.yaml#/components/schemas/Error'
+                        """,
+                "common/money.yaml", """
+                        components:
+                          schemas:
+                            Money:
+                              type: object
+                              properties:
+                                amount:
+                                  type: number
+                                currency:
+                                  $ref: '#/components/schemas/Currency'
+                            Currency:
+                              type: string
+                        """,
+                "common/errors.yaml", """
+                        components:
+                          schemas:
+                            Error:
+                              type: object
+                              properties:
+                                message:
+                                  type: string
+                        """), new AtomicInteger());
+
+        ParsedContract parsed = parser.parseBundle("bundle-1", bundle);
+
+        assertThat(parsed.validationMessages()).isEmpty();
+        assertThat(parsed.valid()).isTrue();
+        assertThat(parsed.operations()).extracting(ParsedOperation::key).containsExactly("GET /orders/{id}");
+        assertThat(parsed.symbols())
+                .filteredOn(symbol -> symbol.kind() == SymbolKind.SCHEMA)
+                .extracting(SpecSymbol::name)
+                .containsExactlyInAnyOrder("Money", "Currency", "Error");
+    }
+
+    @Test
+    void parsesASharedDocumentOnceForAllBundlesThatIncludeIt() throws Exception {
+        String shared = """
+                components:
+                  schemas:
+                    Error:
+                      type: string
+                """;
+        AtomicInteger reads = new AtomicInteger();
+
+        for (String service : List.of("orders", "payments")) {
+            SpecBundle bundle = bundle("openapi.yaml", Map.of(
+                    "openapi.yaml", """
+                            openapi: 3.0.3
+                            info:
+                              title: SERVICE
+                              version: '1.0.0'
+                            paths:
+                              /SERVICE:
+                                get:
+                                  responses:
+                                    '500':
+                                      description: failed
+                                      content:
+                                        application/json:
+                                          schema:
+                                            $ref: 'common.yaml#/components/schemas/Error'
+                            """.replace("SERVICE", service),
+                    "common.yaml", shared), reads);
+
+            assertThat(parser.parseBundle("bundle-" + service, bundle).valid()).isTrue();
+        }
+
+        assertThat(reads).hasValue(1);
+    }
+
+    @Test
+    void reportsReferencesToDocumentsMissingFromTheBundle() throws Exception {
+        SpecBundle bundle = bundle("openapi.yaml", Map.of("openapi.yaml", """
+                openapi: 3.0.3
+                info:
+                  title: Orders
+                  version: '1.0.0'
+                paths:
+                  /orders:
+                    $ref: 'paths/orders.yaml'
+                """), new AtomicInteger());
+
+        ParsedContract parsed = parser.parseBundle("bundle-missing", bundle);
+
+        assertThat(parsed.valid()).isFalse();
+        assertThat(parsed.validationMessages())
+                .anySatisfy(message -> assertThat(message).contains("paths/orders.yaml"));
+    }
+
+    @Test
+    void stopsReadingABundleAtTheSizeLimit() throws Exception {
+        SwaggerContractParser parser = parser(DataSize.ofMegabytes(1), DataSize.ofBytes(1024));
+        SpecBundle bundle = bundle("openapi.yaml", Map.of(
+                "openapi.yaml", """
+                        openapi: 3.0.3
+                        info:
+                          title: Orders
+                          version: '1.0.0'
+                        paths:
+                          /orders:
+                            $ref: 'paths/orders.yaml'
+                        """,
+                "paths/orders.yaml", "get:\n  description: '" + "x".repeat(2048) + "'\n"), new AtomicInteger());
+
+        ParsedContract parsed = parser.parseBundle("bundle-large", bundle);
+
+        assertThat(parsed.valid()).isFalse();
+        assertThat(parsed.validationMessages())
+                .anySatisfy(message -> assertThat(message).contains("larger than 1024 bytes; paths/orders.yaml"));
+
+        ParsedContract largeRoot = parser.parseBundle("bundle-large-root", bundle("openapi.yaml",
+                Map.of("openapi.yaml", "openapi: 3.0.3\ninfo:\n  title: '" + "x".repeat(2048) + "'\n"),
+                new AtomicInteger()));
+
+        assertThat(largeRoot.valid()).isFalse();
+        assertThat(largeRoot.validationMessages())
+                .anySatisfy(message -> assertThat(message).contains("larger than 1024 bytes; openapi.yaml"));
+    }
+
+    /**
+     * @param sharedReads counts how often a document other than the root is read from its source
+     */
+    private static SpecBundle bundle(String rootPath, Map<String, String> documents, AtomicInteger sharedReads) {
+        Map<String, SpecBundle.Document> bundle = new LinkedHashMap<>();
+        documents.forEach((path, content) -> bundle.put(path, new SpecBundle.Document(
+                "sha-" + Integer.toHexString(content.hashCode()),
+                () -> {
+                    if (!path.equals(rootPath)) {
+                        sharedReads.incrementAndGet();
+                    }
+                    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+                })));
+        return new SpecBundle(rootPath, bundle);
+    }
+
+    private static SwaggerContractParser parser(DataSize fullValidationMaxSize) {
+        return parser(fullValidationMaxSize, DataSize.ofMegabytes(1));
+    }
+
+    private static SwaggerContractParser parser(DataSize fullValidationMaxSize, DataSize maxBundleSize) {
+        AnalysisProperties properties = new AnalysisProperties(
+                new AnalysisProperties.ParseCache(true, DataSize.ofMegabytes(1), null), fullValidationMaxSize, null, null,
+                new AnalysisProperties.ParseCache(true, DataSize.ofMegabytes(1), null), maxBundleSize);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AnalysisMetrics metrics = new AnalysisMetrics(meterRegistry);
+        return new SwaggerContractParser(new ParsedModelCache(properties, meterRegistry),
+                new SpecBundleResolver(new BundleDocumentCache(properties, meterRegistry), properties), linter(metrics), properties,
+                metrics);
+    }
+
+    private static SpecLinter linter(AnalysisMetrics metrics) {
+        return new SpecLinter(List.of(new MissingOperationIdRule(), new UndocumentedErrorResponsesRule(),
+                new InconsistentNamingRule(), new UnusedComponentsRule()), metrics);
+    }
 }